@@ -339,5 +339,8 @@ public class QuickstepLauncher extends BaseQuickstepLauncher {
         writer.println("\nQuickstepLauncher:");
         writer.println(prefix + "\tmOrientationState: " + (recentsView == null ? "recentsNull" :
                 recentsView.getPagedViewOrientedState()));
+        if (recentsView != null) {
+            recentsView.dumpTaskViewPool(prefix + "\t", writer);
+        }
     }
 }
@@ -20,6 +20,7 @@ import static android.widget.Toast.LENGTH_SHORT;
 import static com.android.launcher3.config.FeatureFlags.ENABLE_QUICKSTEP_LIVE_TILE;
 import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
 import static com.android.launcher3.util.VibratorWrapper.OVERVIEW_HAPTIC;
+import static com.android.quickstep.util.ActiveGestureLog.FINISH_RECENTS_ANIMATION;
 
 import android.annotation.TargetApi;
 import android.content.Context;
@@ -274,7 +275,7 @@ public abstract class BaseSwipeUpHandler<T extends StatefulActivity<?>, Q extend
                 mRecentsAnimationController.finish(false /* toRecents */,
                         null /* onFinishComplete */);
                 mActivityInterface.onLaunchTaskSuccess();
-                ActiveGestureLog.INSTANCE.addLog("finishRecentsAnimation", false);
+                ActiveGestureLog.INSTANCE.addLog(FINISH_RECENTS_ANIMATION, false);
             }
         }
     }
@@ -282,6 +282,9 @@ public final class RecentsActivity extends StatefulActivity<RecentsState> {
     public void onTrimMemory(int level) {
         super.onTrimMemory(level);
         RecentsModel.INSTANCE.get(this).onTrimMemory(level);
+        if (mFallbackRecentsView != null) {
+            mFallbackRecentsView.onTrimMemory(level);
+        }
     }
 
     @Override
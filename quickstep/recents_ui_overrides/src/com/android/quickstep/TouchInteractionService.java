@@ -24,6 +24,10 @@ import static com.android.launcher3.config.FeatureFlags.ENABLE_QUICKSTEP_LIVE_TI
 import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
 import static com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR;
 import static com.android.quickstep.GestureState.DEFAULT_STATE;
+import static com.android.quickstep.util.ActiveGestureLog.ON_MOTION_EVENT;
+import static com.android.quickstep.util.ActiveGestureLog.ON_MOTION_EVENT_DOWN;
+import static com.android.quickstep.util.ActiveGestureLog.ON_MOTION_EVENT_UP;
+import static com.android.quickstep.util.ActiveGestureLog.SET_INPUT_CONSUMER;
 import static com.android.systemui.shared.system.QuickStepContract.KEY_EXTRA_INPUT_MONITOR;
 import static com.android.systemui.shared.system.QuickStepContract.KEY_EXTRA_SYSUI_PROXY;
 import static com.android.systemui.shared.system.QuickStepContract.SYSUI_STATE_TRACING_ENABLED;
@@ -45,6 +49,7 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.IBinder;
 import android.os.Looper;
+import android.util.Base64;
 import android.util.Log;
 import android.view.Choreographer;
 import android.view.InputEvent;
@@ -86,6 +91,7 @@ import com.android.quickstep.util.ActiveGestureLog;
 import com.android.quickstep.util.AssistantUtilities;
 import com.android.quickstep.util.ProtoTracer;
 import com.android.quickstep.util.SplitScreenBounds;
+import com.android.quickstep.util.SurfaceTransactionApplier;
 import com.android.systemui.plugins.OverscrollPlugin;
 import com.android.systemui.plugins.PluginListener;
 import com.android.systemui.shared.recents.IOverviewProxy;
@@ -96,7 +102,9 @@ import com.android.systemui.shared.system.InputConsumerController;
 import com.android.systemui.shared.system.InputMonitorCompat;
 import com.android.systemui.shared.tracing.ProtoTraceable;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FileDescriptor;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Arrays;
 import java.util.LinkedList;
@@ -487,7 +495,7 @@ public class TouchInteractionService extends Service implements PluginListener<O
                 mGestureState = newGestureState;
                 mConsumer = newConsumer(prevGestureState, mGestureState, event);
 
-                ActiveGestureLog.INSTANCE.addLog("setInputConsumer: " + mConsumer.getName());
+                ActiveGestureLog.INSTANCE.addLog(SET_INPUT_CONSUMER, mConsumer.getType());
                 mUncheckedConsumer = mConsumer;
             } else if (mDeviceState.isUserUnlocked() && mDeviceState.isFullyGesturalNavMode()) {
                 mGestureState = createGestureState(mGestureState);
@@ -518,13 +526,15 @@ public class TouchInteractionService extends Service implements PluginListener<O
         if (mUncheckedConsumer != InputConsumer.NO_OP) {
             switch (event.getActionMasked()) {
                 case ACTION_DOWN:
+                    ActiveGestureLog.INSTANCE.addLogPosition(ON_MOTION_EVENT_DOWN,
+                            event.getRawX(), event.getRawY());
+                    break;
                 case ACTION_UP:
-                    ActiveGestureLog.INSTANCE.addLog("onMotionEvent("
-                            + (int) event.getRawX() + ", " + (int) event.getRawY() + ")",
-                            event.getActionMasked());
+                    ActiveGestureLog.INSTANCE.addLogPosition(ON_MOTION_EVENT_UP,
+                            event.getRawX(), event.getRawY());
                     break;
                 default:
-                    ActiveGestureLog.INSTANCE.addLog("onMotionEvent", event.getActionMasked());
+                    ActiveGestureLog.INSTANCE.addLog(ON_MOTION_EVENT, event.getActionMasked());
                     break;
             }
         }
@@ -533,6 +543,7 @@ public class TouchInteractionService extends Service implements PluginListener<O
                 && mConsumer != null
                 && !mConsumer.getActiveConsumerInHierarchy().isConsumerDetachedFromGesture();
         mUncheckedConsumer.onMotionEvent(event);
+        ProtoTracer.INSTANCE.get(this).scheduleFrameUpdate();
 
         if (cleanUpConsumer) {
             reset();
@@ -844,15 +855,17 @@ public class TouchInteractionService extends Service implements PluginListener<O
             pw.println("  resumed=" + resumed);
             pw.println("  mConsumer=" + mConsumer.getName());
             ActiveGestureLog.INSTANCE.dump("", pw);
-            pw.println("ProtoTrace:");
-            pw.println("  file="
-                    + ProtoTracer.INSTANCE.get(TouchInteractionService.this).getTraceFile());
+            ProtoTracer.INSTANCE.get(TouchInteractionService.this).dump("", pw);
+            SurfaceTransactionApplier.dump("", pw);
         }
     }
 
     private void printAvailableCommands(PrintWriter pw) {
         pw.println("Available commands:");
         pw.println("  clear-touch-log: Clears the touch interaction log");
+        pw.println("  dump-touch-log-binary: Prints the touch interaction log in binary form,"
+                + " base64 encoded");
+        pw.println("  snapshot-trace: Writes the flight recorder trace to a winscope file");
     }
 
     private void onCommand(PrintWriter pw, ArgList args) {
@@ -860,6 +873,18 @@ public class TouchInteractionService extends Service implements PluginListener<O
             case "clear-touch-log":
                 ActiveGestureLog.INSTANCE.clear();
                 break;
+            case "dump-touch-log-binary":
+                try {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    ActiveGestureLog.INSTANCE.writeBinary(out);
+                    pw.println(Base64.encodeToString(out.toByteArray(), Base64.NO_WRAP));
+                } catch (IOException e) {
+                    pw.println("Failed to write touch log: " + e);
+                }
+                break;
+            case "snapshot-trace":
+                ProtoTracer.INSTANCE.get(this).snapshot();
+                break;
         }
     }
 
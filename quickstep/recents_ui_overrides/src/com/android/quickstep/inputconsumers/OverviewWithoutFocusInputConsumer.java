@@ -17,6 +17,7 @@ package com.android.quickstep.inputconsumers;
 
 import static com.android.launcher3.logging.StatsLogManager.LAUNCHER_STATE_HOME;
 import static com.android.launcher3.logging.StatsLogManager.LauncherEvent.LAUNCHER_HOME_GESTURE;
+import static com.android.quickstep.util.ActiveGestureLog.START_QUICKSTEP;
 
 import android.content.Context;
 import android.graphics.PointF;
@@ -80,7 +81,7 @@ public class OverviewWithoutFocusInputConsumer implements InputConsumer,
     @Override
     public void onSwipeUp(boolean wasFling, PointF finalVelocity) {
         mContext.startActivity(mGestureState.getHomeIntent());
-        ActiveGestureLog.INSTANCE.addLog("startQuickstep");
+        ActiveGestureLog.INSTANCE.addLog(START_QUICKSTEP);
         BaseActivity activity = BaseDraggingActivity.fromContext(mContext);
         int pageIndex = -1; // This number doesn't reflect workspace page index.
                             // It only indicates that launcher client screen was shown.
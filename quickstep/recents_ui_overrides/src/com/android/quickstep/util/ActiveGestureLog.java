@@ -15,10 +15,9 @@
  */
 package com.android.quickstep.util;
 
-import android.content.Context;
-
 import com.android.launcher3.logging.EventLogArray;
-import com.android.launcher3.util.MainThreadInitializedObject;
+import com.android.quickstep.GestureState.GestureEndTarget;
+import com.android.quickstep.InputConsumer;
 
 /**
  * A log to keep track of the active gesture.
@@ -33,7 +32,39 @@ public class ActiveGestureLog extends EventLogArray {
      */
     public static final String INTENT_EXTRA_LOG_TRACE_ID = "INTENT_EXTRA_LOG_TRACE_ID";
 
+    public static final int ON_MOTION_EVENT = INSTANCE.registerEvent("onMotionEvent");
+    public static final int ON_MOTION_EVENT_DOWN = INSTANCE.registerEvent("onMotionEvent:DOWN");
+    public static final int ON_MOTION_EVENT_UP = INSTANCE.registerEvent("onMotionEvent:UP");
+    public static final int SET_INPUT_CONSUMER =
+            INSTANCE.registerEvent("setInputConsumer", InputConsumer::getName);
+    public static final int START_QUICKSTEP = INSTANCE.registerEvent("startQuickstep");
+    public static final int START_RECENTS_ANIMATION =
+            INSTANCE.registerEvent("startRecentsAnimation");
+    public static final int START_RECENTS_ANIMATION_CALLBACK =
+            INSTANCE.registerEvent("startRecentsAnimationCallback");
+    public static final int CANCEL_RECENTS_ANIMATION =
+            INSTANCE.registerEvent("cancelRecentsAnimation");
+    public static final int FINISH_RECENTS_ANIMATION =
+            INSTANCE.registerEvent("finishRecentsAnimation");
+    public static final int SET_END_TARGET =
+            INSTANCE.registerEvent("setEndTarget", ActiveGestureLog::getEndTargetName);
+    public static final int ON_SETTLED_ON_END_TARGET =
+            INSTANCE.registerEvent("onSettledOnEndTarget", ActiveGestureLog::getEndTargetName);
+
     private ActiveGestureLog() {
-        super("touch_interaction_log", 40);
+        // Every move event is logged, so keep enough records to cover a few gestures.
+        super("touch_interaction_log", 1024);
+    }
+
+    /**
+     * Logs the given end target, or -1 if it is null.
+     */
+    public void addLog(int eventId, GestureEndTarget target) {
+        addLog(eventId, target == null ? -1 : target.ordinal());
+    }
+
+    private static String getEndTargetName(int ordinal) {
+        GestureEndTarget[] values = GestureEndTarget.values();
+        return ordinal >= 0 && ordinal < values.length ? values[ordinal].name() : "null";
     }
 }
@@ -16,6 +16,7 @@
 
 package com.android.quickstep.util;
 
+import static com.android.launcher3.config.FeatureFlags.ENABLE_TRACE_FLIGHT_RECORDER;
 import static com.android.launcher3.tracing.nano.LauncherTraceFileProto.MagicNumber.MAGIC_NUMBER_H;
 import static com.android.launcher3.tracing.nano.LauncherTraceFileProto.MagicNumber.MAGIC_NUMBER_L;
 
@@ -54,9 +55,17 @@ public class ProtoTracer implements ProtoTraceParams<MessageNano,
     private final FrameProtoTracer<MessageNano,
             LauncherTraceFileProto, LauncherTraceEntryProto, LauncherTraceProto> mProtoTracer;
 
+    private final ArrayList<ProtoTraceable<LauncherTraceProto>> mTraceables = new ArrayList<>();
+    // Records frames into a ring file while winscope tracing is not enabled, may be null
+    private final TraceFlightRecorder mFlightRecorder;
+    private boolean mTracing;
+
     public ProtoTracer(Context context) {
         mContext = context;
         mProtoTracer = new FrameProtoTracer<>(this);
+        mFlightRecorder = ENABLE_TRACE_FLIGHT_RECORDER.get()
+                ? new TraceFlightRecorder(context.getFilesDir(), MAGIC_NUMBER_VALUE, mTraceables)
+                : null;
     }
 
     @Override
@@ -102,23 +111,50 @@ public class ProtoTracer implements ProtoTraceParams<MessageNano,
     }
 
     public void start() {
+        mTracing = true;
         mProtoTracer.start();
     }
 
     public void stop() {
+        mTracing = false;
         mProtoTracer.stop();
     }
 
     public void add(ProtoTraceable<LauncherTraceProto> traceable) {
+        mTraceables.add(traceable);
         mProtoTracer.add(traceable);
     }
 
     public void remove(ProtoTraceable<LauncherTraceProto> traceable) {
+        mTraceables.remove(traceable);
         mProtoTracer.remove(traceable);
     }
 
     public void scheduleFrameUpdate() {
-        mProtoTracer.scheduleFrameUpdate();
+        if (mTracing) {
+            mProtoTracer.scheduleFrameUpdate();
+        } else if (mFlightRecorder != null) {
+            mFlightRecorder.scheduleFrameUpdate();
+        }
+    }
+
+    /**
+     * Writes the recent frames kept by the flight recorder into a trace file, for example after
+     * a gesture failed.
+     */
+    public void snapshot() {
+        if (mFlightRecorder != null) {
+            mFlightRecorder.snapshot();
+        }
+    }
+
+    public void dump(String prefix, PrintWriter pw) {
+        pw.println(prefix + "ProtoTrace:");
+        pw.println(prefix + "  file=" + getTraceFile());
+        pw.println(prefix + "  tracing=" + mTracing);
+        if (mFlightRecorder != null) {
+            mFlightRecorder.dump(prefix + "  ", pw);
+        }
     }
 
     public void update() {
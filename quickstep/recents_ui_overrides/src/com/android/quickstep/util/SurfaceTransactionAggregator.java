@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static com.android.systemui.shared.system.TransactionCompat.deferTransactionUntil;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.SurfaceControl;
+import android.view.SurfaceControl.Transaction;
+import android.view.View;
+import android.view.View.OnAttachStateChangeListener;
+
+import androidx.annotation.UiThread;
+
+import com.android.systemui.shared.system.SyncRtSurfaceTransactionApplierCompat.SurfaceParams;
+import com.android.systemui.shared.system.ViewRootImplCompat;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.WeakHashMap;
+
+/**
+ * Merges the surface params scheduled by all {@link SurfaceTransactionApplier}s anchored to the
+ * same view root into a single transaction, applied in sync with the next RenderThread frame.
+ * Params are applied in the order they were scheduled, so later params for a surface override
+ * earlier ones exactly as if they were applied in separate transactions.
+ *
+ * The aggregator references the view root, which references the root view, so an aggregator is
+ * only kept while its root view is attached.
+ */
+@TargetApi(Build.VERSION_CODES.R)
+class SurfaceTransactionAggregator implements OnAttachStateChangeListener {
+
+    // Guarded by itself
+    private static final WeakHashMap<View, SurfaceTransactionAggregator> sAggregators =
+            new WeakHashMap<>();
+
+    private final ViewRootImplCompat mViewRootImpl;
+    private final SurfaceControl mBarrierSurfaceControl;
+
+    private final Object mLock = new Object();
+    // Guarded by mLock
+    private ArrayList<PendingApply> mPending = new ArrayList<>();
+    private ArrayList<PendingApply> mApplying = new ArrayList<>();
+    private boolean mFrameCallbackRegistered;
+
+    // Stats, guarded by mLock
+    private long mFramesApplied;
+    private long mRequestsApplied;
+    private int mMaxRequestsPerFrame;
+
+    private SurfaceTransactionAggregator(ViewRootImplCompat viewRootImpl,
+            SurfaceControl barrierSurfaceControl) {
+        mViewRootImpl = viewRootImpl;
+        mBarrierSurfaceControl = barrierSurfaceControl;
+    }
+
+    /**
+     * Returns the aggregator for the view root of {@param rootView}, synchronized with
+     * {@param barrierSurfaceControl}
+     */
+    @UiThread
+    static SurfaceTransactionAggregator get(View rootView, ViewRootImplCompat viewRootImpl,
+            SurfaceControl barrierSurfaceControl) {
+        synchronized (sAggregators) {
+            SurfaceTransactionAggregator aggregator = sAggregators.get(rootView);
+            // The view may have been re-attached to a new surface since it was created.
+            if (aggregator == null
+                    || aggregator.mBarrierSurfaceControl != barrierSurfaceControl) {
+                if (aggregator != null) {
+                    rootView.removeOnAttachStateChangeListener(aggregator);
+                }
+                aggregator = new SurfaceTransactionAggregator(viewRootImpl, barrierSurfaceControl);
+                if (rootView.isAttachedToWindow()) {
+                    sAggregators.put(rootView, aggregator);
+                    rootView.addOnAttachStateChangeListener(aggregator);
+                } else {
+                    sAggregators.remove(rootView);
+                }
+            }
+            return aggregator;
+        }
+    }
+
+    @Override
+    public void onViewAttachedToWindow(View view) { }
+
+    @Override
+    public void onViewDetachedFromWindow(View view) {
+        view.removeOnAttachStateChangeListener(this);
+        synchronized (sAggregators) {
+            if (sAggregators.get(view) == this) {
+                sAggregators.remove(view);
+            }
+        }
+    }
+
+    /**
+     * Schedules the params to be applied on the next frame, along with any other params
+     * scheduled for the same frame.
+     */
+    @UiThread
+    void schedule(SurfaceTransactionApplier applier, int sequenceNumber, SurfaceParams[] params) {
+        synchronized (mLock) {
+            mPending.add(new PendingApply(applier, sequenceNumber, params));
+            if (mFrameCallbackRegistered) {
+                return;
+            }
+            mFrameCallbackRegistered = true;
+        }
+        mViewRootImpl.registerRtFrameCallback(this::onFrame);
+    }
+
+    /**
+     * Called on the RenderThread
+     */
+    private void onFrame(long frame) {
+        ArrayList<PendingApply> toApply;
+        synchronized (mLock) {
+            toApply = mPending;
+            mPending = mApplying;
+            mApplying = toApply;
+            mFrameCallbackRegistered = false;
+
+            mFramesApplied++;
+            mRequestsApplied += toApply.size();
+            mMaxRequestsPerFrame = Math.max(mMaxRequestsPerFrame, toApply.size());
+        }
+
+        if (mBarrierSurfaceControl != null && mBarrierSurfaceControl.isValid()) {
+            Transaction t = new Transaction();
+            for (int i = 0; i < toApply.size(); i++) {
+                SurfaceParams[] params = toApply.get(i).params;
+                for (int j = params.length - 1; j >= 0; j--) {
+                    SurfaceParams surfaceParams = params[j];
+                    if (surfaceParams.surface.isValid()) {
+                        deferTransactionUntil(t, surfaceParams.surface, mBarrierSurfaceControl,
+                                frame);
+                        surfaceParams.applyTo(t);
+                    }
+                }
+            }
+            t.apply();
+        }
+
+        for (int i = 0; i < toApply.size(); i++) {
+            PendingApply pending = toApply.get(i);
+            pending.applier.onParamsApplied(pending.sequenceNumber);
+        }
+        synchronized (mLock) {
+            toApply.clear();
+        }
+    }
+
+    /**
+     * Dumps the transaction stats of all view roots
+     */
+    static void dumpAll(String prefix, PrintWriter pw) {
+        ArrayList<SurfaceTransactionAggregator> aggregators;
+        synchronized (sAggregators) {
+            aggregators = new ArrayList<>(sAggregators.values());
+        }
+        pw.println(prefix + "SurfaceTransactionAggregator:");
+        for (SurfaceTransactionAggregator aggregator : aggregators) {
+            synchronized (aggregator.mLock) {
+                pw.println(prefix + "  framesApplied=" + aggregator.mFramesApplied
+                        + " requestsApplied=" + aggregator.mRequestsApplied
+                        + " maxRequestsPerFrame=" + aggregator.mMaxRequestsPerFrame);
+            }
+        }
+    }
+
+    private static class PendingApply {
+
+        final SurfaceTransactionApplier applier;
+        final int sequenceNumber;
+        final SurfaceParams[] params;
+
+        PendingApply(SurfaceTransactionApplier applier, int sequenceNumber,
+                SurfaceParams[] params) {
+            this.applier = applier;
+            this.sequenceNumber = sequenceNumber;
+            this.params = params;
+        }
+    }
+}
@@ -15,20 +15,18 @@
  */
 package com.android.quickstep.util;
 
-import static com.android.systemui.shared.system.TransactionCompat.deferTransactionUntil;
-
 import android.annotation.TargetApi;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Message;
 import android.view.SurfaceControl;
-import android.view.SurfaceControl.Transaction;
 import android.view.View;
 
 import com.android.quickstep.RemoteAnimationTargets.ReleaseCheck;
 import com.android.systemui.shared.system.SyncRtSurfaceTransactionApplierCompat.SurfaceParams;
 import com.android.systemui.shared.system.ViewRootImplCompat;
 
+import java.io.PrintWriter;
 import java.util.function.Consumer;
 
 
@@ -66,7 +64,8 @@ public class SurfaceTransactionApplier extends ReleaseCheck {
     }
 
     /**
-     * Schedules applying surface parameters on the next frame.
+     * Schedules applying surface parameters on the next frame. Params scheduled by all appliers
+     * of the same view root within a frame are merged into a single transaction.
      *
      * @param params The surface parameters to apply. DO NOT MODIFY the list after passing into
      *               this method to avoid synchronization issues.
@@ -78,31 +77,29 @@ public class SurfaceTransactionApplier extends ReleaseCheck {
         }
 
         mLastSequenceNumber++;
-        final int toApplySeqNo = mLastSequenceNumber;
         setCanRelease(false);
-        mTargetViewRootImpl.registerRtFrameCallback(frame -> {
-            if (mBarrierSurfaceControl == null || !mBarrierSurfaceControl.isValid()) {
-                Message.obtain(mApplyHandler, MSG_UPDATE_SEQUENCE_NUMBER, toApplySeqNo, 0)
-                        .sendToTarget();
-                return;
-            }
-            Transaction t = new Transaction();
-            for (int i = params.length - 1; i >= 0; i--) {
-                SurfaceParams surfaceParams = params[i];
-                if (surfaceParams.surface.isValid()) {
-                    deferTransactionUntil(t, surfaceParams.surface, mBarrierSurfaceControl, frame);
-                    surfaceParams.applyTo(t);
-                }
-            }
-            t.apply();
-            Message.obtain(mApplyHandler, MSG_UPDATE_SEQUENCE_NUMBER, toApplySeqNo, 0)
-                    .sendToTarget();
-        });
+        SurfaceTransactionAggregator.get(view, mTargetViewRootImpl, mBarrierSurfaceControl)
+                .schedule(this, mLastSequenceNumber, params);
 
         // Make sure a frame gets scheduled.
         view.invalidate();
     }
 
+    /**
+     * Called on the RenderThread once the params with the given sequence number are applied
+     */
+    void onParamsApplied(int sequenceNumber) {
+        Message.obtain(mApplyHandler, MSG_UPDATE_SEQUENCE_NUMBER, sequenceNumber, 0)
+                .sendToTarget();
+    }
+
+    /**
+     * Dumps the per-frame transaction stats
+     */
+    public static void dump(String prefix, PrintWriter pw) {
+        SurfaceTransactionAggregator.dumpAll(prefix, pw);
+    }
+
     /**
      * Creates an instance of SyncRtSurfaceTransactionApplier, deferring until the target view is
      * attached if necessary.
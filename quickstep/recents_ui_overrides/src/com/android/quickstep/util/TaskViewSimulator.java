@@ -96,6 +96,11 @@ public class TaskViewSimulator implements TransformParams.BuilderProxy {
     // Cached calculations
     private boolean mLayoutValid = false;
     private boolean mScrollValid = false;
+    // The matrix and crop are only recomputed when one of their inputs changes
+    private boolean mMatrixValid = false;
+    private float mLastProgress;
+    private float mLastRecentsViewScale;
+    private float mLastSecondaryTranslation;
 
     public TaskViewSimulator(Context context, BaseActivityInterface sizeStrategy) {
         mContext = context;
@@ -243,6 +248,7 @@ public class TaskViewSimulator implements TransformParams.BuilderProxy {
                     poh.getPrimaryValue(mTaskRect.width(), mTaskRect.height()) / 2;
             mScrollState.halfScreenSize = poh.getPrimaryValue(mDp.widthPx, mDp.heightPx) / 2;
             mScrollValid = false;
+            mMatrixValid = false;
         }
 
         if (!mScrollValid) {
@@ -252,9 +258,21 @@ public class TaskViewSimulator implements TransformParams.BuilderProxy {
             mScrollState.screenCenter = start + mScrollState.scroll + mScrollState.halfPageSize;
             mScrollState.updateInterpolation(start);
             mCurveScale = TaskView.getCurveScaleForInterpolation(mScrollState.linearInterpolation);
+            mMatrixValid = false;
         }
 
         float progress = Utilities.boundToRange(fullScreenProgress.value, 0, 1);
+        if (mMatrixValid && progress == mLastProgress
+                && recentsViewScale.value == mLastRecentsViewScale
+                && recentsViewSecondaryTranslation.value == mLastSecondaryTranslation) {
+            params.applySurfaceParams(params.createSurfaceParams(this));
+            return;
+        }
+        mMatrixValid = true;
+        mLastProgress = progress;
+        mLastRecentsViewScale = recentsViewScale.value;
+        mLastSecondaryTranslation = recentsViewSecondaryTranslation.value;
+
         mCurrentFullscreenParams.setProgress(
                 progress, recentsViewScale.value, mTaskRect.width(), mDp, mPositionHelper);
 
@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+import static com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.annotation.UiThread;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.tracing.nano.LauncherTraceEntryProto;
+import com.android.launcher3.tracing.nano.LauncherTraceFileProto;
+import com.android.launcher3.tracing.nano.LauncherTraceProto;
+import com.android.systemui.shared.tracing.ProtoTraceable;
+import com.google.protobuf.nano.MessageNano;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Always-on, low overhead recorder of launcher trace entries.
+ *
+ * Each frame, a single preallocated {@link LauncherTraceEntryProto} is updated and serialized
+ * into a fixed size slot of a memory-mapped ring file, so that the most recent frames survive a
+ * process crash and can be snapshotted into a regular trace file on demand. Recording a frame
+ * is measured, and frames are skipped whenever the recording cost exceeds
+ * {@link #FRAME_BUDGET_NANOS}.
+ */
+public class TraceFlightRecorder implements Choreographer.FrameCallback {
+
+    private static final String TAG = "TraceFlightRecorder";
+
+    private static final int FILE_MAGIC = 0x4c4e4652; // "LNFR"
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 256;
+    // sequence (long) + payload length (int)
+    private static final int SLOT_HEADER_SIZE = 12;
+    private static final int SLOT_COUNT = 2048;
+    private static final int FILE_SIZE = HEADER_SIZE + SLOT_SIZE * SLOT_COUNT;
+
+    /** Maximum amortized time spent recording a frame. */
+    public static final long FRAME_BUDGET_NANOS = 100_000;
+
+    private final File mRingFile;
+    private final File mSnapshotFile;
+    private final long mMagicNumber;
+    private final ArrayList<ProtoTraceable<LauncherTraceProto>> mTraceables;
+    private final Choreographer mChoreographer;
+
+    // Reused for every frame
+    private final LauncherTraceEntryProto mEntry = new LauncherTraceEntryProto();
+    private final byte[] mScratch = new byte[SLOT_SIZE - SLOT_HEADER_SIZE];
+
+    // Set on the background thread once the ring file is mapped
+    private volatile MappedByteBuffer mBuffer;
+    private long mNextSequence;
+
+    private boolean mFrameScheduled;
+    private int mFramesToSkip;
+
+    // Stats
+    private long mFramesRecorded;
+    private long mFramesSkipped;
+    private long mFramesDropped;
+    private long mTotalRecordNanos;
+    private long mMaxRecordNanos;
+
+    /**
+     * @param traceables the traceables to write each frame, owned by the caller and only accessed
+     *                   on the main thread.
+     */
+    @UiThread
+    public TraceFlightRecorder(File dir, long magicNumber,
+            ArrayList<ProtoTraceable<LauncherTraceProto>> traceables) {
+        mRingFile = new File(dir, "launcher_trace_ring.bin");
+        mSnapshotFile = new File(dir, "launcher_trace_snapshot.pb");
+        mMagicNumber = magicNumber;
+        mTraceables = traceables;
+        mChoreographer = Choreographer.getInstance();
+        mEntry.launcher = new LauncherTraceProto();
+        UI_HELPER_EXECUTOR.execute(this::openRingFile);
+    }
+
+    @WorkerThread
+    private void openRingFile() {
+        try (RandomAccessFile file = new RandomAccessFile(mRingFile, "rw")) {
+            boolean isNew = file.length() != FILE_SIZE;
+            if (isNew) {
+                file.setLength(FILE_SIZE);
+            }
+            MappedByteBuffer buffer = file.getChannel()
+                    .map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+            if (isNew || buffer.getInt(0) != FILE_MAGIC) {
+                buffer.putInt(0, FILE_MAGIC);
+                buffer.putInt(4, SLOT_SIZE);
+                buffer.putInt(8, SLOT_COUNT);
+                for (int i = 0; i < SLOT_COUNT; i++) {
+                    buffer.putLong(getSlotOffset(i), -1);
+                }
+            }
+            // Continue the sequence of a previous process, so that its frames are kept in order.
+            long maxSequence = -1;
+            for (int i = 0; i < SLOT_COUNT; i++) {
+                maxSequence = Math.max(maxSequence, buffer.getLong(getSlotOffset(i)));
+            }
+            long nextSequence = maxSequence + 1;
+            MAIN_EXECUTOR.execute(() -> {
+                mNextSequence = nextSequence;
+                mBuffer = buffer;
+            });
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to map trace ring file", e);
+        }
+    }
+
+    /**
+     * Records a trace entry for the next frame. Multiple calls within a frame are coalesced.
+     */
+    @UiThread
+    public void scheduleFrameUpdate() {
+        if (!mFrameScheduled) {
+            mFrameScheduled = true;
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFrameScheduled = false;
+        if (mBuffer == null) {
+            return;
+        }
+        if (mFramesToSkip > 0) {
+            mFramesToSkip--;
+            mFramesSkipped++;
+            return;
+        }
+        long start = SystemClock.elapsedRealtimeNanos();
+        record(start);
+        long cost = SystemClock.elapsedRealtimeNanos() - start;
+
+        mFramesRecorded++;
+        mTotalRecordNanos += cost;
+        mMaxRecordNanos = Math.max(mMaxRecordNanos, cost);
+        if (cost > FRAME_BUDGET_NANOS) {
+            // Skip enough frames to keep the amortized cost within the budget.
+            mFramesToSkip = (int) (cost / FRAME_BUDGET_NANOS);
+        }
+    }
+
+    private void record(long timeNanos) {
+        mEntry.elapsedRealtimeNanos = timeNanos;
+        for (int i = mTraceables.size() - 1; i >= 0; i--) {
+            mTraceables.get(i).writeToProto(mEntry.launcher);
+        }
+        int size = mEntry.getSerializedSize();
+        if (size > mScratch.length) {
+            mFramesDropped++;
+            return;
+        }
+        MessageNano.toByteArray(mEntry, mScratch, 0, size);
+
+        long sequence = mNextSequence++;
+        int offset = getSlotOffset((int) (sequence % SLOT_COUNT));
+        MappedByteBuffer buffer = mBuffer;
+        // Invalidate the slot first, so that a torn write is never read back as a valid entry.
+        buffer.putLong(offset, -1);
+        buffer.putInt(offset + 8, size);
+        buffer.position(offset + SLOT_HEADER_SIZE);
+        buffer.put(mScratch, 0, size);
+        buffer.putLong(offset, sequence);
+    }
+
+    /**
+     * Writes the entries currently in the ring file to a trace file that can be loaded in
+     * winscope. The ring is read and written in the background, entries which are overwritten
+     * while being read are skipped.
+     */
+    @UiThread
+    public void snapshot() {
+        MappedByteBuffer buffer = mBuffer;
+        if (buffer == null) {
+            return;
+        }
+        ByteBuffer ring = buffer.duplicate();
+        UI_HELPER_EXECUTOR.execute(() -> writeSnapshot(ring));
+    }
+
+    @WorkerThread
+    private void writeSnapshot(ByteBuffer ring) {
+        long[] sequences = new long[SLOT_COUNT];
+        int count = 0;
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            long sequence = ring.getLong(getSlotOffset(i));
+            if (sequence >= 0) {
+                // Sort key combining the sequence with the slot index
+                sequences[count++] = sequence * SLOT_COUNT + i;
+            }
+        }
+        Arrays.sort(sequences, 0, count);
+
+        LauncherTraceFileProto fileProto = new LauncherTraceFileProto();
+        fileProto.magicNumber = mMagicNumber;
+        fileProto.entry = new LauncherTraceEntryProto[count];
+        int valid = 0;
+        for (int i = 0; i < count; i++) {
+            long sequence = sequences[i] / SLOT_COUNT;
+            int offset = getSlotOffset((int) (sequences[i] % SLOT_COUNT));
+            int size = ring.getInt(offset + 8);
+            if (size < 0 || size > SLOT_SIZE - SLOT_HEADER_SIZE) {
+                continue;
+            }
+            byte[] payload = new byte[size];
+            ring.position(offset + SLOT_HEADER_SIZE);
+            ring.get(payload);
+            if (ring.getLong(offset) != sequence) {
+                // The slot was rewritten by the main thread while it was read
+                continue;
+            }
+            try {
+                fileProto.entry[valid] = LauncherTraceEntryProto.parseFrom(payload);
+                valid++;
+            } catch (IOException e) {
+                Log.w(TAG, "Skipping corrupt trace entry", e);
+            }
+        }
+        if (valid < count) {
+            fileProto.entry = Arrays.copyOf(fileProto.entry, valid);
+        }
+
+        try (FileOutputStream out = new FileOutputStream(mSnapshotFile)) {
+            out.write(MessageNano.toByteArray(fileProto));
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to write trace snapshot", e);
+        }
+    }
+
+    private static int getSlotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    public File getSnapshotFile() {
+        return mSnapshotFile;
+    }
+
+    public void dump(String prefix, PrintWriter pw) {
+        pw.println(prefix + "TraceFlightRecorder:");
+        pw.println(prefix + "  ringFile=" + mRingFile + " mapped=" + (mBuffer != null));
+        pw.println(prefix + "  snapshotFile=" + mSnapshotFile);
+        pw.println(prefix + "  framesRecorded=" + mFramesRecorded
+                + " framesSkipped=" + mFramesSkipped
+                + " framesDropped=" + mFramesDropped);
+        pw.println(prefix + "  avgRecordNanos="
+                + (mFramesRecorded == 0 ? 0 : mTotalRecordNanos / mFramesRecorded)
+                + " maxRecordNanos=" + mMaxRecordNanos
+                + " budgetNanos=" + FRAME_BUDGET_NANOS);
+    }
+}
@@ -16,6 +16,8 @@
 
 package com.android.quickstep.views;
 
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
 import static android.view.Surface.ROTATION_0;
 import static android.view.View.MeasureSpec.EXACTLY;
 import static android.view.View.MeasureSpec.makeMeasureSpec;
@@ -144,6 +146,7 @@ import com.android.systemui.shared.system.LauncherEventUtil;
 import com.android.systemui.shared.system.PackageManagerWrapper;
 import com.android.systemui.shared.system.TaskStackChangeListener;
 
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.function.Consumer;
 
@@ -278,6 +281,7 @@ public abstract class RecentsView<T extends StatefulActivity> extends PagedView
     private final InvariantDeviceProfile mIdp;
 
     private final ViewPool<TaskView> mTaskViewPool;
+    private final ViewPool.ViewPreparer<TaskView> mTaskViewPreparer;
 
     private final TaskOverlayFactory mTaskOverlayFactory;
 
@@ -443,6 +447,7 @@ public abstract class RecentsView<T extends StatefulActivity> extends PagedView
 
         mTaskViewPool = new ViewPool<>(context, this, R.layout.task, 20 /* max size */,
                 10 /* initial size */);
+        mTaskViewPreparer = this::premeasureTaskView;
 
         mIsRtl = mOrientationHandler.getRecentsRtlSetting(getResources());
         setLayoutDirection(mIsRtl ? View.LAYOUT_DIRECTION_RTL : View.LAYOUT_DIRECTION_LTR);
@@ -566,6 +571,8 @@ public abstract class RecentsView<T extends StatefulActivity> extends PagedView
         mOrientationState.initListeners();
         SplitScreenBounds.INSTANCE.addOnChangeListener(this);
         mTaskOverlayFactory.initListeners();
+        // Top up the task view pool once launcher has finished loading
+        mTaskViewPool.fillOnIdle(getTaskViewCount(), mTaskViewPreparer);
     }
 
     @Override
@@ -777,6 +784,7 @@ public abstract class RecentsView<T extends StatefulActivity> extends PagedView
                 mIgnoreResetTaskId == -1 ? null : getTaskView(mIgnoreResetTaskId);
 
         final int requiredTaskCount = tasks.size();
+        mTaskViewPool.onDemand(requiredTaskCount);
         if (getTaskViewCount() != requiredTaskCount) {
             for (int i = getTaskViewCount(); i < requiredTaskCount; i++) {
                 addView(mTaskViewPool.getView());
@@ -1045,6 +1053,32 @@ public abstract class RecentsView<T extends StatefulActivity> extends PagedView
         if (mOrientationState.setGestureActive(false)) {
             updateOrientationHandler();
         }
+        // Prepare enough task views for the next time overview is shown
+        mTaskViewPool.fillOnIdle(getTaskViewCount(), mTaskViewPreparer);
+    }
+
+    /**
+     * Measures a pooled task view at the current task size, so that the first layout pass after
+     * it is added does not need to measure its children from scratch.
+     */
+    private void premeasureTaskView(TaskView taskView) {
+        if (mTaskWidth > 0 && mTaskHeight > 0) {
+            taskView.measure(makeMeasureSpec(mTaskWidth, EXACTLY),
+                    makeMeasureSpec(mTaskHeight, EXACTLY));
+        }
+    }
+
+    /**
+     * Releases pooled task views when the system is low on memory.
+     */
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW && level != TRIM_MEMORY_UI_HIDDEN) {
+            mTaskViewPool.trimToSize(0);
+        }
+    }
+
+    public void dumpTaskViewPool(String prefix, PrintWriter writer) {
+        mTaskViewPool.dump(prefix, writer);
     }
 
     public @Nullable TaskView getRunningTaskView() {
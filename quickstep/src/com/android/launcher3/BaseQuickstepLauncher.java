@@ -124,6 +124,10 @@ public abstract class BaseQuickstepLauncher extends Launcher
     public void onTrimMemory(int level) {
         super.onTrimMemory(level);
         RecentsModel.INSTANCE.get(this).onTrimMemory(level);
+        RecentsView recentsView = getOverviewPanel();
+        if (recentsView != null) {
+            recentsView.onTrimMemory(level);
+        }
     }
 
     @Override
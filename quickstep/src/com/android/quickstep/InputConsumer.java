@@ -103,9 +103,16 @@ public interface InputConsumer {
     }
 
     default String getName() {
+        return getName(getType());
+    }
+
+    /**
+     * Returns a readable name for the given consumer type flags.
+     */
+    static String getName(int type) {
         StringBuilder name = new StringBuilder();
         for (int i = 0; i < NAMES.length; i++) {
-            if ((getType() & (1 << i)) != 0) {
+            if ((type & (1 << i)) != 0) {
                 if (name.length() > 0) {
                     name.append(":");
                 }
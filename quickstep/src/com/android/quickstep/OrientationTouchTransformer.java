@@ -57,7 +57,6 @@ class OrientationTouchTransformer {
 
     private static final int QUICKSTEP_ROTATION_UNINITIALIZED = -1;
 
-    private final Matrix mTmpMatrix = new Matrix();
     private final float[] mTmpPoint = new float[2];
 
     private SparseArray<OrientationRectF> mSwipeTouchRegions = new SparseArray<>(MAX_ORIENTATIONS);
@@ -363,6 +362,11 @@ class OrientationTouchTransformer {
         private float mHeight;
         private float mWidth;
 
+        // Transform from this region's rotation to the current display rotation. It is only
+        // recomputed when the display rotation changes, so move events do not rebuild it.
+        private final Matrix mTransformMatrix = new Matrix();
+        private int mMatrixDisplayRotation = QUICKSTEP_ROTATION_UNINITIALIZED;
+
         OrientationRectF(float left, float top, float right, float bottom, int rotation) {
             super(left, top, right, bottom);
             this.mRotation = rotation;
@@ -384,22 +388,30 @@ class OrientationTouchTransformer {
                     && x >= left && x <= right && y >= top && y <= bottom;
         }
 
+        private Matrix getTransformMatrix() {
+            if (mMatrixDisplayRotation != mCurrentDisplayRotation) {
+                mTransformMatrix.reset();
+                postDisplayRotation(deltaRotation(mCurrentDisplayRotation, mRotation),
+                        mHeight, mWidth, mTransformMatrix);
+                mMatrixDisplayRotation = mCurrentDisplayRotation;
+            }
+            return mTransformMatrix;
+        }
+
         boolean applyTransform(MotionEvent event, boolean forceTransform) {
-            mTmpMatrix.reset();
-            postDisplayRotation(deltaRotation(mCurrentDisplayRotation, mRotation),
-                    mHeight, mWidth, mTmpMatrix);
+            Matrix matrix = getTransformMatrix();
             if (forceTransform) {
                 if (DEBUG) {
                     Log.d(TAG, "Transforming rotation due to forceTransform, "
                             + "mCurrentRotation: " + mCurrentDisplayRotation
                             + "mRotation: " + mRotation);
                 }
-                event.transform(mTmpMatrix);
+                event.transform(matrix);
                 return true;
             }
             mTmpPoint[0] = event.getX();
             mTmpPoint[1] = event.getY();
-            mTmpMatrix.mapPoints(mTmpPoint);
+            matrix.mapPoints(mTmpPoint);
 
             if (DEBUG) {
                 Log.d(TAG, "original: " + event.getX() + ", " + event.getY()
@@ -409,7 +421,7 @@ class OrientationTouchTransformer {
             }
 
             if (contains(mTmpPoint[0], mTmpPoint[1])) {
-                event.transform(mTmpMatrix);
+                event.transform(matrix);
                 return true;
             }
             return false;
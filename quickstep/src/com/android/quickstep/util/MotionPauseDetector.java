@@ -54,7 +54,8 @@ public class MotionPauseDetector {
     private final Context mContext;
     private final VelocityProvider mVelocityProvider;
 
-    private Float mPreviousVelocity = null;
+    // NaN when no velocity has been computed yet for the current gesture.
+    private float mPreviousVelocity = Float.NaN;
 
     private OnMotionPauseListener mOnMotionPauseListener;
     private boolean mIsPaused;
@@ -131,8 +132,8 @@ public class MotionPauseDetector {
         mForcePauseTimeout.setAlarm(mMakePauseHarderToTrigger
                 ? HARDER_TRIGGER_TIMEOUT
                 : FORCE_PAUSE_TIMEOUT);
-        Float newVelocity = mVelocityProvider.addMotionEvent(ev, pointerIndex);
-        if (newVelocity != null && mPreviousVelocity != null) {
+        float newVelocity = mVelocityProvider.addMotionEvent(ev, pointerIndex);
+        if (!Float.isNaN(newVelocity) && !Float.isNaN(mPreviousVelocity)) {
             checkMotionPaused(newVelocity, mPreviousVelocity, ev.getEventTime());
         }
         mPreviousVelocity = newVelocity;
@@ -195,7 +196,7 @@ public class MotionPauseDetector {
 
     public void clear() {
         mVelocityProvider.clear();
-        mPreviousVelocity = null;
+        mPreviousVelocity = Float.NaN;
         setOnMotionPauseListener(null);
         mIsPaused = mHasEverBeenPaused = false;
         mSlowStartTime = 0;
@@ -219,10 +220,11 @@ public class MotionPauseDetector {
     protected interface VelocityProvider {
 
         /**
-         * Adds a new motion events, and returns the velocity at this point, or null if
-         * the velocity is not available
+         * Adds a new motion events, and returns the velocity at this point, or {@link Float#NaN}
+         * if the velocity is not available. Implementations must not allocate, as this is called
+         * for every move event of a gesture.
          */
-        Float addMotionEvent(MotionEvent ev, int pointer);
+        float addMotionEvent(MotionEvent ev, int pointer);
 
         /**
          * Clears all stored motion event records
@@ -232,8 +234,9 @@ public class MotionPauseDetector {
 
     private static class LinearVelocityProvider implements VelocityProvider {
 
-        private Long mPreviousTime = null;
-        private Float mPreviousPosition = null;
+        private boolean mHasPrevious = false;
+        private long mPreviousTime;
+        private float mPreviousPosition;
 
         private final int mAxis;
 
@@ -242,16 +245,17 @@ public class MotionPauseDetector {
         }
 
         @Override
-        public Float addMotionEvent(MotionEvent ev, int pointer) {
+        public float addMotionEvent(MotionEvent ev, int pointer) {
             long time = ev.getEventTime();
             float position = ev.getAxisValue(mAxis, pointer);
-            Float velocity = null;
+            float velocity = Float.NaN;
 
-            if (mPreviousTime != null && mPreviousPosition != null) {
+            if (mHasPrevious) {
                 long changeInTime = Math.max(1, time - mPreviousTime);
                 float changeInPosition = position - mPreviousPosition;
                 velocity = changeInPosition / changeInTime;
             }
+            mHasPrevious = true;
             mPreviousTime = time;
             mPreviousPosition = position;
             return velocity;
@@ -259,8 +263,7 @@ public class MotionPauseDetector {
 
         @Override
         public void clear() {
-            mPreviousTime = null;
-            mPreviousPosition = null;
+            mHasPrevious = false;
         }
     }
 
@@ -303,7 +306,7 @@ public class MotionPauseDetector {
         }
 
         @Override
-        public Float addMotionEvent(MotionEvent ev, int pointer) {
+        public float addMotionEvent(MotionEvent ev, int pointer) {
             // Add all historic points
             int historyCount = ev.getHistorySize();
             for (int i = 0; i < historyCount; i++) {
@@ -321,7 +324,7 @@ public class MotionPauseDetector {
          * Solves the instantaneous velocity.
          * Based on solveUnweightedLeastSquaresDeg2 in VelocityTracker.cpp
          */
-        private Float solveUnweightedLeastSquaresDeg2(final int pointPos) {
+        private float solveUnweightedLeastSquaresDeg2(final int pointPos) {
             final long eventTime = mHistoricTimes[pointPos];
 
             float sxi = 0, sxiyi = 0, syi = 0, sxi2 = 0, sxi3 = 0, sxi2yi = 0, sxi4 = 0;
@@ -373,7 +376,7 @@ public class MotionPauseDetector {
                     case 1:
                         return 0f;
                     default:
-                        return null;
+                        return Float.NaN;
                 }
             }
 
@@ -386,7 +389,7 @@ public class MotionPauseDetector {
             float denominator = Sxx * Sx2x2 - Sxx2 * Sxx2;
             if (denominator == 0) {
                 // division by 0 when computing velocity
-                return null;
+                return Float.NaN;
             }
             // Compute a
             // float numerator = Sx2y*Sxx - Sxy*Sxx2;
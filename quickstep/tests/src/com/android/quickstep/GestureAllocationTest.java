@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.quickstep;
+
+import static android.view.MotionEvent.ACTION_DOWN;
+import static android.view.MotionEvent.ACTION_MOVE;
+import static android.view.MotionEvent.ACTION_UP;
+
+import static com.android.launcher3.touch.SingleAxisSwipeDetector.DIRECTION_BOTH;
+import static com.android.launcher3.touch.SingleAxisSwipeDetector.VERTICAL;
+import static com.android.quickstep.SysUINavigationMode.Mode.NO_BUTTON;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.graphics.Point;
+import android.os.Debug;
+import android.util.DisplayMetrics;
+import android.view.MotionEvent;
+import android.view.Surface;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.filters.SmallTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.launcher3.touch.SingleAxisSwipeDetector;
+import com.android.launcher3.util.DefaultDisplay;
+import com.android.quickstep.util.MotionPauseDetector;
+import com.android.quickstep.util.NavBarPosition;
+import com.android.quickstep.util.TriggerSwipeUpTouchTracker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+
+/**
+ * Replays a recorded swipe-up stream through the gesture pipeline and verifies that move events
+ * do not allocate.
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class GestureAllocationTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 2280;
+    private static final int MOVE_COUNT = 120;
+    private static final long FRAME_MS = 8;
+
+    private final ArrayList<MotionEvent> mDownEvents = new ArrayList<>();
+    private final ArrayList<MotionEvent> mMoveEvents = new ArrayList<>();
+    private final ArrayList<MotionEvent> mUpEvents = new ArrayList<>();
+
+    private Context mContext;
+    private MotionPauseDetector mMotionPauseDetector;
+    private SingleAxisSwipeDetector mSwipeDetector;
+    private TriggerSwipeUpTouchTracker mSwipeUpTracker;
+    private OrientationTouchTransformer mTouchTransformer;
+
+    @Before
+    public void setup() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        recordSwipeUp(0);
+        recordSwipeUp(1000);
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            mMotionPauseDetector = new MotionPauseDetector(mContext);
+            mSwipeDetector = new SingleAxisSwipeDetector(mContext, new NoOpSwipeListener(),
+                    VERTICAL);
+            mSwipeDetector.setDetectableScrollConditions(DIRECTION_BOTH, false);
+            mSwipeUpTracker = new TriggerSwipeUpTouchTracker(mContext, false,
+                    new NavBarPosition(NO_BUTTON, Surface.ROTATION_0), null, null);
+            mTouchTransformer = new OrientationTouchTransformer(mContext.getResources(),
+                    NO_BUTTON, () -> 0);
+            mTouchTransformer.createOrAddTouchRegion(new DefaultDisplay.Info(0,
+                    Surface.ROTATION_0, 16, new Point(WIDTH, HEIGHT), new Point(WIDTH, WIDTH),
+                    new Point(HEIGHT, HEIGHT), new DisplayMetrics()));
+        });
+    }
+
+    @After
+    public void tearDown() {
+        for (MotionEvent ev : mDownEvents) ev.recycle();
+        for (MotionEvent ev : mMoveEvents) ev.recycle();
+        for (MotionEvent ev : mUpEvents) ev.recycle();
+    }
+
+    @Test
+    public void moveEvents_doNotAllocate() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            // The first gesture warms up lazily initialized state (velocity trackers, alarms).
+            replay(0);
+
+            dispatch(mDownEvents.get(1));
+            Debug.startAllocCounting();
+            Debug.resetThreadAllocCount();
+            for (int i = MOVE_COUNT; i < 2 * MOVE_COUNT; i++) {
+                dispatch(mMoveEvents.get(i));
+            }
+            int allocCount = Debug.getThreadAllocCount();
+            Debug.stopAllocCounting();
+            dispatch(mUpEvents.get(1));
+
+            assertEquals("Objects allocated while handling move events", 0, allocCount);
+        });
+    }
+
+    private void replay(int gesture) {
+        dispatch(mDownEvents.get(gesture));
+        for (int i = gesture * MOVE_COUNT; i < (gesture + 1) * MOVE_COUNT; i++) {
+            dispatch(mMoveEvents.get(i));
+        }
+        dispatch(mUpEvents.get(gesture));
+    }
+
+    private void dispatch(MotionEvent ev) {
+        mTouchTransformer.transform(ev);
+        mSwipeUpTracker.onMotionEvent(ev);
+        mSwipeDetector.onTouchEvent(ev);
+        mMotionPauseDetector.addPosition(ev);
+        if (ev.getActionMasked() == ACTION_UP) {
+            mMotionPauseDetector.clear();
+            mSwipeUpTracker.init();
+        }
+    }
+
+    /**
+     * Records a steady swipe up from the nav bar. The speed is kept constant so that no pause is
+     * detected, as pause transitions notify listeners and are not part of the per-move cost.
+     */
+    private void recordSwipeUp(long downTime) {
+        float x = WIDTH / 2f;
+        float y = HEIGHT - 10;
+        mDownEvents.add(MotionEvent.obtain(downTime, downTime, ACTION_DOWN, x, y, 0));
+        long time = downTime;
+        for (int i = 0; i < MOVE_COUNT; i++) {
+            time += FRAME_MS;
+            y -= 15;
+            mMoveEvents.add(MotionEvent.obtain(downTime, time, ACTION_MOVE, x, y, 0));
+        }
+        mUpEvents.add(MotionEvent.obtain(downTime, time + FRAME_MS, ACTION_UP, x, y, 0));
+    }
+
+    private static class NoOpSwipeListener implements SingleAxisSwipeDetector.Listener {
+
+        @Override
+        public void onDragStart(boolean start, float startDisplacement) { }
+
+        @Override
+        public boolean onDrag(float displacement) {
+            return true;
+        }
+
+        @Override
+        public void onDragEnd(float velocity) { }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Tests for {@link EventLogArray}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EventLogArrayTest {
+
+    private EventLogArray mLog;
+    private int mEventA;
+    private int mEventB;
+
+    @Before
+    public void setUp() {
+        mLog = new EventLogArray("test", 8);
+        mEventA = mLog.registerEvent("eventA");
+        mEventB = mLog.registerEvent("eventB", extras -> "formatted" + extras);
+    }
+
+    @Test
+    public void testDump_decodesRecords() {
+        mLog.addLog(mEventA, true);
+        mLog.addLog(mEventB, 3);
+
+        String dump = dump();
+        assertTrue(dump.contains("eventA: true"));
+        assertTrue(dump.contains("eventB: formatted3"));
+    }
+
+    @Test
+    public void testDump_mergesDuplicates() {
+        for (int i = 0; i < 4; i++) {
+            mLog.addLog(mEventA, i);
+        }
+        assertTrue(dump().contains("eventA: 3 & 3 similar events"));
+    }
+
+    @Test
+    public void testOverflow_dropsOldestRecords() {
+        mLog.addLog(mEventB, 1);
+        for (int i = 0; i < 8; i++) {
+            mLog.addLog(mEventA);
+        }
+        assertFalse(dump().contains("eventB"));
+    }
+
+    @Test
+    public void testClear() {
+        mLog.addLog(mEventA);
+        mLog.clear();
+        assertFalse(dump().contains("eventA"));
+    }
+
+    @Test
+    public void testWriteBinary() throws Exception {
+        mLog.addLog(mEventA, 1.5f);
+        mLog.addLogPosition(mEventB, 10, 20);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        mLog.writeBinary(out);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+
+        in.readInt(); // magic
+        assertEquals(1, in.readInt());
+        assertEquals("test", in.readUTF());
+        assertEquals(2, in.readInt());
+        assertEquals("eventA", in.readUTF());
+        assertEquals("eventB", in.readUTF());
+        assertEquals(2, in.readInt());
+
+        assertEquals(mEventA, in.readShort());
+        in.readByte(); // type
+        assertEquals(1.5f, in.readFloat(), 0);
+        in.readInt();
+        in.readInt();
+        in.readLong();
+
+        assertEquals(mEventB, in.readShort());
+        in.readByte(); // type
+        assertEquals(10f, in.readFloat(), 0);
+        assertEquals(20, in.readInt());
+    }
+
+    private String dump() {
+        StringWriter writer = new StringWriter();
+        mLog.dump("", new PrintWriter(writer));
+        return writer.toString();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Robolectric unit tests for {@link BitmapPool}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BitmapPoolTest {
+
+    @Test
+    public void getReusable_returnsBitmapOfSameSize() {
+        BitmapPool pool = new BitmapPool(Long.MAX_VALUE);
+        Bitmap bitmap = Bitmap.createBitmap(10, 20, Config.ARGB_8888);
+        pool.put(bitmap);
+
+        assertSame(bitmap, pool.getReusable(10, 20));
+        assertNull(pool.getReusable(10, 20));
+    }
+
+    @Test
+    public void getReusable_reconfiguresLargerBitmap() {
+        BitmapPool pool = new BitmapPool(Long.MAX_VALUE);
+        Bitmap bitmap = Bitmap.createBitmap(20, 20, Config.ARGB_8888);
+        pool.put(bitmap);
+
+        assertNull(pool.getReusable(30, 30));
+        Bitmap reused = pool.getReusable(10, 15);
+        assertSame(bitmap, reused);
+        assertEquals(10, reused.getWidth());
+        assertEquals(15, reused.getHeight());
+    }
+
+    @Test
+    public void put_dropsBitmapsOverBudget() {
+        BitmapPool pool = new BitmapPool(10 * 10 * 4);
+        Bitmap first = Bitmap.createBitmap(10, 10, Config.ARGB_8888);
+        pool.put(first);
+        pool.put(Bitmap.createBitmap(10, 10, Config.ARGB_8888));
+
+        assertSame(first, pool.getReusable(10, 10));
+        assertNull(pool.getReusable(10, 10));
+    }
+
+    @Test
+    public void put_ignoresImmutableBitmaps() {
+        BitmapPool pool = new BitmapPool(Long.MAX_VALUE);
+        pool.put(Bitmap.createBitmap(10, 10, Config.ARGB_8888).copy(Config.ARGB_8888, false));
+
+        assertNull(pool.getReusable(10, 10));
+    }
+}
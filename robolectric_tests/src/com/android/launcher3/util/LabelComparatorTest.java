@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.text.CollationKey;
+
+/**
+ * Robolectric unit tests for {@link LabelComparator}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LabelComparatorTest {
+
+    private static final String[] TITLES = {
+            "Calendar", "camera", "Clock", "1Password", "#hashtag", "", "Éclair", "eclair", "Zoo"
+    };
+
+    @Test
+    public void compareKeys_sameOrderAsTitles() {
+        LabelComparator comparator = new LabelComparator();
+        for (String a : TITLES) {
+            for (String b : TITLES) {
+                CollationKey keyA = comparator.getCollationKey(a);
+                CollationKey keyB = comparator.getCollationKey(b);
+                assertEquals(a + " vs " + b, Integer.signum(comparator.compare(a, b)),
+                        Integer.signum(comparator.compare(keyA, keyB)));
+            }
+        }
+    }
+
+    @Test
+    public void compareKeys_lettersBeforeSymbols() {
+        LabelComparator comparator = new LabelComparator();
+        assertEquals(-1, Integer.signum(comparator.compare(
+                comparator.getCollationKey("Zoo"), comparator.getCollationKey("#hashtag"))));
+    }
+}
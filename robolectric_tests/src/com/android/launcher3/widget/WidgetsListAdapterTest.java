@@ -15,8 +15,11 @@
  */
 package com.android.launcher3.widget;
 
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.robolectric.Shadows.shadowOf;
@@ -104,6 +107,32 @@ public class WidgetsListAdapterTest {
         verify(mListener, times(1)).onItemRangeChanged(eq(0), eq(1), isNull());
     }
 
+    @Test
+    public void testNotifyItemChanged_reusedRows() throws Exception {
+        ArrayList<WidgetListRowEntry> entries = generateSampleMap(4);
+        mAdapter.setWidgets(new ArrayList<>(entries));
+        entries.set(2, generateSampleMap(3).get(2));
+        mAdapter.setWidgets(new ArrayList<>(entries));
+        verify(mListener, times(1)).onChanged();
+        verify(mListener, times(1)).onItemRangeChanged(eq(2), eq(1), isNull());
+        verify(mListener, never()).onItemRangeInserted(anyInt(), anyInt());
+        verify(mListener, never()).onItemRangeRemoved(anyInt(), anyInt());
+    }
+
+    @Test
+    public void testNotifyItemInsertedRemoved_reusedRows() throws Exception {
+        ArrayList<WidgetListRowEntry> entries = generateSampleMap(4);
+        WidgetListRowEntry last = entries.remove(3);
+        mAdapter.setWidgets(new ArrayList<>(entries));
+        entries.remove(1);
+        entries.add(0, last);
+        mAdapter.setWidgets(new ArrayList<>(entries));
+        verify(mListener, times(1)).onChanged();
+        verify(mListener, times(1)).onItemRangeRemoved(eq(1), eq(1));
+        verify(mListener, times(1)).onItemRangeInserted(eq(2), eq(1));
+        assertEquals(3, mAdapter.getItemCount());
+    }
+
     @Test
     public void testNotifyItemChanged_widgetItemInfoDiff() throws Exception {
         // TODO: same package name but item number changed
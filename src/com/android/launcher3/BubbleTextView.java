@@ -33,6 +33,7 @@ import android.graphics.PointF;
 import android.graphics.Rect;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
+import android.text.PrecomputedText;
 import android.text.TextUtils.TruncateAt;
 import android.util.AttributeSet;
 import android.util.Property;
@@ -60,6 +61,7 @@ import com.android.launcher3.model.data.ItemInfoWithIcon;
 import com.android.launcher3.model.data.PackageItemInfo;
 import com.android.launcher3.model.data.PromiseAppInfo;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
+import com.android.launcher3.util.LabelLayoutCache;
 import com.android.launcher3.util.SafeCloseable;
 import com.android.launcher3.views.ActivityContext;
 import com.android.launcher3.views.IconLabelDotView;
@@ -74,9 +76,9 @@ import java.text.NumberFormat;
 public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver, OnResumeCallback,
         IconLabelDotView, DraggableView, Reorderable {
 
-    private static final int DISPLAY_WORKSPACE = 0;
-    private static final int DISPLAY_ALL_APPS = 1;
-    private static final int DISPLAY_FOLDER = 2;
+    public static final int DISPLAY_WORKSPACE = 0;
+    public static final int DISPLAY_ALL_APPS = 1;
+    public static final int DISPLAY_FOLDER = 2;
 
     private static final int[] STATE_PRESSED = new int[] {android.R.attr.state_pressed};
 
@@ -118,6 +120,9 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
 
     private final int mDisplay;
 
+    // Labels precomputed for this display
+    private final LabelLayoutCache mLabelCache;
+
     private final CheckLongPressHelper mLongPressHelper;
 
     private final boolean mLayoutHorizontal;
@@ -196,6 +201,9 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
         setEllipsize(TruncateAt.END);
         setAccessibilityDelegate(mActivity.getAccessibilityDelegate());
         setTextAlpha(1f);
+
+        mLabelCache = Utilities.ATLEAST_P && mDisplay <= DISPLAY_FOLDER
+                ? LabelLayoutCache.INSTANCE.get(context) : null;
     }
 
     @Override
@@ -291,7 +299,10 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
         mDotParams.color = IconPalette.getMutedColor(info.bitmap.color, 0.54f);
 
         setIcon(iconDrawable);
-        setText(info.title);
+        // The text metrics depend on the text direction, which is only resolved once attached
+        PrecomputedText label = mLabelCache == null
+                ? null : mLabelCache.getLabel(mDisplay, getTextMetricsParams(), info.title);
+        setText(label != null ? label : info.title);
         if (info.contentDescription != null) {
             setContentDescription(info.isDisabled()
                     ? getContext().getString(R.string.disabled_app_label, info.contentDescription)
@@ -359,6 +370,14 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
         refreshDrawableState();
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mLabelCache != null && mLabelCache.needsParams(mDisplay)) {
+            mLabelCache.initParams(mDisplay, getTextMetricsParams());
+        }
+    }
+
     @Override
     public void onVisibilityAggregated(boolean isVisible) {
         super.onVisibilityAggregated(isVisible);
@@ -2535,6 +2535,14 @@ public class CellLayout extends ViewGroup {
         mOccupied.markCells(lp.cellX, lp.cellY, lp.cellHSpan, lp.cellVSpan, false);
     }
 
+    /**
+     * Marks the cells of an item which has no view in this layout, for example because its page
+     * is parked by the {@link WorkspacePageVirtualizer}.
+     */
+    public void markCellsForItem(CellAndSpan cell, boolean occupied) {
+        mOccupied.markCells(cell, occupied);
+    }
+
     public int getDesiredWidth() {
         return getPaddingLeft() + getPaddingRight() + (mCountX * mCellWidth);
     }
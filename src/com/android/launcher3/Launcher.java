@@ -114,6 +114,9 @@ import com.android.launcher3.dragndrop.DragView;
 import com.android.launcher3.folder.Folder;
 import com.android.launcher3.folder.FolderGridOrganizer;
 import com.android.launcher3.folder.FolderIcon;
+import com.android.launcher3.folder.FolderPagedView;
+import com.android.launcher3.folder.PreviewLayerCache;
+import com.android.launcher3.graphics.DragPreviewProvider;
 import com.android.launcher3.icons.IconCache;
 import com.android.launcher3.keyboard.CustomActionsPopup;
 import com.android.launcher3.keyboard.ViewGroupFocusHelper;
@@ -155,6 +158,7 @@ import com.android.launcher3.util.ActivityTracker;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.ItemInfoMatcher;
+import com.android.launcher3.util.LabelLayoutCache;
 import com.android.launcher3.util.MultiValueAlpha;
 import com.android.launcher3.util.MultiValueAlpha.AlphaProperty;
 import com.android.launcher3.util.OnboardingPrefs;
@@ -391,6 +395,10 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
                 appWidgetId -> getWorkspace().removeWidget(appWidgetId));
         mAppWidgetHost.startListening();
 
+        if (Utilities.ATLEAST_P) {
+            // The text metrics of the icons may have changed with the configuration
+            LabelLayoutCache.INSTANCE.get(this).clear();
+        }
         inflateRootView(R.layout.launcher);
         setupViews();
         mPopupDataProvider = new PopupDataProvider(this::updateNotificationDots);
@@ -2096,6 +2104,29 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
         mWorkspace.removeExtraEmptyScreen(false);
     }
 
+    /**
+     * Creates the view for a workspace or hotseat item.
+     *
+     * @return the view, or null if the item is a widget which can not be inflated
+     */
+    View inflateWorkspaceItemView(ItemInfo item) {
+        switch (item.itemType) {
+            case LauncherSettings.Favorites.ITEM_TYPE_APPLICATION:
+            case LauncherSettings.Favorites.ITEM_TYPE_SHORTCUT:
+            case LauncherSettings.Favorites.ITEM_TYPE_DEEP_SHORTCUT:
+                return createShortcut((WorkspaceItemInfo) item);
+            case LauncherSettings.Favorites.ITEM_TYPE_FOLDER:
+                return FolderIcon.inflateFolderAndIcon(R.layout.folder_icon, this,
+                        (ViewGroup) mWorkspace.getChildAt(mWorkspace.getCurrentPage()),
+                        (FolderInfo) item);
+            case LauncherSettings.Favorites.ITEM_TYPE_APPWIDGET:
+            case LauncherSettings.Favorites.ITEM_TYPE_CUSTOM_APPWIDGET:
+                return inflateAppWidget((LauncherAppWidgetInfo) item);
+            default:
+                throw new RuntimeException("Invalid Item Type");
+        }
+    }
+
     /**
      * Bind the items start-end from the list.
      *
@@ -2118,31 +2149,9 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
                 continue;
             }
 
-            final View view;
-            switch (item.itemType) {
-                case LauncherSettings.Favorites.ITEM_TYPE_APPLICATION:
-                case LauncherSettings.Favorites.ITEM_TYPE_SHORTCUT:
-                case LauncherSettings.Favorites.ITEM_TYPE_DEEP_SHORTCUT: {
-                    WorkspaceItemInfo info = (WorkspaceItemInfo) item;
-                    view = createShortcut(info);
-                    break;
-                }
-                case LauncherSettings.Favorites.ITEM_TYPE_FOLDER: {
-                    view = FolderIcon.inflateFolderAndIcon(R.layout.folder_icon, this,
-                            (ViewGroup) workspace.getChildAt(workspace.getCurrentPage()),
-                            (FolderInfo) item);
-                    break;
-                }
-                case LauncherSettings.Favorites.ITEM_TYPE_APPWIDGET:
-                case LauncherSettings.Favorites.ITEM_TYPE_CUSTOM_APPWIDGET: {
-                    view = inflateAppWidget((LauncherAppWidgetInfo) item);
-                    if (view == null) {
-                        continue;
-                    }
-                    break;
-                }
-                default:
-                    throw new RuntimeException("Invalid Item Type");
+            final View view = inflateWorkspaceItemView(item);
+            if (view == null) {
+                continue;
             }
 
             /*
@@ -2444,11 +2453,28 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
         // override the previous page so we don't log the page switch.
         mWorkspace.setCurrentPage(pageBoundFirst, pageBoundFirst /* overridePrevPage */);
         mPageToBindSynchronously = PagedView.INVALID_PAGE;
+        mWorkspace.getPageVirtualizer().onPageSettled();
 
         // Cache one page worth of icons
         getViewCache().setCacheSize(R.layout.folder_application,
                 mDeviceProfile.inv.numFolderColumns * mDeviceProfile.inv.numFolderRows);
         getViewCache().setCacheSize(R.layout.folder_page, 2);
+        mAppsView.scheduleWarmUp();
+
+        if (Utilities.ATLEAST_P) {
+            // Folder contents are only laid out once the folder is opened
+            ArrayList<CharSequence> folderTitles = new ArrayList<>();
+            mWorkspace.mapOverItems((info, v) -> {
+                if (info instanceof FolderInfo) {
+                    for (WorkspaceItemInfo item : ((FolderInfo) info).contents) {
+                        folderTitles.add(item.title);
+                    }
+                }
+                return false;
+            });
+            LabelLayoutCache.INSTANCE.get(this)
+                    .precomputeLabels(BubbleTextView.DISPLAY_FOLDER, folderTitles);
+        }
 
         TraceHelper.INSTANCE.endSection(traceToken);
     }
@@ -2482,6 +2508,15 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
     @Override
     public void bindAllApplications(AppInfo[] apps, int flags) {
         mAppsView.getAppsStore().setApps(apps, flags);
+
+        if (Utilities.ATLEAST_P) {
+            ArrayList<CharSequence> titles = new ArrayList<>(apps.length);
+            for (AppInfo app : apps) {
+                titles.add(app.title);
+            }
+            LabelLayoutCache.INSTANCE.get(this)
+                    .precomputeLabels(BubbleTextView.DISPLAY_ALL_APPS, titles);
+        }
     }
 
     /**
@@ -2590,11 +2625,21 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
                 + " mPendingActivityResult=" + mPendingActivityResult);
         writer.println(prefix + "\tmRotationHelper: " + mRotationHelper);
         writer.println(prefix + "\tmAppWidgetHost.isListening: " + mAppWidgetHost.isListening());
+        mAppWidgetHost.dump(prefix + "\t", writer);
 
         // Extra logging for general debugging
         mDragLayer.dump(prefix, writer);
+        mWorkspace.getPageVirtualizer().dump(prefix, writer);
+        mAllAppsController.dump(prefix, writer);
+        PreviewLayerCache.dump(prefix, writer);
+        FolderPagedView.dump(prefix, writer);
+        DragPreviewProvider.dump(prefix, writer);
         mStateManager.dump(prefix, writer);
         mPopupDataProvider.dump(prefix, writer);
+        LauncherAppState.getInstance(this).getWidgetCache().dump(prefix, writer);
+        if (Utilities.ATLEAST_P) {
+            LabelLayoutCache.INSTANCE.get(this).dump(prefix, writer);
+        }
 
         try {
             FileLog.flushAll(writer);
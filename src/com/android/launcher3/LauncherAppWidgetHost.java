@@ -26,7 +26,10 @@ import android.content.ActivityNotFoundException;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.widget.RemoteViews;
 import android.widget.Toast;
 
 import com.android.launcher3.model.WidgetsModel;
@@ -37,7 +40,9 @@ import com.android.launcher3.widget.LauncherAppWidgetHostView;
 import com.android.launcher3.widget.PendingAppWidgetHostView;
 import com.android.launcher3.widget.custom.CustomWidgetManager;
 
+import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.function.IntConsumer;
 
 
@@ -58,6 +63,15 @@ public class LauncherAppWidgetHost extends AppWidgetHost {
     private final SparseArray<LauncherAppWidgetHostView> mViews = new SparseArray<>();
     private final SparseArray<PendingAppWidgetHostView> mPendingViews = new SparseArray<>();
 
+    // Widgets which are not on a visible workspace page, and their latest held back update
+    private final SparseBooleanArray mOffScreenWidgets = new SparseBooleanArray();
+    private final SparseArray<RemoteViews> mDeferredUpdates = new SparseArray<>();
+    private int mDeferredUpdateCount;
+    private int mSkippedUpdateCount;
+    // Main thread time spent applying held back updates once their widget is visible
+    private int mFlushedUpdateCount;
+    private long mFlushedUpdateNanos;
+
     private final Context mContext;
     private int mFlags = FLAG_RESUMED;
 
@@ -86,6 +100,7 @@ public class LauncherAppWidgetHost extends AppWidgetHost {
             view = new LauncherAppWidgetHostView(context);
         }
         mViews.put(appWidgetId, view);
+        clearVisibilityState(appWidgetId);
         return view;
     }
 
@@ -215,6 +230,7 @@ public class LauncherAppWidgetHost extends AppWidgetHost {
             DeferredAppWidgetHostView view = new DeferredAppWidgetHostView(context);
             view.setAppWidget(appWidgetId, appWidget);
             mViews.put(appWidgetId, view);
+            clearVisibilityState(appWidgetId);
             return view;
         } else {
             try {
@@ -238,6 +254,68 @@ public class LauncherAppWidgetHost extends AppWidgetHost {
         }
     }
 
+    /**
+     * Updates whether {@param view} is on a visible workspace page. Updates received while a
+     * widget is off-screen are held back, and only the latest one is applied once it becomes
+     * visible again.
+     */
+    public void setWidgetVisible(LauncherAppWidgetHostView view, boolean isVisible) {
+        int appWidgetId = view.getAppWidgetId();
+        if (!isVisible) {
+            mOffScreenWidgets.put(appWidgetId, true);
+            return;
+        }
+        if (mOffScreenWidgets.get(appWidgetId)) {
+            mOffScreenWidgets.delete(appWidgetId);
+            RemoteViews remoteViews = mDeferredUpdates.get(appWidgetId);
+            if (remoteViews != null) {
+                mDeferredUpdates.remove(appWidgetId);
+                long start = SystemClock.elapsedRealtimeNanos();
+                view.updateAppWidget(remoteViews);
+                mFlushedUpdateNanos += SystemClock.elapsedRealtimeNanos() - start;
+                mFlushedUpdateCount++;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the update should not be applied now as the widget is off-screen, in which
+     * case it is kept until the widget becomes visible.
+     */
+    public boolean deferUpdate(LauncherAppWidgetHostView view, RemoteViews remoteViews) {
+        int appWidgetId = view.getAppWidgetId();
+        if (!mOffScreenWidgets.get(appWidgetId)) {
+            return false;
+        }
+        mDeferredUpdateCount++;
+        if (mDeferredUpdates.get(appWidgetId) != null) {
+            // The previous update will never be applied
+            mSkippedUpdateCount++;
+        }
+        mDeferredUpdates.put(appWidgetId, remoteViews);
+        return true;
+    }
+
+    private void clearVisibilityState(int appWidgetId) {
+        mOffScreenWidgets.delete(appWidgetId);
+        mDeferredUpdates.remove(appWidgetId);
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "LauncherAppWidgetHost:");
+        writer.println(prefix + "  offScreenWidgets=" + mOffScreenWidgets.size()
+                + " pendingUpdates=" + mDeferredUpdates.size());
+        // Skipped updates would have cost about as much as the flushed ones
+        long avgFlushNanos = mFlushedUpdateCount == 0
+                ? 0 : mFlushedUpdateNanos / mFlushedUpdateCount;
+        writer.println(prefix + "  deferredUpdates=" + mDeferredUpdateCount
+                + " skippedUpdates=" + mSkippedUpdateCount
+                + " flushedUpdates=" + mFlushedUpdateCount
+                + " avgFlushUs=" + TimeUnit.NANOSECONDS.toMicros(avgFlushNanos)
+                + " estimatedSavedMs="
+                + TimeUnit.NANOSECONDS.toMillis(avgFlushNanos * mSkippedUpdateCount));
+    }
+
     /**
      * Called when the AppWidget provider for a AppWidget has been upgraded to a new apk.
      */
@@ -267,12 +345,15 @@ public class LauncherAppWidgetHost extends AppWidgetHost {
     public void deleteAppWidgetId(int appWidgetId) {
         super.deleteAppWidgetId(appWidgetId);
         mViews.remove(appWidgetId);
+        clearVisibilityState(appWidgetId);
     }
 
     @Override
     public void clearViews() {
         super.clearViews();
         mViews.clear();
+        mOffScreenWidgets.clear();
+        mDeferredUpdates.clear();
     }
 
     public void startBindFlow(BaseActivity activity,
@@ -27,6 +27,8 @@ public class LauncherFiles {
 
     public static final String WIDGET_PREVIEWS_DB = "widgetpreviews.db";
     public static final String APP_ICONS_DB = "app_icons.db";
+    // Stored in the cache directory
+    public static final String WIDGET_PREVIEWS_STORE = "widget_previews.dat";
 
     public static final List<String> ALL_FILES = Collections.unmodifiableList(Arrays.asList(
             LAUNCHER_DB,
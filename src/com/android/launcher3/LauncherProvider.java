@@ -20,6 +20,7 @@ import static com.android.launcher3.config.FeatureFlags.MULTI_DB_GRID_MIRATION_A
 import static com.android.launcher3.provider.LauncherDbUtils.copyTable;
 import static com.android.launcher3.provider.LauncherDbUtils.dropTable;
 import static com.android.launcher3.provider.LauncherDbUtils.tableExists;
+import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
 
 import android.annotation.TargetApi;
 import android.app.backup.BackupManager;
@@ -65,6 +66,7 @@ import com.android.launcher3.pm.UserCache;
 import com.android.launcher3.provider.LauncherDbUtils;
 import com.android.launcher3.provider.LauncherDbUtils.SQLiteTransaction;
 import com.android.launcher3.provider.RestoreDbTask;
+import com.android.launcher3.provider.SQLiteStatementCache;
 import com.android.launcher3.util.IOUtils;
 import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.IntSet;
@@ -84,6 +86,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Locale;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 
 public class LauncherProvider extends ContentProvider {
@@ -109,6 +112,8 @@ public class LauncherProvider extends ContentProvider {
 
     private long mLastRestoreTimestamp = 0L;
 
+    private final AtomicBoolean mCheckpointScheduled = new AtomicBoolean();
+
     /**
      * $ adb shell dumpsys activity provider com.android.launcher3
      */
@@ -119,6 +124,10 @@ public class LauncherProvider extends ContentProvider {
             return;
         }
         appState.getModel().dumpState("", fd, writer, args);
+        DatabaseHelper helper = mOpenHelper;
+        if (helper != null) {
+            helper.mStatementCache.dump("", writer);
+        }
     }
 
     @Override
@@ -194,7 +203,7 @@ public class LauncherProvider extends ContentProvider {
     }
 
     @Thunk static int dbInsertAndCheck(DatabaseHelper helper,
-            SQLiteDatabase db, String table, String nullColumnHack, ContentValues values) {
+            SQLiteDatabase db, String table, ContentValues values) {
         if (values == null) {
             throw new RuntimeException("Error: attempting to insert null values");
         }
@@ -202,7 +211,24 @@ public class LauncherProvider extends ContentProvider {
             throw new RuntimeException("Error: attempting to add item without specifying an id");
         }
         helper.checkId(values);
-        return (int) db.insert(table, nullColumnHack, values);
+        return (int) helper.mStatementCache.insert(db, table, values);
+    }
+
+    /**
+     * Checkpoints the write-ahead log once the model thread is idle, so that it does not keep
+     * growing between the automatic checkpoints.
+     */
+    private void scheduleCheckpoint() {
+        if (mCheckpointScheduled.compareAndSet(false, true)) {
+            MODEL_EXECUTOR.getLooper().getQueue().addIdleHandler(() -> {
+                mCheckpointScheduled.set(false);
+                DatabaseHelper helper = mOpenHelper;
+                if (helper != null) {
+                    helper.checkpoint();
+                }
+                return false;
+            });
+        }
     }
 
     private void reloadLauncherIfExternal() {
@@ -228,9 +254,10 @@ public class LauncherProvider extends ContentProvider {
 
         SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         addModifiedTime(initialValues);
-        final int rowId = dbInsertAndCheck(mOpenHelper, db, args.table, null, initialValues);
+        final int rowId = dbInsertAndCheck(mOpenHelper, db, args.table, initialValues);
         if (rowId < 0) return null;
         onAddOrDeleteOp(db);
+        scheduleCheckpoint();
 
         uri = ContentUris.withAppendedId(uri, rowId);
         reloadLauncherIfExternal();
@@ -284,13 +311,14 @@ public class LauncherProvider extends ContentProvider {
             int numValues = values.length;
             for (int i = 0; i < numValues; i++) {
                 addModifiedTime(values[i]);
-                if (dbInsertAndCheck(mOpenHelper, db, args.table, null, values[i]) < 0) {
+                if (dbInsertAndCheck(mOpenHelper, db, args.table, values[i]) < 0) {
                     return 0;
                 }
             }
             onAddOrDeleteOp(db);
             t.commit();
         }
+        scheduleCheckpoint();
 
         reloadLauncherIfExternal();
         return values.length;
@@ -318,6 +346,7 @@ public class LauncherProvider extends ContentProvider {
             }
 
             t.commit();
+            scheduleCheckpoint();
             reloadLauncherIfExternal();
             return results;
         }
@@ -337,6 +366,7 @@ public class LauncherProvider extends ContentProvider {
         int count = db.delete(args.table, args.where, args.args);
         if (count > 0) {
             onAddOrDeleteOp(db);
+            scheduleCheckpoint();
             reloadLauncherIfExternal();
         }
         return count;
@@ -349,7 +379,10 @@ public class LauncherProvider extends ContentProvider {
 
         addModifiedTime(values);
         SQLiteDatabase db = mOpenHelper.getWritableDatabase();
-        int count = db.update(args.table, values, args.where, args.args);
+        int count = args.id >= 0
+                ? mOpenHelper.mStatementCache.update(db, args.table, values, args.id)
+                : db.update(args.table, values, args.where, args.args);
+        scheduleCheckpoint();
         reloadLauncherIfExternal();
         return count;
     }
@@ -403,6 +436,10 @@ public class LauncherProvider extends ContentProvider {
                 mOpenHelper.removeGhostWidgets(mOpenHelper.getWritableDatabase());
                 return null;
             }
+            case LauncherSettings.Settings.METHOD_RUN_DB_MAINTENANCE: {
+                FileLog.d(TAG, LauncherDbUtils.runMaintenance(mOpenHelper.getWritableDatabase()));
+                return null;
+            }
             case LauncherSettings.Settings.METHOD_NEW_TRANSACTION: {
                 Bundle result = new Bundle();
                 result.putBinder(LauncherSettings.Settings.EXTRA_VALUE,
@@ -643,6 +680,8 @@ public class LauncherProvider extends ContentProvider {
         private boolean mBackupTableExists;
         private boolean mHotseatRestoreTableExists;
 
+        private final SQLiteStatementCache mStatementCache = new SQLiteStatementCache();
+
         static DatabaseHelper createDatabaseHelper(Context context, boolean forMigration) {
             return createDatabaseHelper(context, null, forMigration);
         }
@@ -680,6 +719,29 @@ public class LauncherProvider extends ContentProvider {
             super(context, dbName, SCHEMA_VERSION);
             mContext = context;
             mForMigration = forMigration;
+            // Lets the loader read while items are being written. Existing databases are
+            // switched to WAL by SQLite the next time they are opened, and the -wal file is
+            // included in the backup along with the database.
+            setWriteAheadLoggingEnabled(true);
+        }
+
+        @Override
+        public synchronized void close() {
+            mStatementCache.clear();
+            super.close();
+        }
+
+        /**
+         * Copies the committed pages from the write-ahead log back to the database, without
+         * waiting for readers.
+         */
+        public void checkpoint() {
+            try (Cursor c = getWritableDatabase().rawQuery(
+                    "PRAGMA wal_checkpoint(PASSIVE)", null)) {
+                c.moveToNext();
+            } catch (SQLException e) {
+                Log.e(TAG, "Failed to checkpoint " + getDatabaseName(), e);
+            }
         }
 
         protected void initIds() {
@@ -1044,7 +1106,7 @@ public class LauncherProvider extends ContentProvider {
 
         @Override
         public int insertAndCheck(SQLiteDatabase db, ContentValues values) {
-            return dbInsertAndCheck(this, db, Favorites.TABLE_NAME, null, values);
+            return dbInsertAndCheck(this, db, Favorites.TABLE_NAME, values);
         }
 
         public void checkId(ContentValues values) {
@@ -1110,19 +1172,23 @@ public class LauncherProvider extends ContentProvider {
         public final String table;
         public final String where;
         public final String[] args;
+        // The item id if the uri points to a single item, -1 otherwise
+        public final long id;
 
         SqlArguments(Uri url, String where, String[] args) {
             if (url.getPathSegments().size() == 1) {
                 this.table = url.getPathSegments().get(0);
                 this.where = where;
                 this.args = args;
+                this.id = -1;
             } else if (url.getPathSegments().size() != 2) {
                 throw new IllegalArgumentException("Invalid URI: " + url);
             } else if (!TextUtils.isEmpty(where)) {
                 throw new UnsupportedOperationException("WHERE clause not supported: " + url);
             } else {
                 this.table = url.getPathSegments().get(0);
-                this.where = "_id=" + ContentUris.parseId(url);
+                this.id = ContentUris.parseId(url);
+                this.where = "_id=" + id;
                 this.args = null;
             }
         }
@@ -1132,6 +1198,7 @@ public class LauncherProvider extends ContentProvider {
                 table = url.getPathSegments().get(0);
                 where = null;
                 args = null;
+                id = -1;
             } else {
                 throw new IllegalArgumentException("Invalid URI: " + url);
             }
@@ -343,6 +343,8 @@ public class LauncherSettings {
 
         public static final String METHOD_REMOVE_GHOST_WIDGETS = "remove_ghost_widgets";
 
+        public static final String METHOD_RUN_DB_MAINTENANCE = "run_db_maintenance";
+
         public static final String METHOD_NEW_TRANSACTION = "new_db_transaction";
 
         public static final String METHOD_REFRESH_BACKUP_TABLE = "refresh_backup_table";
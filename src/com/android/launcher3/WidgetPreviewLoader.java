@@ -1,5 +1,6 @@
 package com.android.launcher3;
 
+import static com.android.launcher3.config.FeatureFlags.ENABLE_MAPPED_WIDGET_PREVIEWS;
 import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
 import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
 
@@ -25,7 +26,6 @@ import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
-import android.os.AsyncTask;
 import android.os.CancellationSignal;
 import android.os.Process;
 import android.os.UserHandle;
@@ -44,21 +44,23 @@ import com.android.launcher3.icons.ShadowGenerator;
 import com.android.launcher3.model.WidgetItem;
 import com.android.launcher3.pm.ShortcutConfigActivityInfo;
 import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.provider.LauncherDbUtils;
+import com.android.launcher3.util.BitmapPool;
 import com.android.launcher3.util.ComponentKey;
-import com.android.launcher3.util.Executors;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.Preconditions;
 import com.android.launcher3.util.SQLiteCacheHelper;
 import com.android.launcher3.util.Thunk;
+import com.android.launcher3.widget.MappedPreviewStore;
 import com.android.launcher3.widget.WidgetCell;
 import com.android.launcher3.widget.WidgetManagerHelper;
+import com.android.launcher3.widget.WidgetPreviewScheduler;
 
+import java.io.File;
+import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Set;
-import java.util.WeakHashMap;
 import java.util.concurrent.ExecutionException;
 
 public class WidgetPreviewLoader {
@@ -66,20 +68,32 @@ public class WidgetPreviewLoader {
     private static final String TAG = "WidgetPreviewLoader";
     private static final boolean DEBUG = false;
 
+    private static final long MAX_MAPPED_STORE_SIZE = 64 * 1024 * 1024;
+
+    // Keeps the number of arguments of a delete statement well under the SQLite limit
+    private static final int MAX_PACKAGES_PER_DELETE = 200;
+
     private final HashMap<String, long[]> mPackageVersions = new HashMap<>();
 
+    // Packages whose previews are pending removal, guarded by itself
+    private final HashSet<PackageUserKey> mDirtyPackages = new HashSet<>();
+    private boolean mDirtyPackagesCleanupScheduled;
+
+    // Only accessed on the model thread
+    private ArrayList<ComponentKey> mFullSweepList;
+
     /**
-     * Weak reference objects, do not prevent their referents from being made finalizable,
-     * finalized, and then reclaimed.
-     * Note: synchronized block used for this variable is expensive and the block should always
-     * be posted to a background thread.
+     * Preview bitmaps which are no longer displayed, reused for new previews.
      */
-    @Thunk final Set<Bitmap> mUnusedBitmaps = Collections.newSetFromMap(new WeakHashMap<>());
+    @Thunk final BitmapPool mBitmapPool =
+            new BitmapPool(Runtime.getRuntime().maxMemory() / 16);
 
     private final Context mContext;
     private final IconCache mIconCache;
     private final UserCache mUserCache;
     private final CacheDb mDb;
+    private final WidgetPreviewScheduler mScheduler = new WidgetPreviewScheduler();
+    @Nullable private final MappedPreviewStore mMappedStore;
 
     private final UserHandle mMyUser = Process.myUserHandle();
     private final ArrayMap<UserHandle, Bitmap> mUserBadges = new ArrayMap<>();
@@ -89,6 +103,11 @@ public class WidgetPreviewLoader {
         mIconCache = iconCache;
         mUserCache = UserCache.INSTANCE.get(context);
         mDb = new CacheDb(context);
+        mMappedStore = ENABLE_MAPPED_WIDGET_PREVIEWS.get()
+                ? new MappedPreviewStore(
+                        new File(context.getCacheDir(), LauncherFiles.WIDGET_PREVIEWS_STORE),
+                        MAX_MAPPED_STORE_SIZE)
+                : null;
     }
 
     /**
@@ -137,7 +156,7 @@ public class WidgetPreviewLoader {
     }
 
     /**
-     * Generates the widget preview on {@link AsyncTask#THREAD_POOL_EXECUTOR}. Must be
+     * Generates the widget preview on the {@link WidgetPreviewScheduler}. Must be
      * called on UI thread
      *
      * @return a request id which can be used to cancel the request.
@@ -148,15 +167,32 @@ public class WidgetPreviewLoader {
         WidgetCacheKey key = new WidgetCacheKey(item.componentName, item.user, size);
 
         PreviewLoadTask task = new PreviewLoadTask(key, item, previewWidth, previewHeight, caller);
-        task.executeOnExecutor(Executors.THREAD_POOL_EXECUTOR);
+        mScheduler.schedule(task);
 
         CancellationSignal signal = new CancellationSignal();
         signal.setOnCancelListener(task);
         return signal;
     }
 
+    public WidgetPreviewScheduler getScheduler() {
+        return mScheduler;
+    }
+
     public void refresh() {
         mDb.clear();
+        mBitmapPool.clear();
+        if (mMappedStore != null) {
+            MODEL_EXECUTOR.execute(mMappedStore::clear);
+        }
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "WidgetPreviewLoader:");
+        mBitmapPool.dump(prefix + "  ", writer);
+        mScheduler.dump(prefix + "  ", writer);
+        if (mMappedStore != null) {
+            mMappedStore.dump(prefix + "  ", writer);
+        }
     }
 
     /**
@@ -164,7 +200,7 @@ public class WidgetPreviewLoader {
      * sizes (landscape vs portrait).
      */
     private static class CacheDb extends SQLiteCacheHelper {
-        private static final int DB_VERSION = 9;
+        private static final int DB_VERSION = 10;
 
         private static final String TABLE_NAME = "shortcut_and_widget_previews";
         private static final String COLUMN_COMPONENT = "componentName";
@@ -191,10 +227,20 @@ public class WidgetPreviewLoader {
                     COLUMN_PREVIEW_BITMAP + " BLOB, " +
                     "PRIMARY KEY (" + COLUMN_COMPONENT + ", " + COLUMN_USER + ", " + COLUMN_SIZE + ") " +
                     ");");
+            // Previews are removed by package
+            database.execSQL("CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_package ON "
+                    + TABLE_NAME + " (" + COLUMN_PACKAGE + ", " + COLUMN_USER + ");");
         }
     }
 
     @Thunk void writeToDb(WidgetCacheKey key, long[] versions, Bitmap preview) {
+        if (mMappedStore != null) {
+            mMappedStore.write(key.componentName.flattenToShortString(),
+                    key.componentName.getPackageName(),
+                    mUserCache.getSerialNumberForUser(key.user), key.size,
+                    versions[0], versions[1], preview);
+            return;
+        }
         ContentValues values = new ContentValues();
         values.put(CacheDb.COLUMN_COMPONENT, key.componentName.flattenToShortString());
         values.put(CacheDb.COLUMN_USER, mUserCache.getSerialNumberForUser(key.user));
@@ -206,25 +252,73 @@ public class WidgetPreviewLoader {
         mDb.insertOrReplace(values);
     }
 
+    /**
+     * Removes the previews of the package. Removals are batched and run on the model thread.
+     */
     public void removePackage(String packageName, UserHandle user) {
-        removePackage(packageName, user, mUserCache.getSerialNumberForUser(user));
-    }
-
-    private void removePackage(String packageName, UserHandle user, long userSerial) {
         synchronized(mPackageVersions) {
             mPackageVersions.remove(packageName);
         }
 
-        mDb.delete(
-                CacheDb.COLUMN_PACKAGE + " = ? AND " + CacheDb.COLUMN_USER + " = ?",
-                new String[]{packageName, Long.toString(userSerial)});
+        synchronized (mDirtyPackages) {
+            mDirtyPackages.add(new PackageUserKey(packageName, user));
+            if (mDirtyPackagesCleanupScheduled) {
+                return;
+            }
+            mDirtyPackagesCleanupScheduled = true;
+        }
+        MODEL_EXECUTOR.execute(this::removeDirtyPackages);
+    }
+
+    /**
+     * Deletes the previews of all the packages passed to {@link #removePackage}, using a single
+     * statement for up to {@link #MAX_PACKAGES_PER_DELETE} packages.
+     */
+    private void removeDirtyPackages() {
+        ArrayList<PackageUserKey> packages;
+        synchronized (mDirtyPackages) {
+            packages = new ArrayList<>(mDirtyPackages);
+            mDirtyPackages.clear();
+            mDirtyPackagesCleanupScheduled = false;
+        }
+
+        if (mMappedStore != null) {
+            for (PackageUserKey key : packages) {
+                mMappedStore.removePackage(key.mPackageName,
+                        mUserCache.getSerialNumberForUser(key.mUser));
+            }
+            return;
+        }
+        for (int start = 0; start < packages.size(); start += MAX_PACKAGES_PER_DELETE) {
+            int end = Math.min(packages.size(), start + MAX_PACKAGES_PER_DELETE);
+            StringBuilder where = new StringBuilder();
+            String[] args = new String[2 * (end - start)];
+            for (int i = start; i < end; i++) {
+                if (i > start) {
+                    where.append(" OR ");
+                }
+                where.append("(" + CacheDb.COLUMN_PACKAGE + " = ? AND "
+                        + CacheDb.COLUMN_USER + " = ?)");
+                PackageUserKey key = packages.get(i);
+                args[2 * (i - start)] = key.mPackageName;
+                args[2 * (i - start) + 1] =
+                        Long.toString(mUserCache.getSerialNumberForUser(key.mUser));
+            }
+            mDb.delete(where.toString(), args);
+        }
     }
 
     /**
      * Updates the persistent DB:
      *   1. Any preview generated for an old package version is removed
      *   2. Any preview for an absent package is removed
-     * This ensures that we remove entries for packages which changed while the launcher was dead.
+     *
+     * Previews of packages which change while launcher is running are removed as the package
+     * events arrive, and previews are checked against the package version when they are read.
+     * So when the list contains all previews, it is only kept for
+     * {@link #sweepAllObsoletePreviews()}, which the idle maintenance runs to remove entries for
+     * packages which changed while the launcher was dead. Lists for a single package update the
+     * kept list, so that it still matches the installed widgets when the maintenance runs.
      *
      * @param packageUser if provided, specifies that list only contains previews for the
      *                    given package/user, otherwise the list contains all previews
@@ -232,7 +326,52 @@ public class WidgetPreviewLoader {
     public void removeObsoletePreviews(ArrayList<? extends ComponentKey> list,
             @Nullable PackageUserKey packageUser) {
         Preconditions.assertWorkerThread();
+        if (packageUser != null) {
+            if (mFullSweepList != null) {
+                mFullSweepList.removeIf(key -> key.user.equals(packageUser.mUser)
+                        && key.componentName.getPackageName().equals(packageUser.mPackageName));
+                mFullSweepList.addAll(list);
+            }
+            sweepObsoletePreviews(list, packageUser);
+            return;
+        }
 
+        mFullSweepList = new ArrayList<>(list);
+    }
+
+    /**
+     * Removes the previews which are not in the last complete list passed to
+     * {@link #removeObsoletePreviews}, if any.
+     */
+    public void sweepAllObsoletePreviews() {
+        Preconditions.assertWorkerThread();
+        if (mFullSweepList != null) {
+            sweepObsoletePreviews(mFullSweepList, null);
+        }
+    }
+
+    /**
+     * Checks the integrity of the previews DB and compacts it. Preview loads are paused and the
+     * DB connection is closed meanwhile, so that the VACUUM does not run next to other
+     * connections. The other DB accesses happen on the model thread, where this must be called.
+     *
+     * @return a summary of the maintenance, for logging
+     */
+    public String runDbMaintenance() {
+        Preconditions.assertWorkerThread();
+        mScheduler.pause();
+        try {
+            // SQLiteCacheHelper does not expose its connection, close it instead. It is opened
+            // again on the next access.
+            mDb.close();
+            return LauncherDbUtils.runMaintenance(mContext, LauncherFiles.WIDGET_PREVIEWS_DB);
+        } finally {
+            mScheduler.resume();
+        }
+    }
+
+    private void sweepObsoletePreviews(ArrayList<? extends ComponentKey> list,
+            @Nullable PackageUserKey packageUser) {
         LongSparseArray<HashSet<String>> validPackages = new LongSparseArray<>();
 
         for (ComponentKey key : list) {
@@ -250,45 +389,25 @@ public class WidgetPreviewLoader {
                 : mUserCache.getSerialNumberForUser(packageUser.mUser);
         Cursor c = null;
         try {
-            c = mDb.query(
-                    new String[]{CacheDb.COLUMN_USER, CacheDb.COLUMN_PACKAGE,
-                            CacheDb.COLUMN_LAST_UPDATED, CacheDb.COLUMN_VERSION},
-                    null, null);
-            while (c.moveToNext()) {
-                long userId = c.getLong(0);
-                String pkg = c.getString(1);
-                long lastUpdated = c.getLong(2);
-                long version = c.getLong(3);
-
-                if (packageUser != null && (!pkg.equals(packageUser.mPackageName)
-                        || userId != passedUserId)) {
-                    // This preview is associated with a different package/user, no need to remove.
-                    continue;
-                }
-
-                HashSet<String> packages = validPackages.get(userId);
-                if (packages != null && packages.contains(pkg)) {
-                    long[] versions = getPackageVersion(pkg);
-                    if (versions[0] == version && versions[1] == lastUpdated) {
-                        // Every thing checks out
-                        continue;
-                    }
-                }
-
-                // We need to delete this package.
-                packages = packagesToDelete.get(userId);
-                if (packages == null) {
-                    packages = new HashSet<>();
-                    packagesToDelete.put(userId, packages);
+            if (mMappedStore != null) {
+                for (MappedPreviewStore.Entry entry : mMappedStore.getEntries()) {
+                    checkObsoletePreview(entry.userSerial, entry.packageName, entry.lastUpdated,
+                            entry.version, packageUser, passedUserId, validPackages,
+                            packagesToDelete);
                 }
-                packages.add(pkg);
-            }
-
-            for (int i = 0; i < packagesToDelete.size(); i++) {
-                long userId = packagesToDelete.keyAt(i);
-                UserHandle user = mUserCache.getUserForSerialNumber(userId);
-                for (String pkg : packagesToDelete.valueAt(i)) {
-                    removePackage(pkg, user, userId);
+            } else {
+                String[] columns = new String[]{CacheDb.COLUMN_USER, CacheDb.COLUMN_PACKAGE,
+                        CacheDb.COLUMN_LAST_UPDATED, CacheDb.COLUMN_VERSION};
+                c = packageUser == null
+                        ? mDb.query(columns, null, null)
+                        : mDb.query(columns,
+                                CacheDb.COLUMN_PACKAGE + " = ? AND " + CacheDb.COLUMN_USER + " = ?",
+                                new String[]{packageUser.mPackageName,
+                                        Long.toString(passedUserId)});
+                while (c.moveToNext()) {
+                    checkObsoletePreview(c.getLong(0), c.getString(1), c.getLong(2),
+                            c.getLong(3), packageUser, passedUserId, validPackages,
+                            packagesToDelete);
                 }
             }
         } catch (SQLException e) {
@@ -298,16 +417,70 @@ public class WidgetPreviewLoader {
                 c.close();
             }
         }
+
+        for (int i = 0; i < packagesToDelete.size(); i++) {
+            UserHandle user = mUserCache.getUserForSerialNumber(packagesToDelete.keyAt(i));
+            for (String pkg : packagesToDelete.valueAt(i)) {
+                synchronized (mPackageVersions) {
+                    mPackageVersions.remove(pkg);
+                }
+                synchronized (mDirtyPackages) {
+                    mDirtyPackages.add(new PackageUserKey(pkg, user));
+                }
+            }
+        }
+        removeDirtyPackages();
+    }
+
+    /**
+     * Adds the package of the preview to {@param packagesToDelete} if the preview is for an old
+     * package version or an absent package.
+     */
+    private void checkObsoletePreview(long userId, String pkg, long lastUpdated, long version,
+            @Nullable PackageUserKey packageUser, long passedUserId,
+            LongSparseArray<HashSet<String>> validPackages,
+            LongSparseArray<HashSet<String>> packagesToDelete) {
+        if (packageUser != null && (!pkg.equals(packageUser.mPackageName)
+                || userId != passedUserId)) {
+            // This preview is associated with a different package/user, no need to remove.
+            return;
+        }
+
+        HashSet<String> packages = validPackages.get(userId);
+        if (packages != null && packages.contains(pkg)) {
+            long[] versions = getPackageVersion(pkg);
+            if (versions[0] == version && versions[1] == lastUpdated) {
+                // Every thing checks out
+                return;
+            }
+        }
+
+        // We need to delete this package.
+        packages = packagesToDelete.get(userId);
+        if (packages == null) {
+            packages = new HashSet<>();
+            packagesToDelete.put(userId, packages);
+        }
+        packages.add(pkg);
     }
 
     /**
      * Reads the preview bitmap from the DB or null if the preview is not in the DB.
      */
-    @Thunk Bitmap readFromDb(WidgetCacheKey key, Bitmap recycle, PreviewLoadTask loadTask) {
+    @Thunk Bitmap readFromDb(WidgetCacheKey key, PreviewLoadTask loadTask) {
+        // Previews of a package which changed while launcher was dead are not removed until the
+        // next full sweep, ignore them.
+        long[] versions = getPackageVersion(key.componentName.getPackageName());
+        if (mMappedStore != null) {
+            return mMappedStore.read(key.componentName.flattenToShortString(),
+                    mUserCache.getSerialNumberForUser(key.user), key.size,
+                    versions[0], versions[1], mBitmapPool);
+        }
         Cursor cursor = null;
         try {
             cursor = mDb.query(
-                    new String[]{CacheDb.COLUMN_PREVIEW_BITMAP},
+                    new String[]{CacheDb.COLUMN_PREVIEW_BITMAP, CacheDb.COLUMN_VERSION,
+                            CacheDb.COLUMN_LAST_UPDATED},
                     CacheDb.COLUMN_COMPONENT + " = ? AND " + CacheDb.COLUMN_USER + " = ? AND "
                             + CacheDb.COLUMN_SIZE + " = ?",
                     new String[]{
@@ -319,15 +492,23 @@ public class WidgetPreviewLoader {
             if (loadTask.isCancelled()) {
                 return null;
             }
-            if (cursor.moveToNext()) {
+            if (cursor.moveToNext()
+                    && cursor.getLong(1) == versions[0] && cursor.getLong(2) == versions[1]) {
                 byte[] blob = cursor.getBlob(0);
+                // Decode the bounds first, so that a pooled bitmap of the exact size is reused.
                 BitmapFactory.Options opts = new BitmapFactory.Options();
-                opts.inBitmap = recycle;
+                opts.inJustDecodeBounds = true;
+                BitmapFactory.decodeByteArray(blob, 0, blob.length, opts);
+                if (opts.outWidth <= 0 || opts.outHeight <= 0 || loadTask.isCancelled()) {
+                    return null;
+                }
+                opts.inJustDecodeBounds = false;
+                opts.inMutable = true;
+                opts.inBitmap = mBitmapPool.getReusable(opts.outWidth, opts.outHeight);
                 try {
-                    if (!loadTask.isCancelled()) {
-                        return BitmapFactory.decodeByteArray(blob, 0, blob.length, opts);
-                    }
+                    return BitmapFactory.decodeByteArray(blob, 0, blob.length, opts);
                 } catch (Exception e) {
+                    mBitmapPool.put(opts.inBitmap);
                     return null;
                 }
             }
@@ -590,7 +771,7 @@ public class WidgetPreviewLoader {
         }
     }
 
-    public class PreviewLoadTask extends AsyncTask<Void, Void, Bitmap>
+    public class PreviewLoadTask extends WidgetPreviewScheduler.Job
             implements CancellationSignal.OnCancelListener {
         @Thunk final WidgetCacheKey mKey;
         private final WidgetItem mInfo;
@@ -605,6 +786,7 @@ public class WidgetPreviewLoader {
 
         PreviewLoadTask(WidgetCacheKey key, WidgetItem info, int previewWidth,
                 int previewHeight, WidgetCell caller) {
+            super(caller.getRowIndex());
             mKey = key;
             mInfo = info;
             mPreviewHeight = previewHeight;
@@ -618,37 +800,27 @@ public class WidgetPreviewLoader {
         }
 
         @Override
-        protected Bitmap doInBackground(Void... params) {
-            Bitmap unusedBitmap = null;
+        public void run() {
+            Bitmap preview = doInBackground();
+            MAIN_EXECUTOR.execute(() -> {
+                if (isCancelled()) {
+                    onCancelled(preview);
+                } else {
+                    onPostExecute(preview);
+                }
+            });
+        }
 
+        private Bitmap doInBackground() {
             // If already cancelled before this gets to run in the background, then return early
             if (isCancelled()) {
                 return null;
             }
-            synchronized (mUnusedBitmaps) {
-                // Check if we can re-use a bitmap
-                for (Bitmap candidate : mUnusedBitmaps) {
-                    if (candidate != null && candidate.isMutable() &&
-                            candidate.getWidth() == mPreviewWidth &&
-                            candidate.getHeight() == mPreviewHeight) {
-                        unusedBitmap = candidate;
-                        mUnusedBitmaps.remove(unusedBitmap);
-                        break;
-                    }
-                }
-            }
-
-            // creating a bitmap is expensive. Do not do this inside synchronized block.
-            if (unusedBitmap == null) {
-                unusedBitmap = Bitmap.createBitmap(mPreviewWidth, mPreviewHeight, Config.ARGB_8888);
-            }
-            // If cancelled now, don't bother reading the preview from the DB
-            if (isCancelled()) {
-                return unusedBitmap;
-            }
-            Bitmap preview = readFromDb(mKey, unusedBitmap, this);
+            Bitmap preview = readFromDb(mKey, this);
             // Only consider generating the preview if we have not cancelled the task already
             if (!isCancelled() && preview == null) {
+                Bitmap unusedBitmap = mBitmapPool.get(mPreviewWidth, mPreviewHeight);
+
                 // Fetch the version info before we generate the preview, so that, in-case the
                 // app was updated while we are generating the preview, we use the old version info,
                 // which would gets re-written next time.
@@ -666,9 +838,9 @@ public class WidgetPreviewLoader {
             return preview;
         }
 
-        @Override
-        protected void onPostExecute(final Bitmap preview) {
+        private void onPostExecute(final Bitmap preview) {
             mCaller.applyPreview(preview);
+            mScheduler.onPreviewApplied(this);
 
             // Write the generated preview to the DB in the worker thread
             if (mVersions != null) {
@@ -683,9 +855,7 @@ public class WidgetPreviewLoader {
                         } else {
                             // If we've already cancelled, then skip writing the bitmap to the DB
                             // and manually add the bitmap back to the recycled set
-                            synchronized (mUnusedBitmaps) {
-                                mUnusedBitmaps.add(preview);
-                            }
+                            mBitmapPool.put(preview);
                         }
                     }
                 });
@@ -696,26 +866,16 @@ public class WidgetPreviewLoader {
             }
         }
 
-        @Override
-        protected void onCancelled(final Bitmap preview) {
+        private void onCancelled(final Bitmap preview) {
             // If we've cancelled while the task is running, then can return the bitmap to the
             // recycled set immediately. Otherwise, it will be recycled after the preview is written
             // to disk.
-            if (preview != null) {
-                MODEL_EXECUTOR.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        synchronized (mUnusedBitmaps) {
-                            mUnusedBitmaps.add(preview);
-                        }
-                    }
-                });
-            }
+            mBitmapPool.put(preview);
         }
 
         @Override
         public void onCancel() {
-            cancel(true);
+            mScheduler.cancel(this);
 
             // This only handles the case where the PreviewLoadTask is cancelled after the task has
             // successfully completed (including having written to disk when necessary).  In the
@@ -723,14 +883,11 @@ public class WidgetPreviewLoader {
             // in the tasks's onCancelled() call, and if cancelled while the task is writing to
             // disk, it will be cancelled in the task's onPostExecute() call.
             if (mBitmapToRecycle != null) {
-                MODEL_EXECUTOR.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        synchronized (mUnusedBitmaps) {
-                            mUnusedBitmaps.add(mBitmapToRecycle);
-                        }
-                        mBitmapToRecycle = null;
-                    }
+                // Posted to the thread writing previews to the DB, so that the bitmap is not
+                // reused while it is being written.
+                MODEL_EXECUTOR.post(() -> {
+                    mBitmapPool.put(mBitmapToRecycle);
+                    mBitmapToRecycle = null;
                 });
             }
         }
@@ -44,12 +44,14 @@ import android.appwidget.AppWidgetProviderInfo;
 import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
+import android.graphics.Picture;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.os.Handler;
 import android.os.Message;
 import android.os.Parcelable;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.text.TextUtils;
 import android.util.AttributeSet;
@@ -148,6 +150,7 @@ public class Workspace extends PagedView<WorkspacePageIndicator>
 
     @Thunk final IntSparseArrayMap<CellLayout> mWorkspaceScreens = new IntSparseArrayMap<>();
     @Thunk final IntArray mScreenOrder = new IntArray();
+    private final WorkspacePageVirtualizer mPageVirtualizer;
 
     @Thunk boolean mDeferRemoveExtraEmptyScreen = false;
 
@@ -277,6 +280,7 @@ public class Workspace extends PagedView<WorkspacePageIndicator>
 
         mLauncher = Launcher.getLauncher(context);
         mStateTransitionAnimation = new WorkspaceStateTransitionAnimation(mLauncher, this);
+        mPageVirtualizer = new WorkspacePageVirtualizer(mLauncher, this);
         mWallpaperManager = WallpaperManager.getInstance(context);
 
         mWallpaperOffset = new WallpaperOffsetInterpolator(this);
@@ -368,12 +372,22 @@ public class Workspace extends PagedView<WorkspacePageIndicator>
         return r;
     }
 
+    /**
+     * Returns the helper which drops the views of the pages far from the current page.
+     */
+    public WorkspacePageVirtualizer getPageVirtualizer() {
+        return mPageVirtualizer;
+    }
+
     @Override
     public void onDragStart(DragObject dragObject, DragOptions options) {
         if (ENFORCE_DRAG_EVENT_ORDER) {
             enforceDragParity("onDragStart", 0, 0);
         }
 
+        // Any page can become the drop target, and drops rely on the occupancy of its cells
+        mPageVirtualizer.hydrateAll();
+
         if (mDragInfo != null && mDragInfo.cell != null) {
             CellLayout layout = (CellLayout) mDragInfo.cell.getParent().getParent();
             layout.markCellsAsUnoccupiedForView(mDragInfo.cell);
@@ -383,8 +397,11 @@ public class Workspace extends PagedView<WorkspacePageIndicator>
             if (dragObject.dragView != null) {
                 Bitmap preview = dragObject.dragView.getPreviewBitmap();
 
-                // The outline is used to visualize where the item will land if dropped
-                mOutlineProvider.generateDragOutline(preview);
+                // The outline is used to visualize where the item will land if dropped. If the
+                // preview is still rendering, the outline is generated once it is ready.
+                if (preview != null) {
+                    mOutlineProvider.generateDragOutline(preview);
+                }
             }
         }
 
@@ -536,6 +553,7 @@ public class Workspace extends PagedView<WorkspacePageIndicator>
         removeAllViews();
         mScreenOrder.clear();
         mWorkspaceScreens.clear();
+        mPageVirtualizer.clear();
 
         // Remove any deferred refresh callbacks
         mLauncher.mHandler.removeCallbacksAndMessages(DeferredWidgetRefresh.class);
@@ -754,7 +772,8 @@ public class Workspace extends PagedView<WorkspacePageIndicator>
             CellLayout cl = mWorkspaceScreens.valueAt(i);
             // FIRST_SCREEN_ID can never be removed.
             if ((!FeatureFlags.QSB_ON_FIRST_SCREEN || id > FIRST_SCREEN_ID)
-                    && cl.getShortcutsAndWidgets().getChildCount() == 0) {
+                    && cl.getShortcutsAndWidgets().getChildCount() == 0
+                    && !mPageVirtualizer.isParked(id)) {
                 removeScreens.add(id);
             }
         }
@@ -888,6 +907,7 @@ public class Workspace extends PagedView<WorkspacePageIndicator>
             stripEmptyScreens();
             mStripScreensOnPageStopMoving = false;
         }
+        mPageVirtualizer.onPageSettled();
     }
 
     protected void onScrollInteractionBegin() {
@@ -1122,6 +1142,8 @@ public class Workspace extends PagedView<WorkspacePageIndicator>
     @Override
     protected void notifyPageSwitchListener(int prevPage) {
         super.notifyPageSwitchListener(prevPage);
+        mPageVirtualizer.onCurrentPageChanged(mCurrentPage);
+        updateWidgetsVisibility();
         if (prevPage != mCurrentPage) {
             int swipeDirection = (prevPage < mCurrentPage)
                     ? Action.Direction.RIGHT : Action.Direction.LEFT;
@@ -1260,6 +1282,7 @@ public class Workspace extends PagedView<WorkspacePageIndicator>
 
     private void updateChildrenLayersEnabled() {
         boolean enableChildrenLayers = mIsSwitchingState || isPageInTransition();
+        updateWidgetsVisibility();
 
         if (enableChildrenLayers != mChildrenLayersEnabled) {
             mChildrenLayersEnabled = enableChildrenLayers;
@@ -1274,6 +1297,41 @@ public class Workspace extends PagedView<WorkspacePageIndicator>
         }
     }
 
+    /**
+     * Tells the widget host which widgets are on a visible page, so that updates to the other
+     * widgets can be held back until they are scrolled into view. Also orders the pending widget
+     * inflations by their distance from the current page.
+     */
+    private void updateWidgetsVisibility() {
+        int pageCount = getPageCount();
+        if (pageCount == 0) {
+            return;
+        }
+        int currentPage = getNextPage();
+        int leftScreen = currentPage;
+        int rightScreen = currentPage;
+        if (mIsSwitchingState || isPageInTransition() || workspaceInModalState()) {
+            // Adjacent pages can be on screen while scrolling and in the multi-page states
+            leftScreen--;
+            rightScreen++;
+        }
+
+        LauncherAppWidgetHost host = mLauncher.getAppWidgetHost();
+        for (int i = 0; i < pageCount; i++) {
+            boolean isVisible = leftScreen <= i && i <= rightScreen;
+            ShortcutAndWidgetContainer container =
+                    ((CellLayout) getPageAt(i)).getShortcutsAndWidgets();
+            for (int j = container.getChildCount() - 1; j >= 0; j--) {
+                View child = container.getChildAt(j);
+                if (child instanceof LauncherAppWidgetHostView) {
+                    LauncherAppWidgetHostView widget = (LauncherAppWidgetHostView) child;
+                    host.setWidgetVisible(widget, isVisible);
+                    widget.setInflationPriority(Math.abs(i - currentPage));
+                }
+            }
+        }
+    }
+
     private void enableHwLayersOnVisiblePages() {
         if (mChildrenLayersEnabled) {
             final int screenCount = getChildCount();
@@ -1452,6 +1510,7 @@ public class Workspace extends PagedView<WorkspacePageIndicator>
      */
     public DragView beginDragShared(View child, DraggableView draggableView, DragSource source,
             ItemInfo dragObject, DragPreviewProvider previewProvider, DragOptions dragOptions) {
+        long startTime = SystemClock.elapsedRealtimeNanos();
 
         float iconScale = 1f;
         if (child instanceof BubbleTextView) {
@@ -1475,10 +1534,16 @@ public class Workspace extends PagedView<WorkspacePageIndicator>
             draggableView = (DraggableView) child;
         }
 
-        // The drag bitmap follows the touch point around on the screen
-        final Bitmap b = previewProvider.createDragBitmap();
+        // The drag bitmap follows the touch point around on the screen. When it is rendered off
+        // the UI thread, the recorded drawing is shown until the bitmap is ready.
+        final Picture placeholder = previewProvider.shouldRenderAsync()
+                ? previewProvider.recordDragPicture() : null;
+        final Bitmap b = placeholder == null ? previewProvider.createDragBitmap() : null;
         int halfPadding = previewProvider.previewPadding / 2;
-        float scale = previewProvider.getScaleAndPosition(b, mTempXY);
+        float scale = b != null
+                ? previewProvider.getScaleAndPosition(b, mTempXY)
+                : previewProvider.getScaleAndPosition(
+                        placeholder.getWidth(), placeholder.getHeight(), mTempXY);
         int dragLayerX = mTempXY[0];
         int dragLayerY = mTempXY[1];
 
@@ -1505,10 +1570,26 @@ public class Workspace extends PagedView<WorkspacePageIndicator>
             }
         }
 
-        DragView dv = mDragController.startDrag(b, draggableView, dragLayerX, dragLayerY, source,
-                dragObject, dragVisualizeOffset, dragRect, scale * iconScale,
-                scale, dragOptions);
+        final DragView dv;
+        if (b != null) {
+            dv = mDragController.startDrag(b, draggableView, dragLayerX, dragLayerY, source,
+                    dragObject, dragVisualizeOffset, dragRect, scale * iconScale,
+                    scale, dragOptions);
+        } else {
+            dv = mDragController.startDrag(placeholder, draggableView, dragLayerX, dragLayerY,
+                    source, dragObject, dragVisualizeOffset, dragRect, scale * iconScale,
+                    scale, dragOptions);
+            DragPreviewProvider.renderDragBitmap(placeholder, bitmap -> {
+                dv.setPreviewBitmap(bitmap);
+                if (mOutlineProvider == previewProvider && mDragController.isDragging()) {
+                    // The drag already started without an outline
+                    previewProvider.generateDragOutline(bitmap);
+                }
+            });
+        }
         dv.setIntrinsicIconScaleFactor(dragOptions.intrinsicIconScaleFactor);
+        DragPreviewProvider.onDragStarted(
+                b == null, SystemClock.elapsedRealtimeNanos() - startTime);
         return dv;
     }
 
@@ -3041,6 +3122,8 @@ public class Workspace extends PagedView<WorkspacePageIndicator>
             }
         }
 
+        mPageVirtualizer.removeItemsByMatcher(matcher);
+
         // Strip all the empty screens
         stripEmptyScreens();
     }
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3;
+
+import static com.android.launcher3.LauncherState.NORMAL;
+
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.android.launcher3.config.FeatureFlags;
+import com.android.launcher3.folder.FolderIcon;
+import com.android.launcher3.logging.FileLog;
+import com.android.launcher3.model.data.FolderInfo;
+import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
+import com.android.launcher3.util.CellAndSpan;
+import com.android.launcher3.util.IntArray;
+import com.android.launcher3.util.IntSparseArrayMap;
+import com.android.launcher3.util.ItemInfoMatcher;
+import com.android.launcher3.widget.LauncherAppWidgetHostView;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drops the item views of the workspace pages which are far from the current page, and inflates
+ * them again from their {@link ItemInfo}s when the user gets close.
+ *
+ * The parked items are the same objects as the ones held by the model, so any update made to
+ * them while their page is parked is picked up when the views are inflated again. Pages within
+ * {@link #HYDRATED_PAGE_DISTANCE} of the current page are always inflated, which covers the
+ * pages visible while scrolling and the adjacent drop targets while dragging. The cells of the
+ * parked items stay marked as occupied, so that no other item is placed on top of them.
+ */
+public class WorkspacePageVirtualizer {
+
+    private static final String TAG = "WorkspacePageVirtualizer";
+
+    // Number of pages on each side of the current page which keep their views
+    private static final int HYDRATED_PAGE_DISTANCE = 1;
+
+    private final Launcher mLauncher;
+    private final Workspace mWorkspace;
+
+    // Items of the parked screens, keyed by screen id
+    private final IntSparseArrayMap<ArrayList<ParkedItem>> mParkedItems =
+            new IntSparseArrayMap<>();
+
+    // Stats
+    private int mPagesParked;
+    private int mPagesHydrated;
+    private long mLastHydrateMillis;
+
+    public WorkspacePageVirtualizer(Launcher launcher, Workspace workspace) {
+        mLauncher = launcher;
+        mWorkspace = workspace;
+    }
+
+    private static boolean isEnabled() {
+        return FeatureFlags.ENABLE_WORKSPACE_PAGE_VIRTUALIZATION.get();
+    }
+
+    /**
+     * Returns true if the screen has items which are not inflated.
+     */
+    public boolean isParked(int screenId) {
+        return mParkedItems.containsKey(screenId);
+    }
+
+    /**
+     * Inflates the pages close to {@param page}. Called as soon as the current page changes, so
+     * that the pages coming into view are ready before the scroll reaches them.
+     */
+    public void onCurrentPageChanged(int page) {
+        if (mParkedItems.isEmpty()) {
+            return;
+        }
+        IntArray screenOrder = mWorkspace.getScreenOrder();
+        int start = Math.max(0, page - HYDRATED_PAGE_DISTANCE);
+        int end = Math.min(screenOrder.size() - 1, page + HYDRATED_PAGE_DISTANCE);
+        for (int i = start; i <= end; i++) {
+            hydrate(screenOrder.get(i));
+        }
+    }
+
+    /**
+     * Parks the pages far from the current page. Called once the workspace settles on a page.
+     */
+    public void onPageSettled() {
+        if (!isEnabled() || mLauncher.isWorkspaceLoading()
+                || !mLauncher.isInState(NORMAL)
+                || mLauncher.getDragController().isDragging()) {
+            // Other states show more than the current page, and a drag can target any page
+            onCurrentPageChanged(mWorkspace.getNextPage());
+            return;
+        }
+        int currentPage = mWorkspace.getNextPage();
+        onCurrentPageChanged(currentPage);
+
+        IntArray screenOrder = mWorkspace.getScreenOrder();
+        for (int i = 0; i < screenOrder.size(); i++) {
+            if (Math.abs(i - currentPage) > HYDRATED_PAGE_DISTANCE) {
+                park(screenOrder.get(i));
+            }
+        }
+    }
+
+    /**
+     * Inflates all the parked pages, for example before the pages are saved or reordered.
+     */
+    public void hydrateAll() {
+        while (!mParkedItems.isEmpty()) {
+            hydrate(mParkedItems.keyAt(0));
+        }
+    }
+
+    /**
+     * Forgets all the parked items, when the workspace is rebound from the model.
+     */
+    public void clear() {
+        mParkedItems.clear();
+    }
+
+    /**
+     * Removes the parked items matching {@param matcher}, like
+     * {@link Workspace#removeItemsByMatcher} does for the inflated items.
+     */
+    public void removeItemsByMatcher(ItemInfoMatcher matcher) {
+        for (int i = mParkedItems.size() - 1; i >= 0; i--) {
+            ArrayList<ParkedItem> items = mParkedItems.valueAt(i);
+            CellLayout layout = mWorkspace.getScreenWithId(mParkedItems.keyAt(i));
+            ArrayList<ItemInfo> infos = new ArrayList<>(items.size());
+            for (ParkedItem item : items) {
+                infos.add(item.info);
+            }
+            for (ItemInfo itemToRemove : matcher.filterItemInfos(infos)) {
+                for (int j = items.size() - 1; j >= 0; j--) {
+                    ParkedItem item = items.get(j);
+                    if (item.info == itemToRemove) {
+                        items.remove(j);
+                        if (layout != null) {
+                            layout.markCellsForItem(item, false);
+                        }
+                    } else if (item.info.id == itemToRemove.container
+                            && item.info instanceof FolderInfo) {
+                        // The item belongs to a parked folder
+                        ((FolderInfo) item.info).remove((WorkspaceItemInfo) itemToRemove, false);
+                    }
+                }
+            }
+            if (items.isEmpty()) {
+                mParkedItems.removeAt(i);
+            }
+        }
+    }
+
+    private void park(int screenId) {
+        CellLayout layout = mWorkspace.getScreenWithId(screenId);
+        if (layout == null || isParked(screenId)) {
+            return;
+        }
+        ViewGroup container = layout.getShortcutsAndWidgets();
+        if (container.getChildCount() == 0) {
+            return;
+        }
+        ArrayList<ParkedItem> items = new ArrayList<>(container.getChildCount());
+        for (int i = container.getChildCount() - 1; i >= 0; i--) {
+            View child = container.getChildAt(i);
+            if (!(child.getTag() instanceof ItemInfo)) {
+                // Not a model item (for example the QSB), keep the page as is
+                return;
+            }
+            CellLayout.LayoutParams lp = (CellLayout.LayoutParams) child.getLayoutParams();
+            items.add(new ParkedItem((ItemInfo) child.getTag(), lp));
+        }
+        for (int i = container.getChildCount() - 1; i >= 0; i--) {
+            View child = container.getChildAt(i);
+            // Same as removing the item, the cells are marked again below
+            layout.removeViewInLayout(child);
+            if (child instanceof DropTarget) {
+                mLauncher.getDragController().removeDropTarget((DropTarget) child);
+            }
+            if (child instanceof FolderIcon) {
+                // The folder info outlives the view, a new icon is created when hydrating
+                ((FolderIcon) child).removeListeners();
+            }
+        }
+        for (ParkedItem item : items) {
+            layout.markCellsForItem(item, true);
+        }
+        mParkedItems.put(screenId, items);
+        mPagesParked++;
+    }
+
+    private void hydrate(int screenId) {
+        ArrayList<ParkedItem> items = mParkedItems.get(screenId);
+        if (items == null) {
+            return;
+        }
+        mParkedItems.remove(screenId);
+        CellLayout layout = mWorkspace.getScreenWithId(screenId);
+        if (layout == null) {
+            return;
+        }
+
+        long startTime = SystemClock.uptimeMillis();
+        // The views mark the cells again as they are added
+        for (ParkedItem item : items) {
+            layout.markCellsForItem(item, false);
+        }
+        int[] cell = new int[2];
+        for (int i = items.size() - 1; i >= 0; i--) {
+            ItemInfo item = items.get(i).info;
+            if (item.screenId != screenId
+                    || item.container != LauncherSettings.Favorites.CONTAINER_DESKTOP) {
+                // The item was moved by the model while its page was parked
+                continue;
+            }
+            if (layout.isOccupied(item.cellX, item.cellY)) {
+                String desc = "Collision while inflating parked item: " + item;
+                if (FeatureFlags.IS_STUDIO_BUILD) {
+                    throw new RuntimeException(desc);
+                } else if (layout.findCellForSpan(cell, item.spanX, item.spanY)) {
+                    // Keep the item on its page, on the first free cell
+                    FileLog.e(TAG, desc + ", moving it to " + cell[0] + "," + cell[1]);
+                    mLauncher.getModelWriter().moveItemInDatabase(item, item.container,
+                            screenId, cell[0], cell[1]);
+                } else {
+                    // Same as a collision while binding
+                    FileLog.e(TAG, desc + ", deleting it");
+                    mLauncher.getModelWriter().deleteItemFromDatabase(item);
+                    continue;
+                }
+            }
+            View view = mLauncher.inflateWorkspaceItemView(item);
+            if (view != null) {
+                mWorkspace.addInScreenFromBind(view, item);
+            }
+        }
+        mLastHydrateMillis = SystemClock.uptimeMillis() - startTime;
+        mPagesHydrated++;
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "WorkspacePageVirtualizer: enabled=" + isEnabled()
+                + " pagesParked=" + mPagesParked + " pagesHydrated=" + mPagesHydrated
+                + " lastHydrateMillis=" + mLastHydrateMillis);
+        IntArray screenOrder = mWorkspace.getScreenOrder();
+        for (int i = 0; i < screenOrder.size(); i++) {
+            int screenId = screenOrder.get(i);
+            List<ParkedItem> parked = mParkedItems.get(screenId);
+            if (parked != null) {
+                writer.println(prefix + "  page " + i + ": parked items=" + parked.size());
+                continue;
+            }
+            CellLayout layout = mWorkspace.getScreenWithId(screenId);
+            if (layout == null) {
+                continue;
+            }
+            ViewGroup container = layout.getShortcutsAndWidgets();
+            int widgets = 0;
+            for (int j = 0; j < container.getChildCount(); j++) {
+                if (container.getChildAt(j) instanceof LauncherAppWidgetHostView) {
+                    widgets++;
+                }
+            }
+            writer.println(prefix + "  page " + i + ": items=" + container.getChildCount()
+                    + " widgets=" + widgets + " views=" + countViews(container));
+        }
+    }
+
+    /**
+     * An item of a parked page, with the cells its view occupied.
+     */
+    private static class ParkedItem extends CellAndSpan {
+
+        final ItemInfo info;
+
+        ParkedItem(ItemInfo info, CellLayout.LayoutParams lp) {
+            super(lp.cellX, lp.cellY, lp.cellHSpan, lp.cellVSpan);
+            this.info = info;
+        }
+    }
+
+    private static int countViews(View view) {
+        int count = 1;
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                count += countViews(group.getChildAt(i));
+            }
+        }
+        return count;
+    }
+}
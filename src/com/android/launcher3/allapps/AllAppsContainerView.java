@@ -28,6 +28,7 @@ import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Point;
 import android.graphics.Rect;
+import android.os.Looper;
 import android.os.Process;
 import android.text.Selection;
 import android.text.SpannableStringBuilder;
@@ -55,6 +56,7 @@ import com.android.launcher3.Insettable;
 import com.android.launcher3.InsettableFrameLayout;
 import com.android.launcher3.R;
 import com.android.launcher3.Utilities;
+import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.keyboard.FocusedItemDecorator;
 import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.model.data.ItemInfo;
@@ -183,6 +185,24 @@ public class AllAppsContainerView extends SpringRelativeLayout implements DragSo
         }
     }
 
+    /**
+     * Fills the recycled view pool of the apps list one row at a time while the main thread is
+     * idle, so that opening and scrolling all apps for the first time does not inflate icons.
+     */
+    public void scheduleWarmUp() {
+        if (!FeatureFlags.ENABLE_ALL_APPS_WARM_UP.get()) {
+            return;
+        }
+        Looper.myQueue().addIdleHandler(() -> {
+            if (mAllAppsStore.getApps().length == 0) {
+                // Keep waiting for the apps to be bound
+                return true;
+            }
+            AllAppsRecyclerView rv = getActiveRecyclerView();
+            return rv != null && rv.warmUpNextRow();
+        });
+    }
+
     private void onAppsUpdated() {
         boolean hasWorkApps = false;
         for (AppInfo app : mAllAppsStore.getApps()) {
@@ -406,8 +426,8 @@ public class AllAppsContainerView extends SpringRelativeLayout implements DragSo
         replaceRVContainer(showTabs);
         mUsingTabs = showTabs;
 
-        mAllAppsStore.unregisterIconContainer(mAH[AdapterHolder.MAIN].recyclerView);
-        mAllAppsStore.unregisterIconContainer(mAH[AdapterHolder.WORK].recyclerView);
+        // The icons of the previous recycler views are not recycled through the adapters
+        mAllAppsStore.clearBoundIcons();
 
         if (mUsingTabs) {
             setupWorkToggle();
@@ -428,9 +448,6 @@ public class AllAppsContainerView extends SpringRelativeLayout implements DragSo
             }
         }
         setupHeader();
-
-        mAllAppsStore.registerIconContainer(mAH[AdapterHolder.MAIN].recyclerView);
-        mAllAppsStore.registerIconContainer(mAH[AdapterHolder.WORK].recyclerView);
     }
 
     private void setupWorkToggle() {
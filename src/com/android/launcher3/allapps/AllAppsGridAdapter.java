@@ -202,6 +202,7 @@ public class AllAppsGridAdapter extends RecyclerView.Adapter<AllAppsGridAdapter.
         mOnIconClickListener = launcher.getItemOnClickListener();
 
         setAppsPerRow(mLauncher.getDeviceProfile().inv.numAllAppsColumns);
+        setHasStableIds(true);
     }
 
     public void setAppsPerRow(int appsPerRow) {
@@ -288,6 +289,7 @@ public class AllAppsGridAdapter extends RecyclerView.Adapter<AllAppsGridAdapter.
                 BubbleTextView icon = (BubbleTextView) holder.itemView;
                 icon.reset();
                 icon.applyFromApplicationInfo(info);
+                mApps.getAllAppsStore().onIconBound(icon);
                 break;
             case VIEW_TYPE_EMPTY_SEARCH:
                 TextView emptyViewText = (TextView) holder.itemView;
@@ -309,6 +311,13 @@ public class AllAppsGridAdapter extends RecyclerView.Adapter<AllAppsGridAdapter.
         }
     }
 
+    @Override
+    public void onViewRecycled(ViewHolder holder) {
+        if (holder.itemView instanceof BubbleTextView) {
+            mApps.getAllAppsStore().onIconUnbound((BubbleTextView) holder.itemView);
+        }
+    }
+
     @Override
     public boolean onFailedToRecycleView(ViewHolder holder) {
         // Always recycle and we will reset the view when it is bound
@@ -320,6 +329,11 @@ public class AllAppsGridAdapter extends RecyclerView.Adapter<AllAppsGridAdapter.
         return mApps.getAdapterItems().size();
     }
 
+    @Override
+    public long getItemId(int position) {
+        return mApps.getAdapterItems().get(position).itemId;
+    }
+
     @Override
     public int getItemViewType(int position) {
         AlphabeticalAppsList.AdapterItem item = mApps.getAdapterItems().get(position);
@@ -42,6 +42,7 @@ import com.android.launcher3.logging.StatsLogUtils.LogContainerProvider;
 import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.userevent.nano.LauncherLogProto.ContainerType;
 import com.android.launcher3.userevent.nano.LauncherLogProto.Target;
+import com.android.launcher3.util.TraceHelper;
 import com.android.launcher3.views.RecyclerViewFastScroller;
 
 import java.util.ArrayList;
@@ -57,7 +58,10 @@ public class AllAppsRecyclerView extends BaseRecyclerView implements LogContaine
 
     // The specific view heights that we use to calculate scroll
     private final SparseIntArray mViewHeights = new SparseIntArray();
-    private final SparseIntArray mCachedScrollPositions = new SparseIntArray();
+    // The scroll offset of the row of each adapter item, followed by the total height of the
+    // items. Only the first item count + 1 values are valid, the array is reused across updates.
+    private int[] mItemScrollOffsets = new int[0];
+    private boolean mItemScrollOffsetsValid;
     private final AllAppsFastScrollHelper mFastScrollHelper;
 
     // The empty-search result background
@@ -66,6 +70,10 @@ public class AllAppsRecyclerView extends BaseRecyclerView implements LogContaine
 
     private ArrayList<View> mAutoSizedOverlays = new ArrayList<>();
 
+    // Max number of icon view holders kept in the pool, and the number added by warmUpNextRow
+    private int mMaxPooledIcons;
+    private int mWarmedUpIcons;
+
     public AllAppsRecyclerView(Context context) {
         this(context, null);
     }
@@ -106,10 +114,61 @@ public class AllAppsRecyclerView extends BaseRecyclerView implements LogContaine
         pool.setMaxRecycledViews(AllAppsGridAdapter.VIEW_TYPE_EMPTY_SEARCH, 1);
         pool.setMaxRecycledViews(AllAppsGridAdapter.VIEW_TYPE_ALL_APPS_DIVIDER, 1);
         pool.setMaxRecycledViews(AllAppsGridAdapter.VIEW_TYPE_SEARCH_MARKET, 1);
-        pool.setMaxRecycledViews(AllAppsGridAdapter.VIEW_TYPE_ICON, approxRows * mNumAppsPerRow);
+        mMaxPooledIcons = approxRows * mNumAppsPerRow;
+        pool.setMaxRecycledViews(AllAppsGridAdapter.VIEW_TYPE_ICON, mMaxPooledIcons);
 
         mViewHeights.clear();
         mViewHeights.put(AllAppsGridAdapter.VIEW_TYPE_ICON, grid.allAppsCellHeightPx);
+        mItemScrollOffsetsValid = false;
+    }
+
+    /**
+     * Creates the view holders of the next row of icons after the ones laid out, binds and
+     * measures them, and keeps them in the recycled view pool. This way the first scroll does
+     * not need to inflate views, and binding loads the high resolution icons of these apps.
+     *
+     * @return true if there are more rows to warm up
+     */
+    public boolean warmUpNextRow() {
+        Adapter adapter = getAdapter();
+        if (!(adapter instanceof AllAppsGridAdapter) || mApps == null || mNumAppsPerRow == 0) {
+            return false;
+        }
+        AllAppsGridAdapter appsAdapter = (AllAppsGridAdapter) adapter;
+        List<AlphabeticalAppsList.AdapterItem> items = mApps.getAdapterItems();
+        int width = getWidth() - getPaddingLeft() - getPaddingRight();
+        int widthSpec = width > 0
+                ? makeMeasureSpec(width / mNumAppsPerRow, EXACTLY) : UNSPECIFIED;
+        int heightSpec = makeMeasureSpec(mViewHeights.get(AllAppsGridAdapter.VIEW_TYPE_ICON),
+                EXACTLY);
+
+        Object traceToken = TraceHelper.INSTANCE.beginSection("AllAppsWarmUp");
+        int position = getChildCount() + mWarmedUpIcons;
+        int rowEnd = Math.min(position + mNumAppsPerRow, items.size());
+        for (; position < rowEnd && mWarmedUpIcons < mMaxPooledIcons; position++) {
+            if (!AllAppsGridAdapter.isIconViewType(items.get(position).viewType)) {
+                // Only icons are worth pooling, the other view types are limited to one each
+                TraceHelper.INSTANCE.endSection(traceToken);
+                return false;
+            }
+            ViewHolder holder = appsAdapter.createViewHolder(this,
+                    AllAppsGridAdapter.VIEW_TYPE_ICON);
+            appsAdapter.onBindViewHolder(holder, position);
+            holder.itemView.measure(widthSpec, heightSpec);
+            // The holder is no longer bound as far as the adapter is concerned
+            appsAdapter.onViewRecycled(holder);
+            getRecycledViewPool().putRecycledView(holder);
+            mWarmedUpIcons++;
+        }
+        TraceHelper.INSTANCE.endSection(traceToken);
+        return position < items.size() && mWarmedUpIcons < mMaxPooledIcons;
+    }
+
+    /**
+     * Returns the number of icon view holders added to the pool by {@link #warmUpNextRow}.
+     */
+    public int getWarmedUpIconCount() {
+        return mWarmedUpIcons;
     }
 
     /**
@@ -222,16 +281,8 @@ public class AllAppsRecyclerView extends BaseRecyclerView implements LogContaine
         }
 
         // Find the fastscroll section that maps to this touch fraction
-        List<AlphabeticalAppsList.FastScrollSectionInfo> fastScrollSections =
-                mApps.getFastScrollerSections();
-        AlphabeticalAppsList.FastScrollSectionInfo lastInfo = fastScrollSections.get(0);
-        for (int i = 1; i < fastScrollSections.size(); i++) {
-            AlphabeticalAppsList.FastScrollSectionInfo info = fastScrollSections.get(i);
-            if (info.touchFraction > touchFraction) {
-                break;
-            }
-            lastInfo = info;
-        }
+        AlphabeticalAppsList.FastScrollSectionInfo lastInfo = mApps.getFastScrollerSections()
+                .get(mApps.getFastScrollSectionIndex(touchFraction));
 
         mFastScrollHelper.smoothScrollToSection(lastInfo);
         return lastInfo.sectionName;
@@ -248,7 +299,27 @@ public class AllAppsRecyclerView extends BaseRecyclerView implements LogContaine
         super.setAdapter(adapter);
         adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
             public void onChanged() {
-                mCachedScrollPositions.clear();
+                mItemScrollOffsetsValid = false;
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount) {
+                mItemScrollOffsetsValid = false;
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                mItemScrollOffsetsValid = false;
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                mItemScrollOffsetsValid = false;
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                mItemScrollOffsetsValid = false;
             }
         });
     }
@@ -367,47 +438,56 @@ public class AllAppsRecyclerView extends BaseRecyclerView implements LogContaine
     }
 
     public int getCurrentScrollY(int position, int offset) {
+        if (!mItemScrollOffsetsValid) {
+            updateItemScrollOffsets();
+        }
+        return mItemScrollOffsets[position] - offset;
+    }
+
+    /**
+     * Computes the scroll offset of every adapter item in one pass, so that scroll positions
+     * are looked up without walking the items before them.
+     */
+    private void updateItemScrollOffsets() {
         List<AlphabeticalAppsList.AdapterItem> items = mApps.getAdapterItems();
-        AlphabeticalAppsList.AdapterItem posItem = position < items.size() ?
-                items.get(position) : null;
-        int y = mCachedScrollPositions.get(position, -1);
-        if (y < 0) {
-            y = 0;
-            for (int i = 0; i < position; i++) {
-                AlphabeticalAppsList.AdapterItem item = items.get(i);
-                if (AllAppsGridAdapter.isIconViewType(item.viewType)) {
-                    // Break once we reach the desired row
-                    if (posItem != null && posItem.viewType == item.viewType &&
-                            posItem.rowIndex == item.rowIndex) {
-                        break;
-                    }
-                    // Otherwise, only account for the first icon in the row since they are the same
-                    // size within a row
-                    if (item.rowAppIndex == 0) {
-                        y += mViewHeights.get(item.viewType, 0);
-                    }
-                } else {
-                    // Rest of the views span the full width
-                    int elHeight = mViewHeights.get(item.viewType);
-                    if (elHeight == 0) {
-                        ViewHolder holder = findViewHolderForAdapterPosition(i);
-                        if (holder == null) {
-                            holder = getAdapter().createViewHolder(this, item.viewType);
-                            getAdapter().onBindViewHolder(holder, i);
-                            holder.itemView.measure(UNSPECIFIED, UNSPECIFIED);
-                            elHeight = holder.itemView.getMeasuredHeight();
-
-                            getRecycledViewPool().putRecycledView(holder);
-                        } else {
-                            elHeight = holder.itemView.getMeasuredHeight();
-                        }
+        int count = items.size();
+        if (mItemScrollOffsets.length < count + 1) {
+            mItemScrollOffsets = new int[count + 1];
+        }
+        int y = 0;
+        int rowTop = 0;
+        for (int i = 0; i < count; i++) {
+            AlphabeticalAppsList.AdapterItem item = items.get(i);
+            if (AllAppsGridAdapter.isIconViewType(item.viewType)) {
+                // Only account for the first icon in the row since they are the same size within
+                // a row, and all the icons of a row share its offset
+                if (item.rowAppIndex == 0) {
+                    rowTop = y;
+                    y += mViewHeights.get(item.viewType, 0);
+                }
+                mItemScrollOffsets[i] = rowTop;
+            } else {
+                // Rest of the views span the full width
+                mItemScrollOffsets[i] = y;
+                int elHeight = mViewHeights.get(item.viewType);
+                if (elHeight == 0) {
+                    ViewHolder holder = findViewHolderForAdapterPosition(i);
+                    if (holder == null) {
+                        holder = getAdapter().createViewHolder(this, item.viewType);
+                        getAdapter().onBindViewHolder(holder, i);
+                        holder.itemView.measure(UNSPECIFIED, UNSPECIFIED);
+                        elHeight = holder.itemView.getMeasuredHeight();
+
+                        getRecycledViewPool().putRecycledView(holder);
+                    } else {
+                        elHeight = holder.itemView.getMeasuredHeight();
                     }
-                    y += elHeight;
                 }
+                y += elHeight;
             }
-            mCachedScrollPositions.put(position, y);
         }
-        return y - offset;
+        mItemScrollOffsets[count] = y;
+        mItemScrollOffsetsValid = true;
     }
 
     /**
@@ -18,6 +18,9 @@ package com.android.launcher3.allapps;
 import static com.android.launcher3.model.data.AppInfo.COMPONENT_KEY_COMPARATOR;
 import static com.android.launcher3.model.data.AppInfo.EMPTY_ARRAY;
 
+import android.util.ArraySet;
+import android.view.Choreographer;
+import android.view.Choreographer.FrameCallback;
 import android.view.View;
 import android.view.ViewGroup;
 
@@ -27,10 +30,13 @@ import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.model.data.PromiseAppInfo;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.PackageUserKey;
+import com.android.launcher3.util.ShortcutUtil;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -54,6 +60,17 @@ public class AllAppsStore {
     private final ArrayList<ViewGroup> mIconContainers = new ArrayList<>();
     private int mModelFlags;
 
+    // Icons reported through onIconBound, by the package of their item
+    private final HashMap<PackageUserKey, ArrayList<BubbleTextView>> mIconsByPackage =
+            new HashMap<>();
+    private final HashMap<BubbleTextView, PackageUserKey> mBoundIcons = new HashMap<>();
+
+    // Icon updates are applied once per frame, as progress updates can come in bursts
+    private final ArrayList<Predicate<PackageUserKey>> mPendingDotUpdates = new ArrayList<>();
+    private final ArraySet<PromiseAppInfo> mPendingProgressUpdates = new ArraySet<>();
+    private final FrameCallback mApplyIconUpdates = frameTimeNanos -> applyIconUpdates();
+    private boolean mIconUpdatesScheduled;
+
     private int mDeferUpdatesFlags = 0;
     private boolean mUpdatePending = false;
 
@@ -124,6 +141,10 @@ public class AllAppsStore {
         mUpdateListeners.remove(listener);
     }
 
+    /**
+     * Registers a container whose icons are updated by walking through all its children. Prefer
+     * reporting the icons through {@link #onIconBound} for containers with many children.
+     */
     public void registerIconContainer(ViewGroup container) {
         if (container != null) {
             mIconContainers.add(container);
@@ -134,23 +155,123 @@ public class AllAppsStore {
         mIconContainers.remove(container);
     }
 
-    public void updateNotificationDots(Predicate<PackageUserKey> updatedDots) {
-        updateAllIcons((child) -> {
-            if (child.getTag() instanceof ItemInfo) {
-                ItemInfo info = (ItemInfo) child.getTag();
-                if (mTempKey.updateFromItemInfo(info) && updatedDots.test(mTempKey)) {
-                    child.applyDotState(info, true /* animate */);
-                }
+    /**
+     * Adds {@param icon} to the icons updated by this store, for the item it is bound to.
+     * Should be called every time the icon is bound to a new item.
+     */
+    public void onIconBound(BubbleTextView icon) {
+        onIconUnbound(icon);
+        if (!(icon.getTag() instanceof ItemInfo)) {
+            return;
+        }
+        PackageUserKey key = PackageUserKey.fromItemInfo((ItemInfo) icon.getTag());
+        if (key == null) {
+            return;
+        }
+        mBoundIcons.put(icon, key);
+        ArrayList<BubbleTextView> icons = mIconsByPackage.get(key);
+        if (icons == null) {
+            icons = new ArrayList<>(1);
+            mIconsByPackage.put(key, icons);
+        }
+        icons.add(icon);
+    }
+
+    /**
+     * Removes {@param icon} from the icons updated by this store.
+     */
+    public void onIconUnbound(BubbleTextView icon) {
+        PackageUserKey key = mBoundIcons.remove(icon);
+        if (key != null) {
+            ArrayList<BubbleTextView> icons = mIconsByPackage.get(key);
+            icons.remove(icon);
+            if (icons.isEmpty()) {
+                mIconsByPackage.remove(key);
             }
-        });
+        }
+    }
+
+    /**
+     * Removes all the icons reported through {@link #onIconBound}.
+     */
+    public void clearBoundIcons() {
+        mBoundIcons.clear();
+        mIconsByPackage.clear();
+    }
+
+    public void updateNotificationDots(Predicate<PackageUserKey> updatedDots) {
+        mPendingDotUpdates.add(updatedDots);
+        scheduleIconUpdates();
     }
 
     public void updatePromiseAppProgress(PromiseAppInfo app) {
-        updateAllIcons((child) -> {
-            if (child.getTag() == app) {
-                child.applyProgressLevel(app.level);
+        mPendingProgressUpdates.add(app);
+        scheduleIconUpdates();
+    }
+
+    private void scheduleIconUpdates() {
+        if (!mIconUpdatesScheduled) {
+            mIconUpdatesScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mApplyIconUpdates);
+        }
+    }
+
+    private void applyIconUpdates() {
+        mIconUpdatesScheduled = false;
+
+        if (!mPendingDotUpdates.isEmpty()) {
+            ArrayList<Predicate<PackageUserKey>> dotUpdates = new ArrayList<>(mPendingDotUpdates);
+            mPendingDotUpdates.clear();
+            Predicate<PackageUserKey> updatedDots = key -> {
+                for (Predicate<PackageUserKey> dotUpdate : dotUpdates) {
+                    if (dotUpdate.test(key)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+
+            for (Map.Entry<PackageUserKey, ArrayList<BubbleTextView>> entry
+                    : mIconsByPackage.entrySet()) {
+                if (updatedDots.test(entry.getKey())) {
+                    for (BubbleTextView icon : entry.getValue()) {
+                        ItemInfo info = (ItemInfo) icon.getTag();
+                        if (ShortcutUtil.supportsShortcuts(info)) {
+                            icon.applyDotState(info, true /* animate */);
+                        }
+                    }
+                }
+            }
+            updateAllIcons((child) -> {
+                if (child.getTag() instanceof ItemInfo) {
+                    ItemInfo info = (ItemInfo) child.getTag();
+                    if (mTempKey.updateFromItemInfo(info) && updatedDots.test(mTempKey)) {
+                        child.applyDotState(info, true /* animate */);
+                    }
+                }
+            });
+        }
+
+        if (!mPendingProgressUpdates.isEmpty()) {
+            ArraySet<PromiseAppInfo> apps = new ArraySet<>(mPendingProgressUpdates);
+            mPendingProgressUpdates.clear();
+            for (PromiseAppInfo app : apps) {
+                PackageUserKey key = PackageUserKey.fromItemInfo(app);
+                ArrayList<BubbleTextView> icons = key == null ? null : mIconsByPackage.get(key);
+                if (icons != null) {
+                    for (BubbleTextView icon : icons) {
+                        if (icon.getTag() == app) {
+                            icon.applyProgressLevel(app.level);
+                        }
+                    }
+                }
             }
-        });
+            updateAllIcons((child) -> {
+                if (child.getTag() instanceof PromiseAppInfo && apps.contains(child.getTag())) {
+                    child.applyProgressLevel(((PromiseAppInfo) child.getTag()).level);
+                }
+            });
+        }
     }
 
     private void updateAllIcons(Consumer<BubbleTextView> action) {
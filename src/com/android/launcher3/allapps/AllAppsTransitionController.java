@@ -1,5 +1,6 @@
 package com.android.launcher3.allapps;
 
+import static com.android.launcher3.LauncherState.ALL_APPS;
 import static com.android.launcher3.LauncherState.ALL_APPS_CONTENT;
 import static com.android.launcher3.LauncherState.ALL_APPS_HEADER_EXTRA;
 import static com.android.launcher3.LauncherState.APPS_VIEW_ITEM_MASK;
@@ -33,13 +34,18 @@ import com.android.launcher3.R;
 import com.android.launcher3.anim.AnimationSuccessListener;
 import com.android.launcher3.anim.PendingAnimation;
 import com.android.launcher3.anim.PropertySetter;
+import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.statemanager.StateManager.StateHandler;
 import com.android.launcher3.states.StateAnimationConfig;
 import com.android.launcher3.uioverrides.plugins.PluginManagerWrapper;
+import com.android.launcher3.util.DefaultDisplay;
+import com.android.launcher3.util.FrameTimeRecorder;
 import com.android.launcher3.views.ScrimView;
 import com.android.systemui.plugins.AllAppsSearchPlugin;
 import com.android.systemui.plugins.PluginListener;
 
+import java.io.PrintWriter;
+
 /**
  * Handles AllApps view transition.
  * 1) Slides all apps view using direct manipulation
@@ -90,6 +96,10 @@ public class AllAppsTransitionController implements StateHandler<LauncherState>,
     private AllAppsSearchPlugin mPlugin;
     private View mPluginContent;
 
+    // Frame times of the first open of all apps, to compare with and without the warm-up
+    private FrameTimeRecorder mFirstOpenFrames;
+    private int mFirstOpenWarmedUpIcons;
+
     public AllAppsTransitionController(Launcher l) {
         mLauncher = l;
         mShiftRange = mLauncher.getDeviceProfile().heightPx;
@@ -179,11 +189,36 @@ public class AllAppsTransitionController implements StateHandler<LauncherState>,
         Animator anim = createSpringAnimation(mProgress, targetProgress);
         anim.setInterpolator(config.getInterpolator(ANIM_VERTICAL_PROGRESS, interpolator));
         anim.addListener(getProgressAnimatorListener());
+        if (toState == ALL_APPS && mFirstOpenFrames == null) {
+            anim.addListener(new AnimatorListenerAdapter() {
+                @Override
+                public void onAnimationStart(Animator animation) {
+                    startFirstOpenRecording();
+                }
+
+                @Override
+                public void onAnimationEnd(Animator animation) {
+                    if (mFirstOpenFrames != null) {
+                        mFirstOpenFrames.stop();
+                    }
+                }
+            });
+        }
         builder.add(anim);
 
         setAlphas(toState, config, builder);
     }
 
+    private void startFirstOpenRecording() {
+        if (mFirstOpenFrames != null) {
+            return;
+        }
+        AllAppsRecyclerView rv = mAppsView.getActiveRecyclerView();
+        mFirstOpenWarmedUpIcons = rv == null ? 0 : rv.getWarmedUpIconCount();
+        mFirstOpenFrames = new FrameTimeRecorder(DefaultDisplay.getSingleFrameMs(mLauncher));
+        mFirstOpenFrames.start();
+    }
+
     public Animator createSpringAnimation(float... progressValues) {
         return ObjectAnimator.ofFloat(this, ALL_APPS_PROGRESS, progressValues);
     }
@@ -287,6 +322,13 @@ public class AllAppsTransitionController implements StateHandler<LauncherState>,
         mPlugin.onDragStart(toAllApps ? 1f : 0f);
     }
 
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "AllAppsFirstOpen: warmUp="
+                + FeatureFlags.ENABLE_ALL_APPS_WARM_UP.get()
+                + " warmedUpIcons=" + mFirstOpenWarmedUpIcons + " "
+                + (mFirstOpenFrames == null ? "not opened yet" : mFirstOpenFrames));
+    }
+
     private void updatePluginAnimationEnd() {
         if (mPlugin == null) return;
         mPlugin.onAnimationEnd(mProgress);
@@ -18,7 +18,10 @@ package com.android.launcher3.allapps;
 
 import android.content.Context;
 
+import androidx.recyclerview.widget.DiffUtil;
+
 import com.android.launcher3.BaseDraggingActivity;
+import com.android.launcher3.icons.BitmapInfo;
 import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.ItemInfoMatcher;
@@ -26,9 +29,11 @@ import com.android.launcher3.util.LabelComparator;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.TreeMap;
 
 /**
@@ -82,6 +87,13 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
         public AppInfo appInfo = null;
         // The index of this app not including sections
         public int appIndex = -1;
+        // The stable id of this item, the same for all the items of an app
+        public long itemId;
+
+        // The app state when the item was created, as the AppInfo is updated in place
+        private CharSequence mTitle;
+        private BitmapInfo mBitmap;
+        private int mRuntimeStatusFlags;
 
         public static AdapterItem asApp(int pos, String sectionName, AppInfo appInfo,
                 int appIndex) {
@@ -91,6 +103,9 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
             item.sectionName = sectionName;
             item.appInfo = appInfo;
             item.appIndex = appIndex;
+            item.mTitle = appInfo.title;
+            item.mBitmap = appInfo.bitmap;
+            item.mRuntimeStatusFlags = appInfo.runtimeStatusFlags;
             return item;
         }
 
@@ -98,6 +113,7 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
             AdapterItem item = new AdapterItem();
             item.viewType = AllAppsGridAdapter.VIEW_TYPE_EMPTY_SEARCH;
             item.position = pos;
+            item.itemId = -item.viewType;
             return item;
         }
 
@@ -105,6 +121,7 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
             AdapterItem item = new AdapterItem();
             item.viewType = AllAppsGridAdapter.VIEW_TYPE_ALL_APPS_DIVIDER;
             item.position = pos;
+            item.itemId = -item.viewType;
             return item;
         }
 
@@ -112,8 +129,53 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
             AdapterItem item = new AdapterItem();
             item.viewType = AllAppsGridAdapter.VIEW_TYPE_SEARCH_MARKET;
             item.position = pos;
+            item.itemId = -item.viewType;
             return item;
         }
+
+        /**
+         * Returns true if {@param other} would be bound to the same content as this item.
+         */
+        boolean isSameContent(AdapterItem other) {
+            return appInfo == other.appInfo
+                    && Objects.equals(mTitle, other.mTitle)
+                    && mBitmap == other.mBitmap
+                    && mRuntimeStatusFlags == other.mRuntimeStatusFlags;
+        }
+    }
+
+    /**
+     * Computes the changes between two lists of {@link AdapterItem}.
+     */
+    private static class AdapterItemsDiff extends DiffUtil.Callback {
+
+        private final List<AdapterItem> mOldItems;
+        private final List<AdapterItem> mNewItems;
+
+        AdapterItemsDiff(List<AdapterItem> oldItems, List<AdapterItem> newItems) {
+            mOldItems = oldItems;
+            mNewItems = newItems;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldItems.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewItems.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldItems.get(oldItemPosition).itemId == mNewItems.get(newItemPosition).itemId;
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldItems.get(oldItemPosition).isSameContent(mNewItems.get(newItemPosition));
+        }
     }
 
     private final BaseDraggingActivity mLauncher;
@@ -128,6 +190,9 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
     private final ArrayList<AdapterItem> mAdapterItems = new ArrayList<>();
     // The set of sections that we allow fast-scrolling to (includes non-merged sections)
     private final List<FastScrollSectionInfo> mFastScrollerSections = new ArrayList<>();
+    // The touch fractions of mFastScrollerSections, in the same order. Only the first
+    // mFastScrollerSections.size() values are valid, the array is reused across updates.
+    private float[] mFastScrollTouchFractions = new float[0];
     // Is it the work profile app list.
     private final boolean mIsWork;
 
@@ -139,6 +204,10 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
     private int mNumAppRowsInAdapter;
     private ItemInfoMatcher mItemFilter;
 
+    // Stable ids of the apps, kept for the lifetime of the list so that an app which is removed
+    // and added back is recognized as the same item
+    private final HashMap<ComponentKey, Long> mItemIds = new HashMap<>();
+
     public AlphabeticalAppsList(Context context, AllAppsStore appsStore, boolean isWork) {
         mAllAppsStore = appsStore;
         mLauncher = BaseDraggingActivity.fromContext(context);
@@ -150,7 +219,7 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
 
     public void updateItemFilter(ItemInfoMatcher itemFilter) {
         this.mItemFilter = itemFilter;
-        onAppsUpdated();
+        updateApps(false /* dispatchDiff */);
     }
 
     /**
@@ -160,6 +229,13 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
         mAdapter = adapter;
     }
 
+    /**
+     * Returns the store of all the apps this list is built from.
+     */
+    public AllAppsStore getAllAppsStore() {
+        return mAllAppsStore;
+    }
+
     /**
      * Returns all the apps.
      */
@@ -174,6 +250,25 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
         return mFastScrollerSections;
     }
 
+    /**
+     * Returns the index in {@link #getFastScrollerSections()} of the last section whose touch
+     * fraction is not past {@param touchFraction}, or 0 if there is none.
+     */
+    public int getFastScrollSectionIndex(float touchFraction) {
+        // The fractions are non decreasing, look for the first one greater than touchFraction
+        int low = 1;
+        int high = mFastScrollerSections.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mFastScrollTouchFractions[mid] > touchFraction) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low - 1;
+    }
+
     /**
      * Returns the current filtered list of applications broken down into their sections.
      */
@@ -216,7 +311,7 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
         if (mSearchResults != f) {
             boolean same = mSearchResults != null && mSearchResults.equals(f);
             mSearchResults = f;
-            onAppsUpdated();
+            updateApps(false /* dispatchDiff */);
             return !same;
         }
         return false;
@@ -227,6 +322,17 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
      */
     @Override
     public void onAppsUpdated() {
+        // Only a few apps change between two updates of the store, so only notify the adapter
+        // of the items which changed instead of rebinding all the visible icons
+        updateApps(true /* dispatchDiff */);
+    }
+
+    /**
+     * @param dispatchDiff whether to notify the adapter of the individual changes. Otherwise the
+     *                     whole data set is marked as changed, which is cheaper when the list
+     *                     is replaced, like when the filter changes.
+     */
+    private void updateApps(boolean dispatchDiff) {
         // Sort the list of apps
         mApps.clear();
 
@@ -267,22 +373,35 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
         }
 
         // Recompose the set of adapter items from the current set of apps
-        updateAdapterItems();
+        updateAdapterItems(dispatchDiff);
     }
 
     /**
      * Updates the set of filtered apps with the current filter.  At this point, we expect
      * mCachedSectionNames to have been calculated for the set of all apps in mApps.
      */
-    private void updateAdapterItems() {
-        refillAdapterItems();
-        refreshRecyclerView();
+    private void updateAdapterItems(boolean dispatchDiff) {
+        if (mAdapter == null) {
+            refillAdapterItems();
+        } else if (dispatchDiff) {
+            ArrayList<AdapterItem> oldItems = new ArrayList<>(mAdapterItems);
+            refillAdapterItems();
+            DiffUtil.calculateDiff(new AdapterItemsDiff(oldItems, mAdapterItems))
+                    .dispatchUpdatesTo(mAdapter);
+        } else {
+            refillAdapterItems();
+            mAdapter.notifyDataSetChanged();
+        }
     }
 
-    private void refreshRecyclerView() {
-        if (mAdapter != null) {
-            mAdapter.notifyDataSetChanged();
+    private long getItemId(AppInfo info) {
+        ComponentKey key = info.toComponentKey();
+        Long id = mItemIds.get(key);
+        if (id == null) {
+            id = (long) mItemIds.size();
+            mItemIds.put(key, id);
         }
+        return id;
     }
 
     private void refillAdapterItems() {
@@ -310,6 +429,7 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
 
             // Create an app item
             AdapterItem appItem = AdapterItem.asApp(position++, sectionName, info, appIndex++);
+            appItem.itemId = getItemId(info);
             if (lastFastScrollerSectionInfo.fastScrollToItem == null) {
                 lastFastScrollerSectionInfo.fastScrollToItem = appItem;
             }
@@ -380,6 +500,14 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
                     break;
             }
         }
+
+        int sectionCount = mFastScrollerSections.size();
+        if (mFastScrollTouchFractions.length < sectionCount) {
+            mFastScrollTouchFractions = new float[sectionCount];
+        }
+        for (int i = 0; i < sectionCount; i++) {
+            mFastScrollTouchFractions[i] = mFastScrollerSections.get(i).touchFraction;
+        }
     }
 
     private List<AppInfo> getFiltersAppInfos() {
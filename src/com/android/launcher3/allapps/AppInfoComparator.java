@@ -42,8 +42,10 @@ public class AppInfoComparator implements Comparator<AppInfo> {
 
     @Override
     public int compare(AppInfo a, AppInfo b) {
-        // Order by the title in the current locale
-        int result = mLabelComparator.compare(a.title.toString(), b.title.toString());
+        // Order by the title in the current locale, using the keys precomputed by the model
+        int result = a.sortKey != null && b.sortKey != null
+                ? mLabelComparator.compare(a.sortKey, b.sortKey)
+                : mLabelComparator.compare(a.title.toString(), b.title.toString());
         if (result != 0) {
             return result;
         }
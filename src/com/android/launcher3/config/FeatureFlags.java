@@ -177,6 +177,31 @@ public final class FeatureFlags {
     public static final BooleanFlag USER_EVENT_DISPATCHER = new DeviceFlag(
             "USER_EVENT_DISPATCHER", true, "User event dispatcher collects logs.");
 
+    public static final BooleanFlag ENABLE_TRACE_FLIGHT_RECORDER = getDebugFlag(
+            "ENABLE_TRACE_FLIGHT_RECORDER", true,
+            "Continuously record launcher trace entries into a ring file for failure analysis");
+
+    public static final BooleanFlag ENABLE_MAPPED_WIDGET_PREVIEWS = getDebugFlag(
+            "ENABLE_MAPPED_WIDGET_PREVIEWS", false,
+            "Store widget previews as raw pixels in a memory-mapped file instead of SQLite");
+
+    public static final BooleanFlag ENABLE_FOLDER_PREVIEW_CACHE = getDebugFlag(
+            "ENABLE_FOLDER_PREVIEW_CACHE", true,
+            "Draw static folder icon previews from a cached bitmap");
+
+    public static final BooleanFlag ENABLE_ASYNC_DRAG_PREVIEW = getDebugFlag(
+            "ENABLE_ASYNC_DRAG_PREVIEW", true,
+            "Render the drag preview of widgets off the UI thread");
+
+    public static final BooleanFlag ENABLE_WORKSPACE_PAGE_VIRTUALIZATION = getDebugFlag(
+            "ENABLE_WORKSPACE_PAGE_VIRTUALIZATION", false,
+            "Drop the views of workspace pages far from the current page and rebuild them on the"
+                    + " way back");
+
+    public static final BooleanFlag ENABLE_ALL_APPS_WARM_UP = getDebugFlag(
+            "ENABLE_ALL_APPS_WARM_UP", true,
+            "Inflate the all apps icons ahead of the first open while the main thread is idle");
+
     public static final BooleanFlag ENABLE_MINIMAL_DEVICE = new DeviceFlag(
             "ENABLE_MINIMAL_DEVICE", false,
             "Allow user to toggle minimal device mode in launcher.");
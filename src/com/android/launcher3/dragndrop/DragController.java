@@ -26,6 +26,7 @@ import android.animation.ValueAnimator;
 import android.content.ComponentName;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
+import android.graphics.Picture;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.view.DragEvent;
@@ -141,6 +142,28 @@ public class DragController implements DragDriver.EventListener, TouchController
     public DragView startDrag(Bitmap b, DraggableView originalView, int dragLayerX, int dragLayerY,
             DragSource source, ItemInfo dragInfo, Point dragOffset, Rect dragRegion,
             float initialDragViewScale, float dragViewScaleOnDrop, DragOptions options) {
+        return startDrag(b, null, originalView, dragLayerX, dragLayerY, source, dragInfo,
+                dragOffset, dragRegion, initialDragViewScale, dragViewScaleOnDrop, options);
+    }
+
+    /**
+     * Starts a drag like {@link #startDrag(Bitmap, DraggableView, int, int, DragSource, ItemInfo,
+     * Point, Rect, float, float, DragOptions)}, showing {@param placeholder} until the drag
+     * bitmap is set on the returned view using {@link DragView#setPreviewBitmap(Bitmap)}.
+     */
+    public DragView startDrag(Picture placeholder, DraggableView originalView, int dragLayerX,
+            int dragLayerY, DragSource source, ItemInfo dragInfo, Point dragOffset,
+            Rect dragRegion, float initialDragViewScale, float dragViewScaleOnDrop,
+            DragOptions options) {
+        return startDrag(null, placeholder, originalView, dragLayerX, dragLayerY, source,
+                dragInfo, dragOffset, dragRegion, initialDragViewScale, dragViewScaleOnDrop,
+                options);
+    }
+
+    private DragView startDrag(Bitmap b, Picture placeholder, DraggableView originalView,
+            int dragLayerX, int dragLayerY, DragSource source, ItemInfo dragInfo,
+            Point dragOffset, Rect dragRegion, float initialDragViewScale,
+            float dragViewScaleOnDrop, DragOptions options) {
         if (PROFILE_DRAWING_DURING_DRAG) {
             android.os.Debug.startMethodTracing("Launcher");
         }
@@ -171,8 +194,11 @@ public class DragController implements DragDriver.EventListener, TouchController
         final Resources res = mLauncher.getResources();
         final float scaleDps = mIsInPreDrag
                 ? res.getDimensionPixelSize(R.dimen.pre_drag_view_scale) : 0f;
-        final DragView dragView = mDragObject.dragView = new DragView(mLauncher, b, registrationX,
-                registrationY, initialDragViewScale, dragViewScaleOnDrop, scaleDps);
+        final DragView dragView = mDragObject.dragView = b != null
+                ? new DragView(mLauncher, b, registrationX, registrationY,
+                        initialDragViewScale, dragViewScaleOnDrop, scaleDps)
+                : new DragView(mLauncher, placeholder, registrationX, registrationY,
+                        initialDragViewScale, dragViewScaleOnDrop, scaleDps);
         dragView.setItemInfo(dragInfo);
         mDragObject.dragComplete = false;
 
@@ -30,6 +30,7 @@ import android.graphics.ColorMatrix;
 import android.graphics.ColorMatrixColorFilter;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.Picture;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.graphics.drawable.AdaptiveIconDrawable;
@@ -69,6 +70,10 @@ public class DragView extends View implements StateListener<LauncherState> {
 
     private boolean mDrawBitmap = true;
     private Bitmap mBitmap;
+    // Drawn instead of the bitmap until it is rendered, see DragPreviewProvider#recordDragPicture
+    private Picture mPlaceholder;
+    private final int mWidth;
+    private final int mHeight;
     private Bitmap mCrossFadeBitmap;
     @Thunk Paint mPaint;
     private final int mBlurSizeOutline;
@@ -120,13 +125,30 @@ public class DragView extends View implements StateListener<LauncherState> {
      */
     public DragView(Launcher launcher, Bitmap bitmap, int registrationX, int registrationY,
                     final float initialScale, final float scaleOnDrop, final float finalScaleDps) {
+        this(launcher, bitmap, null, bitmap.getWidth(), bitmap.getHeight(), registrationX,
+                registrationY, initialScale, scaleOnDrop, finalScaleDps);
+    }
+
+    /**
+     * Construct a drag view which draws {@param placeholder} until the bitmap is set using
+     * {@link #setPreviewBitmap(Bitmap)}.
+     */
+    public DragView(Launcher launcher, Picture placeholder, int registrationX, int registrationY,
+                    final float initialScale, final float scaleOnDrop, final float finalScaleDps) {
+        this(launcher, null, placeholder, placeholder.getWidth(), placeholder.getHeight(),
+                registrationX, registrationY, initialScale, scaleOnDrop, finalScaleDps);
+    }
+
+    private DragView(Launcher launcher, Bitmap bitmap, Picture placeholder, int width, int height,
+            int registrationX, int registrationY, final float initialScale,
+            final float scaleOnDrop, final float finalScaleDps) {
         super(launcher);
         mLauncher = launcher;
         mDragLayer = launcher.getDragLayer();
         mDragController = launcher.getDragController();
         mFirstFrameAnimatorHelper = new FirstFrameAnimatorHelper(this);
 
-        final float scale = (bitmap.getWidth() + finalScaleDps) / bitmap.getWidth();
+        final float scale = (width + finalScaleDps) / width;
 
         // Set the initial scale to avoid any jumps
         setScaleX(initialScale);
@@ -145,7 +167,10 @@ public class DragView extends View implements StateListener<LauncherState> {
         });
 
         mBitmap = bitmap;
-        setDragRegion(new Rect(0, 0, bitmap.getWidth(), bitmap.getHeight()));
+        mPlaceholder = placeholder;
+        mWidth = width;
+        mHeight = height;
+        setDragRegion(new Rect(0, 0, width, height));
 
         // The point in our scaled bitmap that the touch events are located
         mRegistrationX = registrationX;
@@ -200,8 +225,8 @@ public class DragView extends View implements StateListener<LauncherState> {
             @Override
             public void run() {
                 Object[] outObj = new Object[1];
-                int w = mBitmap.getWidth();
-                int h = mBitmap.getHeight();
+                int w = mWidth;
+                int h = mHeight;
                 Drawable dr = Utilities.getFullDrawable(mLauncher, info, w, h, outObj);
 
                 if (dr instanceof AdaptiveIconDrawable) {
@@ -311,7 +336,7 @@ public class DragView extends View implements StateListener<LauncherState> {
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        setMeasuredDimension(mBitmap.getWidth(), mBitmap.getHeight());
+        setMeasuredDimension(mWidth, mHeight);
     }
 
     /** Sets the scale of the view over the normal workspace icon size. */
@@ -355,15 +380,31 @@ public class DragView extends View implements StateListener<LauncherState> {
         return mDragRegion;
     }
 
+    /**
+     * Returns the bitmap of the dragged item, or null if it is still being rendered.
+     */
     public Bitmap getPreviewBitmap() {
         return mBitmap;
     }
 
+    /**
+     * Replaces the placeholder with the rendered bitmap of the dragged item.
+     */
+    public void setPreviewBitmap(Bitmap bitmap) {
+        mBitmap = bitmap;
+        mPlaceholder = null;
+        invalidate();
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         mHasDrawn = true;
 
-        if (mDrawBitmap) {
+        if (mDrawBitmap && mBitmap == null) {
+            if (mPlaceholder != null) {
+                canvas.drawPicture(mPlaceholder);
+            }
+        } else if (mDrawBitmap) {
             // Always draw the bitmap to mask anti aliasing due to clipPath
             boolean crossFade = mCrossFadeProgress > 0 && mCrossFadeBitmap != null;
             if (crossFade) {
@@ -374,8 +415,8 @@ public class DragView extends View implements StateListener<LauncherState> {
             if (crossFade) {
                 mPaint.setAlpha((int) (255 * mCrossFadeProgress));
                 final int saveCount = canvas.save();
-                float sX = (mBitmap.getWidth() * 1.0f) / mCrossFadeBitmap.getWidth();
-                float sY = (mBitmap.getHeight() * 1.0f) / mCrossFadeBitmap.getHeight();
+                float sX = (mWidth * 1.0f) / mCrossFadeBitmap.getWidth();
+                float sY = (mHeight * 1.0f) / mCrossFadeBitmap.getHeight();
                 canvas.scale(sX, sY);
                 canvas.drawBitmap(mCrossFadeBitmap, 0.0f, 0.0f, mPaint);
                 canvas.restoreToCount(saveCount);
@@ -472,8 +513,8 @@ public class DragView extends View implements StateListener<LauncherState> {
 
         // Start the pick-up animation
         DragLayer.LayoutParams lp = new DragLayer.LayoutParams(0, 0);
-        lp.width = mBitmap.getWidth();
-        lp.height = mBitmap.getHeight();
+        lp.width = mWidth;
+        lp.height = mHeight;
         lp.customPosition = true;
         setLayoutParams(lp);
         move(touchX, touchY);
@@ -576,7 +576,7 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
             openFolder.close(true);
         }
 
-        mContent.bindItems(items);
+        mContent.bindItems(items, pageNo);
         centerAboutIcon();
         mItemsInvalidated = true;
         updateTextViewFocus();
@@ -1414,23 +1414,12 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
         return mItemsInReadingOrder;
     }
 
+    /**
+     * Returns the icons on {@param page} in reading order, without creating the icons of the
+     * other pages.
+     */
     public List<BubbleTextView> getItemsOnPage(int page) {
-        ArrayList<View> allItems = getIconsInReadingOrder();
-        int lastPage = mContent.getPageCount() - 1;
-        int totalItemsInFolder = allItems.size();
-        int itemsPerPage = mContent.itemsPerPage();
-        int numItemsOnCurrentPage = page == lastPage
-                ? totalItemsInFolder - (itemsPerPage * page)
-                : itemsPerPage;
-
-        int startIndex = page * itemsPerPage;
-        int endIndex = Math.min(startIndex + numItemsOnCurrentPage, allItems.size());
-
-        List<BubbleTextView> itemsOnCurrentPage = new ArrayList<>(numItemsOnCurrentPage);
-        for (int i = startIndex; i < endIndex; ++i) {
-            itemsOnCurrentPage.add((BubbleTextView) allItems.get(i));
-        }
-        return itemsOnCurrentPage;
+        return mContent.getIconsOnPage(page);
     }
 
     @Override
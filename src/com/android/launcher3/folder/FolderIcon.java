@@ -580,6 +580,7 @@ public class FolderIcon extends FrameLayout implements FolderListener, IconLabel
     public void setFolderBackground(PreviewBackground bg) {
         mBackground = bg;
         mBackground.setInvalidateDelegate(this);
+        mPreviewItemManager.onParamsChanged();
     }
 
     @Override
@@ -614,10 +615,7 @@ public class FolderIcon extends FrameLayout implements FolderListener, IconLabel
 
         if (mCurrentPreviewItems.isEmpty() && !mAnimating) return;
 
-        final int saveCount = canvas.save();
-        canvas.clipPath(mBackground.getClipPath());
-        mPreviewItemManager.draw(canvas);
-        canvas.restoreToCount(saveCount);
+        mPreviewItemManager.drawClipped(canvas, mAnimating);
 
         if (!mBackground.drawingDelegated()) {
             mBackground.drawBackgroundStroke(canvas);
@@ -664,6 +662,12 @@ public class FolderIcon extends FrameLayout implements FolderListener, IconLabel
         return mPreviewItemManager.verifyDrawable(who) || super.verifyDrawable(who);
     }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mPreviewItemManager.recycleLayer();
+    }
+
     @Override
     public void onItemsChanged(boolean animate) {
         updatePreviewItems(animate);
@@ -23,9 +23,11 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
 import android.util.ArrayMap;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseArray;
 import android.view.Gravity;
 import android.view.View;
 import android.view.ViewDebug;
@@ -50,14 +52,15 @@ import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.pageindicators.PageIndicatorDots;
 import com.android.launcher3.touch.ItemClickHandler;
 import com.android.launcher3.util.Thunk;
+import com.android.launcher3.util.TraceHelper;
 import com.android.launcher3.util.ViewCache;
 
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.function.ToIntFunction;
-import java.util.stream.Collectors;
 
 public class FolderPagedView extends PagedView<PageIndicatorDots> {
 
@@ -72,8 +75,20 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> {
      */
     private static final float SCROLL_HINT_FRACTION = 0.07f;
 
+    // Number of pages on each side of the current page whose icons are created when binding
+    private static final int BOUND_PAGE_DISTANCE = 1;
+
+    // Upper bounds of the item count buckets used for the bind stats
+    private static final int[] BIND_STATS_BUCKETS = {16, 48, 100, Integer.MAX_VALUE};
+
     private static final int[] sTmpArray = new int[2];
 
+    // Bind stats, per item count bucket. Only cover bindItems, not the open animation which
+    // follows it. Accessed on the UI thread only
+    private static final int[] sBindCounts = new int[BIND_STATS_BUCKETS.length];
+    private static final long[] sBindNanos = new long[BIND_STATS_BUCKETS.length];
+    private static final int[] sBoundIcons = new int[BIND_STATS_BUCKETS.length];
+
     public final boolean mIsRtl;
 
     private final ViewGroupFocusHelper mFocusIndicatorHelper;
@@ -95,6 +110,9 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> {
     // animating or is open.
     private boolean mViewsBound = false;
 
+    // Items of the pages whose icons are not created yet, keyed by page
+    private final SparseArray<List<WorkspaceItemInfo>> mUnboundPages = new SparseArray<>();
+
     public FolderPagedView(Context context, AttributeSet attrs) {
         super(context, attrs);
         InvariantDeviceProfile profile = LauncherAppState.getIDP(context);
@@ -135,20 +153,90 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> {
     }
 
     /**
-     * Binds items to the layout.
+     * Binds items to the layout. Only the icons of {@param currentPage} and its adjacent pages
+     * are created, the other pages get their icons when they are scrolled to, or when all the
+     * icons are needed, for example for a drag.
      */
-    public void bindItems(List<WorkspaceItemInfo> items) {
+    public void bindItems(List<WorkspaceItemInfo> items, int currentPage) {
+        Object traceToken = TraceHelper.INSTANCE.beginSection("FolderBindItems");
+        long startTime = SystemClock.elapsedRealtimeNanos();
         if (mViewsBound) {
             unbindItems();
         }
-        arrangeChildren(items.stream().map(this::createNewView).collect(Collectors.toList()));
+        int itemsPerPage = mOrganizer.getMaxItemsPerPage();
+        int firstBoundRank = (currentPage - BOUND_PAGE_DISTANCE) * itemsPerPage;
+        int lastBoundRank = (currentPage + BOUND_PAGE_DISTANCE + 1) * itemsPerPage - 1;
+
+        // Skipped items keep their place in the list, so that all the pages are created
+        ArrayList<View> views = new ArrayList<>(items.size());
+        int boundIcons = 0;
+        for (int rank = 0; rank < items.size(); rank++) {
+            if (rank >= firstBoundRank && rank <= lastBoundRank) {
+                views.add(createNewView(items.get(rank)));
+                boundIcons++;
+            } else {
+                views.add(null);
+            }
+        }
+        arrangeChildren(views);
+
+        if (boundIcons < items.size()) {
+            for (int page = 0; page * itemsPerPage < items.size(); page++) {
+                if (Math.abs(page - currentPage) > BOUND_PAGE_DISTANCE) {
+                    int start = page * itemsPerPage;
+                    int end = Math.min(start + itemsPerPage, items.size());
+                    mUnboundPages.put(page, new ArrayList<>(items.subList(start, end)));
+                }
+            }
+        }
         mViewsBound = true;
+        onItemsBound(items.size(), boundIcons, SystemClock.elapsedRealtimeNanos() - startTime);
+        TraceHelper.INSTANCE.endSection(traceToken);
+    }
+
+    /**
+     * Creates the icons of {@param pageNo} if they were skipped when binding.
+     */
+    private void bindPage(int pageNo) {
+        List<WorkspaceItemInfo> items = mUnboundPages.get(pageNo);
+        if (items == null) {
+            return;
+        }
+        mUnboundPages.remove(pageNo);
+        int rank = pageNo * mOrganizer.getMaxItemsPerPage();
+        for (WorkspaceItemInfo item : items) {
+            View icon = createNewView(item);
+            addViewForRank(icon, item, rank);
+            if (mOrganizer.isItemInPreview(rank)) {
+                ((BubbleTextView) icon).verifyHighRes();
+            }
+            rank++;
+        }
+    }
+
+    /**
+     * Creates the icons of all the pages which were skipped when binding.
+     */
+    private void bindAllPages() {
+        while (mUnboundPages.size() > 0) {
+            bindPage(mUnboundPages.keyAt(0));
+        }
+    }
+
+    private void bindPagesNear(int pageNo) {
+        if (mUnboundPages.size() == 0) {
+            return;
+        }
+        for (int i = pageNo - BOUND_PAGE_DISTANCE; i <= pageNo + BOUND_PAGE_DISTANCE; i++) {
+            bindPage(i);
+        }
     }
 
     /**
      * Removes all the icons from the folder
      */
     public void unbindItems() {
+        mUnboundPages.clear();
         for (int i = getChildCount() - 1; i >= 0; i--) {
             CellLayout page = (CellLayout) getChildAt(i);
             ShortcutAndWidgetContainer container = page.getShortcutsAndWidgets();
@@ -275,6 +363,8 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> {
      */
     @SuppressLint("RtlHardcoded")
     public void arrangeChildren(List<View> list) {
+        // The list holds all the views, any previously skipped page is replaced
+        mUnboundPages.clear();
         int itemCount = list.size();
         ArrayList<CellLayout> pages = new ArrayList<>();
         for (int i = 0; i < getChildCount(); i++) {
@@ -374,6 +464,7 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> {
         if (getChildCount() < 1) {
             return null;
         }
+        bindPage(getNextPage());
         ShortcutAndWidgetContainer container = getCurrentCellLayout().getShortcutsAndWidgets();
         int rank = rankProvider.applyAsInt(container);
         if (mGridCountX > 0) {
@@ -388,6 +479,7 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> {
      * @return the view for which the operator returned true.
      */
     public View iterateOverItems(ItemOperator op) {
+        bindAllPages();
         for (int k = 0 ; k < getChildCount(); k++) {
             CellLayout page = getPageAt(k);
             for (int j = 0; j < page.getCountY(); j++) {
@@ -402,6 +494,27 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> {
         return null;
     }
 
+    /**
+     * Returns the icons on {@param pageNo} in reading order, creating them if needed.
+     */
+    public List<BubbleTextView> getIconsOnPage(int pageNo) {
+        ArrayList<BubbleTextView> icons = new ArrayList<>();
+        CellLayout page = getPageAt(pageNo);
+        if (page == null) {
+            return icons;
+        }
+        bindPage(pageNo);
+        for (int j = 0; j < page.getCountY(); j++) {
+            for (int i = 0; i < page.getCountX(); i++) {
+                View v = page.getChildAt(i, j);
+                if (v != null) {
+                    icons.add((BubbleTextView) v);
+                }
+            }
+        }
+        return icons;
+    }
+
     public String getAccessibilityDescription() {
         return getContext().getString(R.string.folder_opened, mGridCountX, mGridCountY);
     }
@@ -410,6 +523,7 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> {
      * Sets the focus on the first visible child.
      */
     public void setFocusOnFirstChild() {
+        bindPage(getNextPage());
         View firstChild = getCurrentCellLayout().getChildAt(0, 0);
         if (firstChild != null) {
             firstChild.requestFocus();
@@ -418,6 +532,8 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> {
 
     @Override
     protected void notifyPageSwitchListener(int prevPage) {
+        // Create the icons before the pages are scrolled into view
+        bindPagesNear(getNextPage());
         super.notifyPageSwitchListener(prevPage);
         if (mFolder != null) {
             mFolder.updateTextViewFocus();
@@ -503,6 +619,7 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> {
         if (!mViewsBound) {
             return;
         }
+        bindAllPages();
         completePendingPageChanges();
         int delay = 0;
         float delayAmount = START_VIEW_REORDER_DELAY;
@@ -631,4 +748,28 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> {
     public int itemsPerPage() {
         return mOrganizer.getMaxItemsPerPage();
     }
+
+    private static void onItemsBound(int itemCount, int boundIcons, long nanos) {
+        int bucket = 0;
+        while (itemCount > BIND_STATS_BUCKETS[bucket]) {
+            bucket++;
+        }
+        sBindCounts[bucket]++;
+        sBindNanos[bucket] += nanos;
+        sBoundIcons[bucket] += boundIcons;
+    }
+
+    public static void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "FolderPagedView bind stats:");
+        for (int i = 0; i < BIND_STATS_BUCKETS.length; i++) {
+            if (sBindCounts[i] == 0) {
+                continue;
+            }
+            String bucket = i == BIND_STATS_BUCKETS.length - 1
+                    ? ">" + BIND_STATS_BUCKETS[i - 1] : "<=" + BIND_STATS_BUCKETS[i];
+            writer.println(prefix + "  items" + bucket + ": binds=" + sBindCounts[i]
+                    + " avgBindUs=" + sBindNanos[i] / sBindCounts[i] / 1000
+                    + " avgIconsCreated=" + sBoundIcons[i] / sBindCounts[i]);
+        }
+    }
 }
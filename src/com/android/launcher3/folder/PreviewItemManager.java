@@ -31,6 +31,7 @@ import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
 import android.util.FloatProperty;
 import android.view.View;
 import android.widget.TextView;
@@ -38,6 +39,7 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 
 import com.android.launcher3.Utilities;
+import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.graphics.PreloadIconDrawable;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.views.ActivityContext;
@@ -84,6 +86,9 @@ public class PreviewItemManager {
     private float mCurrentPageItemsTransX = 0;
     private boolean mShouldSlideInFirstPage;
 
+    // Rendering of the static preview, reused until the preview items change
+    private final PreviewLayerCache mLayerCache = new PreviewLayerCache();
+
     static final int INITIAL_ITEM_ANIMATION_DURATION = 350;
     private static final int FINAL_ITEM_ANIMATION_DURATION = 200;
 
@@ -139,6 +144,7 @@ public class PreviewItemManager {
                     Utilities.isRtl(mIcon.getResources()));
 
             updatePreviewItems(false);
+            mLayerCache.invalidate();
         }
     }
 
@@ -192,9 +198,55 @@ public class PreviewItemManager {
     }
 
     public void onParamsChanged() {
+        mLayerCache.invalidate();
         mIcon.invalidate();
     }
 
+    /**
+     * Draws the preview items clipped to the folder background. While the preview is static,
+     * the clipped items are drawn from a cached bitmap.
+     *
+     * @param animating true if the folder icon itself is animating
+     */
+    public void drawClipped(Canvas canvas, boolean animating) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        PreviewBackground bg = mIcon.getFolderBackground();
+        boolean cached = !animating && FeatureFlags.ENABLE_FOLDER_PREVIEW_CACHE.get()
+                && isPreviewStatic(bg) && mLayerCache.draw(canvas, bg, this::drawClippedItems);
+        if (!cached) {
+            drawClippedItems(canvas);
+        }
+        PreviewLayerCache.onPreviewDrawn(cached, SystemClock.elapsedRealtimeNanos() - start);
+    }
+
+    private void drawClippedItems(Canvas canvas) {
+        final int saveCount = canvas.save();
+        canvas.clipPath(mIcon.getFolderBackground().getClipPath());
+        draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    private boolean isPreviewStatic(PreviewBackground bg) {
+        if (mShouldSlideInFirstPage || bg.getScaledRadius() != bg.getRadius()) {
+            return false;
+        }
+        for (int i = 0; i < mFirstPageParams.size(); i++) {
+            PreviewItemDrawingParams p = mFirstPageParams.get(i);
+            // Pending icons draw their install progress
+            if (p.anim != null || p.drawable instanceof PreloadIconDrawable) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Releases the cached preview, when the folder icon is no longer shown.
+     */
+    void recycleLayer() {
+        mLayerCache.recycle();
+    }
+
     private void drawPreviewItem(Canvas canvas, PreviewItemDrawingParams params) {
         canvas.save();
         canvas.translate(params.transX, params.transY);
@@ -222,12 +274,14 @@ public class PreviewItemManager {
                 mFirstPageParams.get(index) : null;
         if (params != null) {
             params.hidden = hidden;
+            mLayerCache.invalidate();
         }
     }
 
     void buildParamsForPage(int page, ArrayList<PreviewItemDrawingParams> params, boolean animate) {
         List<WorkspaceItemInfo> items = mIcon.getPreviewItemsOnPage(page);
         int prevNumItems = params.size();
+        mLayerCache.invalidate();
 
         // We adjust the size of the list to match the number of items in the preview.
         while (items.size() < params.size()) {
@@ -394,6 +448,7 @@ public class PreviewItemManager {
     }
 
     private void setDrawable(PreviewItemDrawingParams p, WorkspaceItemInfo item) {
+        mLayerCache.invalidate();
         if (item.hasPromiseIconUi()) {
             PreloadIconDrawable drawable = newPendingIcon(mContext, item);
             drawable.setLevel(item.getInstallProgress());
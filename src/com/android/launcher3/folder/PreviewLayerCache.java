@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.folder;
+
+import static com.android.launcher3.Utilities.ATLEAST_P;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Picture;
+import android.os.Build;
+
+import androidx.annotation.UiThread;
+
+import java.io.PrintWriter;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the clipped preview items of a {@link FolderIcon} rendered in a bitmap, so that redrawing
+ * a folder whose preview did not change only draws that bitmap instead of clipping and drawing
+ * every preview item. The preview is recorded in a {@link Picture} and rendered into a hardware
+ * bitmap, as the icons it draws are hardware bitmaps which a software canvas can not draw.
+ */
+@TargetApi(Build.VERSION_CODES.P)
+public class PreviewLayerCache {
+
+    // Keeps the layer smooth when the folder icon is drawn scaled, e.g. while it animates
+    private static final Paint sBitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    // Stats, accessed on the UI thread only
+    private static int sCachedDraws;
+    private static long sCachedDrawNanos;
+    private static int sDirectDraws;
+    private static long sDirectDrawNanos;
+    private static int sRenders;
+
+    private final Picture mPicture = new Picture();
+    private Bitmap mBitmap;
+    private boolean mValid;
+
+    // Position and radius of the clip shape the bitmap was rendered for
+    private int mOffsetX;
+    private int mOffsetY;
+    private int mRadius;
+
+    /**
+     * Marks the cached preview as stale, to be rendered again on the next draw.
+     */
+    void invalidate() {
+        mValid = false;
+    }
+
+    /**
+     * Draws the preview rendered by {@param renderer} from the cache, rendering it first if
+     * needed. The renderer draws in folder icon coordinates and applies its own clip.
+     *
+     * @return false if the preview could not be cached, in which case nothing is drawn
+     */
+    @UiThread
+    boolean draw(Canvas canvas, PreviewBackground bg, Consumer<Canvas> renderer) {
+        if (!ATLEAST_P || !canvas.isHardwareAccelerated()) {
+            // Hardware bitmaps can only be drawn by a hardware canvas
+            return false;
+        }
+        int offsetX = bg.getOffsetX();
+        int offsetY = bg.getOffsetY();
+        int radius = bg.getScaledRadius();
+        if (!mValid || offsetX != mOffsetX || offsetY != mOffsetY || radius != mRadius) {
+            if (radius <= 0) {
+                return false;
+            }
+            int size = 2 * radius;
+            Canvas recordingCanvas = mPicture.beginRecording(size, size);
+            recordingCanvas.translate(-offsetX, -offsetY);
+            renderer.accept(recordingCanvas);
+            mPicture.endRecording();
+            mBitmap = Bitmap.createBitmap(mPicture);
+
+            mOffsetX = offsetX;
+            mOffsetY = offsetY;
+            mRadius = radius;
+            mValid = true;
+            sRenders++;
+        }
+        canvas.drawBitmap(mBitmap, offsetX, offsetY, sBitmapPaint);
+        return true;
+    }
+
+    /**
+     * Releases the rendered preview. Called when the folder icon is detached.
+     */
+    @UiThread
+    void recycle() {
+        mBitmap = null;
+        mValid = false;
+    }
+
+    /**
+     * Records the time spent drawing the preview of one folder.
+     */
+    static void onPreviewDrawn(boolean cached, long nanos) {
+        if (cached) {
+            sCachedDraws++;
+            sCachedDrawNanos += nanos;
+        } else {
+            sDirectDraws++;
+            sDirectDrawNanos += nanos;
+        }
+    }
+
+    public static void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "FolderPreviewLayerCache: renders=" + sRenders
+                + " cachedDraws=" + sCachedDraws + " avgCachedDrawNs="
+                + (sCachedDraws == 0 ? 0 : sCachedDrawNanos / sCachedDraws)
+                + " directDraws=" + sDirectDraws + " avgDirectDrawNs="
+                + (sDirectDraws == 0 ? 0 : sDirectDrawNanos / sDirectDraws));
+    }
+}
@@ -16,35 +16,53 @@
 
 package com.android.launcher3.graphics;
 
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
 import static com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR;
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BlurMaskFilter;
 import android.graphics.Canvas;
 import android.graphics.Paint;
+import android.graphics.Picture;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffXfermode;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.SystemClock;
 import android.view.View;
 
+import androidx.annotation.UiThread;
+
 import com.android.launcher3.BubbleTextView;
 import com.android.launcher3.Launcher;
 import com.android.launcher3.R;
+import com.android.launcher3.Utilities;
 import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.dragndrop.DraggableView;
 import com.android.launcher3.icons.BitmapRenderer;
 import com.android.launcher3.util.SafeCloseable;
 import com.android.launcher3.widget.LauncherAppWidgetHostView;
 
+import java.io.PrintWriter;
 import java.nio.ByteBuffer;
+import java.util.function.Consumer;
 
 /**
  * A utility class to generate preview bitmap for dragging.
  */
 public class DragPreviewProvider {
 
+    // Drag start stats, accessed on the UI thread only
+    private static int sSyncDrags;
+    private static long sSyncDragStartNanos;
+    private static int sAsyncDrags;
+    private static long sAsyncDragStartNanos;
+    private static int sAsyncRenders;
+    private static long sAsyncRenderNanos;
+
     private final Rect mTempRect = new Rect();
 
     protected final View mView;
@@ -92,21 +110,64 @@ public class DragPreviewProvider {
      * Responsibility for the bitmap is transferred to the caller.
      */
     public Bitmap createDragBitmap() {
-        int width = 0;
-        int height = 0;
         // Assume scaleX == scaleY, which is always the case for workspace items.
         float scale = mView.getScaleX();
+        getDragBitmapSize(mTempRect);
+        return BitmapRenderer.createHardwareBitmap(mTempRect.width(), mTempRect.height(),
+                (c) -> drawDragView(c, scale));
+    }
+
+    /**
+     * Returns true if the drag bitmap should be rendered off the UI thread, using
+     * {@link #recordDragPicture()} and {@link #renderDragBitmap}. This is the case for widgets,
+     * for which rendering the whole view hierarchy would delay the start of the drag.
+     */
+    public boolean shouldRenderAsync() {
+        return FeatureFlags.ENABLE_ASYNC_DRAG_PREVIEW.get() && Utilities.ATLEAST_P
+                && mView instanceof LauncherAppWidgetHostView;
+    }
+
+    /**
+     * Records the drawing of {@link #mView} in a picture, with the same size and content as
+     * {@link #createDragBitmap()}. Recording does not rasterize the view, so the picture can be
+     * shown right away while the bitmap is rendered from it.
+     */
+    @TargetApi(Build.VERSION_CODES.P)
+    public Picture recordDragPicture() {
+        float scale = mView.getScaleX();
+        getDragBitmapSize(mTempRect);
+        Picture picture = new Picture();
+        drawDragView(picture.beginRecording(mTempRect.width(), mTempRect.height()), scale);
+        picture.endRecording();
+        return picture;
+    }
+
+    /**
+     * Renders {@param picture} into a hardware bitmap on a background thread, and passes it to
+     * {@param callback} on the UI thread.
+     */
+    @TargetApi(Build.VERSION_CODES.P)
+    public static void renderDragBitmap(Picture picture, Consumer<Bitmap> callback) {
+        long startTime = SystemClock.elapsedRealtimeNanos();
+        UI_HELPER_EXECUTOR.execute(() -> {
+            Bitmap bitmap = Bitmap.createBitmap(picture);
+            MAIN_EXECUTOR.execute(() -> {
+                sAsyncRenders++;
+                sAsyncRenderNanos += SystemClock.elapsedRealtimeNanos() - startTime;
+                callback.accept(bitmap);
+            });
+        });
+    }
+
+    private void getDragBitmapSize(Rect outRect) {
         if (mView instanceof DraggableView) {
-            ((DraggableView) mView).getSourceVisualDragBounds(mTempRect);
-            width = mTempRect.width();
-            height = mTempRect.height();
+            ((DraggableView) mView).getSourceVisualDragBounds(outRect);
+            outRect.offsetTo(0, 0);
         } else {
-            width = mView.getWidth();
-            height = mView.getHeight();
+            outRect.set(0, 0, mView.getWidth(), mView.getHeight());
         }
-
-        return BitmapRenderer.createHardwareBitmap(width + blurSizeOutline,
-                height + blurSizeOutline, (c) -> drawDragView(c, scale));
+        outRect.right += blurSizeOutline;
+        outRect.bottom += blurSizeOutline;
     }
 
     public final void generateDragOutline(Bitmap preview) {
@@ -130,6 +191,15 @@ public class DragPreviewProvider {
     }
 
     public float getScaleAndPosition(Bitmap preview, int[] outPos) {
+        return getScaleAndPosition(preview.getWidth(), preview.getHeight(), outPos);
+    }
+
+    /**
+     * Same as {@link #getScaleAndPosition(Bitmap, int[])} for a preview which is not rendered
+     * yet. Subclasses with a custom preview position only override the bitmap variant, and do
+     * not render their preview asynchronously.
+     */
+    public float getScaleAndPosition(int previewWidth, int previewHeight, int[] outPos) {
         float scale = Launcher.getLauncher(mView.getContext())
                 .getDragLayer().getLocationInDragLayer(mView, outPos);
         if (mView instanceof LauncherAppWidgetHostView) {
@@ -139,12 +209,36 @@ public class DragPreviewProvider {
         }
 
         outPos[0] = Math.round(outPos[0] -
-                (preview.getWidth() - scale * mView.getWidth() * mView.getScaleX()) / 2);
-        outPos[1] = Math.round(outPos[1] - (1 - scale) * preview.getHeight() / 2
+                (previewWidth - scale * mView.getWidth() * mView.getScaleX()) / 2);
+        outPos[1] = Math.round(outPos[1] - (1 - scale) * previewHeight / 2
                 - previewPadding / 2);
         return scale;
     }
 
+    /**
+     * Records the time the UI thread spent starting a drag.
+     */
+    @UiThread
+    public static void onDragStarted(boolean async, long nanos) {
+        if (async) {
+            sAsyncDrags++;
+            sAsyncDragStartNanos += nanos;
+        } else {
+            sSyncDrags++;
+            sSyncDragStartNanos += nanos;
+        }
+    }
+
+    public static void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "DragPreviewProvider: syncDrags=" + sSyncDrags
+                + " avgSyncDragStartUs="
+                + (sSyncDrags == 0 ? 0 : sSyncDragStartNanos / sSyncDrags / 1000)
+                + " asyncDrags=" + sAsyncDrags + " avgAsyncDragStartUs="
+                + (sAsyncDrags == 0 ? 0 : sAsyncDragStartNanos / sAsyncDrags / 1000)
+                + " avgAsyncRenderUs="
+                + (sAsyncRenders == 0 ? 0 : sAsyncRenderNanos / sAsyncRenders / 1000));
+    }
+
     protected Bitmap convertPreviewToAlphaBitmap(Bitmap preview) {
         return preview.copy(Bitmap.Config.ALPHA_8, true);
     }
@@ -50,6 +50,8 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextClock;
 
+import androidx.annotation.Nullable;
+
 import com.android.launcher3.BubbleTextView;
 import com.android.launcher3.CellLayout;
 import com.android.launcher3.DeviceProfile;
@@ -71,6 +73,7 @@ import com.android.launcher3.icons.LauncherIcons;
 import com.android.launcher3.model.AllAppsList;
 import com.android.launcher3.model.BgDataModel;
 import com.android.launcher3.model.BgDataModel.Callbacks;
+import com.android.launcher3.model.GridSizeMigrationTaskV2;
 import com.android.launcher3.model.LoaderResults;
 import com.android.launcher3.model.LoaderTask;
 import com.android.launcher3.model.WidgetItem;
@@ -208,16 +211,24 @@ public class LauncherPreviewRenderer {
     private final InvariantDeviceProfile mIdp;
     private final DeviceProfile mDp;
     private final boolean mMigrated;
+    private final boolean mPlanMigration;
     private final Rect mInsets;
 
     private final WorkspaceItemInfo mWorkspaceItemInfo;
 
-    public LauncherPreviewRenderer(Context context, InvariantDeviceProfile idp, boolean migrated) {
+    /**
+     * @param migrated whether the workspace was migrated into the preview table.
+     * @param planMigration whether the loaded workspace should be moved to the positions planned
+     *                      for the grid of {@param idp}, without touching the database.
+     */
+    public LauncherPreviewRenderer(Context context, InvariantDeviceProfile idp, boolean migrated,
+            boolean planMigration) {
         mUiHandler = new Handler(Looper.getMainLooper());
         mContext = context;
         mIdp = idp;
         mDp = idp.portraitProfile.copy(context);
         mMigrated = migrated;
+        mPlanMigration = planMigration;
 
         // TODO: get correct insets once display cutout API is available.
         mInsets = new Rect();
@@ -409,7 +420,7 @@ public class LauncherPreviewRenderer {
                     fetcher = new WorkspaceItemsInfoFromPreviewFetcher(appForPreview);
                     MODEL_EXECUTOR.execute(fetcher);
                 } else {
-                    fetcher = new WorkspaceItemsInfoFetcher();
+                    fetcher = new WorkspaceItemsInfoFetcher(mPlanMigration ? mIdp : null);
                     LauncherAppState.getInstance(mContext).getModel().enqueueModelUpdateTask(
                             (LauncherModel.ModelUpdateTask) fetcher);
                 }
@@ -527,12 +538,18 @@ public class LauncherPreviewRenderer {
             WorkspaceFetcher {
 
         private final FutureTask<WorkspaceResult> mTask = new FutureTask<>(this);
+        @Nullable
+        private final InvariantDeviceProfile mMigrationIdp;
 
         private LauncherAppState mApp;
         private LauncherModel mModel;
         private BgDataModel mBgDataModel;
         private AllAppsList mAllAppsList;
 
+        WorkspaceItemsInfoFetcher(@Nullable InvariantDeviceProfile migrationIdp) {
+            mMigrationIdp = migrationIdp;
+        }
+
         @Override
         public void init(LauncherAppState app, LauncherModel model, BgDataModel dataModel,
                 AllAppsList allAppsList, Executor uiExecutor) {
@@ -560,10 +577,35 @@ public class LauncherPreviewRenderer {
                         new LoaderResults(mApp, mBgDataModel, mAllAppsList, new Callbacks[0]));
                 return null;
             }
+            if (mMigrationIdp != null) {
+                return planMigration();
+            }
 
             return new WorkspaceResult(mBgDataModel.workspaceItems, mBgDataModel.appWidgets,
                     mBgDataModel.cachedPredictedItems, mBgDataModel.widgetsModel, null);
         }
+
+        /**
+         * Returns the items at the positions planned for {@link #mMigrationIdp}. The plan is
+         * computed in memory, the saved layout of the new grid is only read.
+         */
+        private WorkspaceResult planMigration() {
+            List<ItemInfo> items = new ArrayList<>(mBgDataModel.workspaceItems);
+            items.addAll(mBgDataModel.appWidgets);
+
+            ArrayList<ItemInfo> workspaceItems = new ArrayList<>();
+            ArrayList<LauncherAppWidgetInfo> appWidgets = new ArrayList<>();
+            for (ItemInfo item : GridSizeMigrationTaskV2.planInMemory(
+                    mApp.getContext(), mMigrationIdp, items, mAllAppsList.data)) {
+                if (item instanceof LauncherAppWidgetInfo) {
+                    appWidgets.add((LauncherAppWidgetInfo) item);
+                } else {
+                    workspaceItems.add(item);
+                }
+            }
+            return new WorkspaceResult(workspaceItems, appWidgets,
+                    mBgDataModel.cachedPredictedItems, mBgDataModel.widgetsModel, null);
+        }
     }
 
     private static class WorkspaceItemsInfoFromPreviewFetcher extends LoaderTask implements
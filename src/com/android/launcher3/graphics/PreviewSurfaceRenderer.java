@@ -99,6 +99,8 @@ public class PreviewSurfaceRenderer implements IBinder.DeathRecipient {
 
         MODEL_EXECUTOR.post(() -> {
             final boolean success = doGridMigrationIfNecessary();
+            final boolean planMigration = MULTI_DB_GRID_MIRATION_ALGO.get()
+                    && GridSizeMigrationTaskV2.needsToMigrate(mContext, mIdp);
 
             MAIN_EXECUTOR.post(() -> {
                 // If mSurfaceControlViewHost is null due to any reason (e.g. binder died,
@@ -109,7 +111,8 @@ public class PreviewSurfaceRenderer implements IBinder.DeathRecipient {
                     return;
                 }
 
-                View view = new LauncherPreviewRenderer(mContext, mIdp, success).getRenderedView();
+                View view = new LauncherPreviewRenderer(mContext, mIdp, success, planMigration)
+                        .getRenderedView();
                 // This aspect scales the view to fit in the surface and centers it
                 final float scale = Math.min(mWidth / (float) view.getMeasuredWidth(),
                         mHeight / (float) view.getMeasuredHeight());
@@ -153,16 +156,15 @@ public class PreviewSurfaceRenderer implements IBinder.DeathRecipient {
         mHostToken.unlinkToDeath(this, 0);
     }
 
+    /**
+     * Migrates the workspace into the preview table. This is only needed for the old migration
+     * algorithm, the multi-db one plans the preview in memory instead.
+     */
     private boolean doGridMigrationIfNecessary() {
-        boolean needsToMigrate =
-                MULTI_DB_GRID_MIRATION_ALGO.get()
-                        ? GridSizeMigrationTaskV2.needsToMigrate(mContext, mIdp)
-                        : GridSizeMigrationTask.needsToMigrate(mContext, mIdp);
-        if (!needsToMigrate) {
+        if (MULTI_DB_GRID_MIRATION_ALGO.get()
+                || !GridSizeMigrationTask.needsToMigrate(mContext, mIdp)) {
             return false;
         }
-        return MULTI_DB_GRID_MIRATION_ALGO.get()
-                ? GridSizeMigrationTaskV2.migrateGridIfNeeded(mContext, mIdp)
-                : GridSizeMigrationTask.migrateGridIfNeeded(mContext, mIdp);
+        return GridSizeMigrationTask.migrateGridIfNeeded(mContext, mIdp);
     }
 }
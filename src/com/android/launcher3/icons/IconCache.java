@@ -51,6 +51,7 @@ import com.android.launcher3.model.data.ItemInfoWithIcon;
 import com.android.launcher3.model.data.PackageItemInfo;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.provider.LauncherDbUtils;
 import com.android.launcher3.shortcuts.ShortcutKey;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.InstantAppResolver;
@@ -78,6 +79,7 @@ public class IconCache extends BaseIconCache {
     private final UserCache mUserManager;
     private final InstantAppResolver mInstantAppResolver;
     private final IconProvider mIconProvider;
+    private final String mDbFileName;
 
     private int mPendingIconRequestCount = 0;
 
@@ -95,6 +97,21 @@ public class IconCache extends BaseIconCache {
         mUserManager = UserCache.INSTANCE.get(mContext);
         mInstantAppResolver = InstantAppResolver.newInstance(mContext);
         mIconProvider = new IconProvider(context);
+        mDbFileName = dbFileName;
+    }
+
+    /**
+     * Checks the integrity of the icon DB and compacts it. The cache lock is held and the DB
+     * connection is closed meanwhile, so that the VACUUM does not run next to other connections.
+     *
+     * @return a summary of the maintenance, for logging
+     */
+    public synchronized String runDbMaintenance() {
+        Preconditions.assertWorkerThread();
+        // SQLiteCacheHelper does not expose its connection, close it instead. It is opened again
+        // on the next access.
+        mIconDb.close();
+        return LauncherDbUtils.runMaintenance(mContext, mDbFileName);
     }
 
     @Override
@@ -15,18 +15,25 @@
  */
 package com.android.launcher3.logging;
 
-
-import android.util.Log;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.text.SimpleDateFormat;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
- * A utility class to record and log events. Events are stored in a fixed size array and old logs
- * are purged as new events come.
+ * A utility class to record and log events. Events are stored in a fixed size ring buffer of
+ * primitive records and old logs are purged as new events come.
+ *
+ * Events are identified by an id returned from {@link #registerEvent(String)}, so that adding a
+ * log never formats strings or allocates, and can be done from any thread without locking.
+ * Records are only decoded into text when the log is dumped.
  */
 public class EventLogArray {
 
@@ -35,49 +42,106 @@ public class EventLogArray {
     private static final int TYPE_INTEGER = 2;
     private static final int TYPE_BOOL_TRUE = 3;
     private static final int TYPE_BOOL_FALSE = 4;
+    private static final int TYPE_POSITION = 5;
+
+    private static final int BINARY_MAGIC = 0x454c4f47; // "ELOG"
+    private static final int BINARY_VERSION = 1;
 
     private final String name;
-    private final EventEntry[] logs;
-    private int nextIndex;
-    private int mLogId;
+    private final int mSize;
+
+    // Record fields, indexed by slot
+    private final int[] mEventIds;
+    private final byte[] mTypes;
+    private final float[] mFloatExtras;
+    private final int[] mIntExtras;
+    private final int[] mTraceIds;
+    private final long[] mTimes;
+
+    // The sequence number (+1) of the record published in each slot, 0 if the slot is empty and
+    // -1 while it is being written.
+    private final AtomicLongArray mSlotSequences;
+    private final AtomicLong mNextSequence = new AtomicLong();
+
+    // Guarded by itself
+    private final ArrayList<String> mEventNames = new ArrayList<>();
+    private final ArrayList<ExtrasFormatter> mFormatters = new ArrayList<>();
+
+    private volatile int mLogId;
 
     public EventLogArray(String name, int size) {
         this.name = name;
-        logs = new EventEntry[size];
-        nextIndex = 0;
+        mSize = size;
+        mEventIds = new int[size];
+        mTypes = new byte[size];
+        mFloatExtras = new float[size];
+        mIntExtras = new int[size];
+        mTraceIds = new int[size];
+        mTimes = new long[size];
+        mSlotSequences = new AtomicLongArray(size);
     }
 
-    public void addLog(String event) {
-        addLog(TYPE_ONE_OFF, event, 0);
+    /**
+     * Registers a new event type and returns its id, to be used with {@link #addLog(int)}.
+     * Events should be registered once, typically in a static initializer.
+     */
+    public int registerEvent(String event) {
+        return registerEvent(event, null);
     }
 
-    public void addLog(String event, int extras) {
-        addLog(TYPE_INTEGER, event, extras);
+    /**
+     * Registers a new event type with a formatter used to decode its integer extras at dump time.
+     */
+    public int registerEvent(String event, ExtrasFormatter formatter) {
+        synchronized (mEventNames) {
+            mEventNames.add(event);
+            mFormatters.add(formatter);
+            return mEventNames.size() - 1;
+        }
     }
 
-    public void addLog(String event, boolean extras) {
-        addLog(extras ? TYPE_BOOL_TRUE : TYPE_BOOL_FALSE, event, 0);
+    public void addLog(int eventId) {
+        addLog(TYPE_ONE_OFF, eventId, 0, 0);
     }
 
-    private void addLog(int type, String event, float extras) {
-        // Merge the logs if its a duplicate
-        int last = (nextIndex + logs.length - 1) % logs.length;
-        int secondLast = (nextIndex + logs.length - 2) % logs.length;
-        if (isEntrySame(logs[last], type, event) && isEntrySame(logs[secondLast], type, event)) {
-            logs[last].update(type, event, extras, mLogId);
-            logs[secondLast].duplicateCount++;
-            return;
-        }
+    public void addLog(int eventId, int extras) {
+        addLog(TYPE_INTEGER, eventId, 0, extras);
+    }
 
-        if (logs[nextIndex] == null) {
-            logs[nextIndex] = new EventEntry();
-        }
-        logs[nextIndex].update(type, event, extras, mLogId);
-        nextIndex = (nextIndex + 1) % logs.length;
+    public void addLog(int eventId, float extras) {
+        addLog(TYPE_FLOAT, eventId, extras, 0);
+    }
+
+    public void addLog(int eventId, boolean extras) {
+        addLog(extras ? TYPE_BOOL_TRUE : TYPE_BOOL_FALSE, eventId, 0, 0);
+    }
+
+    /**
+     * Logs an event at the given screen position.
+     */
+    public void addLogPosition(int eventId, float x, float y) {
+        addLog(TYPE_POSITION, eventId, x, (int) y);
+    }
+
+    private void addLog(int type, int eventId, float floatExtras, int intExtras) {
+        long sequence = mNextSequence.getAndIncrement();
+        int slot = (int) (sequence % mSize);
+
+        // Mark the slot as being written, so that a concurrent dump skips it.
+        mSlotSequences.getAndSet(slot, -1);
+        mEventIds[slot] = eventId;
+        mTypes[slot] = (byte) type;
+        mFloatExtras[slot] = floatExtras;
+        mIntExtras[slot] = intExtras;
+        mTraceIds[slot] = mLogId;
+        mTimes[slot] = System.currentTimeMillis();
+        mSlotSequences.set(slot, sequence + 1);
     }
 
     public void clear() {
-        Arrays.setAll(logs, (i) -> null);
+        for (int i = 0; i < mSize; i++) {
+            mSlotSequences.set(i, 0);
+        }
     }
 
     public void dump(String prefix, PrintWriter writer) {
@@ -85,35 +149,131 @@ public class EventLogArray {
         SimpleDateFormat sdf = new SimpleDateFormat("  HH:mm:ss.SSSZ  ", Locale.US);
         Date date = new Date();
 
-        for (int i = 0; i < logs.length; i++) {
-            EventEntry log = logs[(nextIndex + logs.length - i - 1) % logs.length];
-            if (log == null) {
+        Record pending = null;
+        Record record = new Record();
+        long next = mNextSequence.get();
+        for (long sequence = next - 1; sequence >= 0 && sequence >= next - mSize; sequence--) {
+            if (!readRecord(sequence, record)) {
                 continue;
             }
-            date.setTime(log.time);
-
-            StringBuilder msg = new StringBuilder(prefix).append(sdf.format(date))
-                    .append(log.event);
-            switch (log.type) {
-                case TYPE_BOOL_FALSE:
-                    msg.append(": false");
-                    break;
-                case TYPE_BOOL_TRUE:
-                    msg.append(": true");
-                    break;
-                case TYPE_FLOAT:
-                    msg.append(": ").append(log.extras);
-                    break;
-                case TYPE_INTEGER:
-                    msg.append(": ").append((int) log.extras);
-                    break;
-                default: // fall out
+            // Merge consecutive duplicate events, keeping the latest one.
+            if (pending != null && pending.eventId == record.eventId
+                    && pending.type == record.type) {
+                pending.duplicateCount++;
+                continue;
+            }
+            if (pending != null) {
+                dumpRecord(prefix, writer, pending, sdf, date);
+            } else {
+                pending = new Record();
+            }
+            pending.copyFrom(record);
+        }
+        if (pending != null) {
+            dumpRecord(prefix, writer, pending, sdf, date);
+        }
+    }
+
+    private void dumpRecord(String prefix, PrintWriter writer, Record log, SimpleDateFormat sdf,
+            Date date) {
+        date.setTime(log.time);
+        StringBuilder msg = new StringBuilder(prefix).append(sdf.format(date))
+                .append(getEventName(log.eventId));
+        switch (log.type) {
+            case TYPE_BOOL_FALSE:
+                msg.append(": false");
+                break;
+            case TYPE_BOOL_TRUE:
+                msg.append(": true");
+                break;
+            case TYPE_FLOAT:
+                msg.append(": ").append(log.floatExtras);
+                break;
+            case TYPE_INTEGER:
+                ExtrasFormatter formatter = getFormatter(log.eventId);
+                msg.append(": ").append(formatter == null
+                        ? Integer.toString(log.intExtras) : formatter.format(log.intExtras));
+                break;
+            case TYPE_POSITION:
+                msg.append("(").append((int) log.floatExtras).append(", ")
+                        .append(log.intExtras).append(")");
+                break;
+            default: // fall out
+        }
+        if (log.duplicateCount > 0) {
+            msg.append(" & ").append(log.duplicateCount).append(" similar events");
+        }
+        msg.append(" traceId: ").append(log.traceId);
+        writer.println(msg);
+    }
+
+    /**
+     * Writes the log in a compact binary form, oldest record first, for offline analysis. The
+     * format is: magic, version, log name, the event name table, followed by the records.
+     */
+    public void writeBinary(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(BINARY_MAGIC);
+        out.writeInt(BINARY_VERSION);
+        out.writeUTF(name);
+        synchronized (mEventNames) {
+            out.writeInt(mEventNames.size());
+            for (String event : mEventNames) {
+                out.writeUTF(event);
             }
-            if (log.duplicateCount > 0) {
-                msg.append(" & ").append(log.duplicateCount).append(" similar events");
+        }
+
+        ArrayList<Record> records = new ArrayList<>(mSize);
+        long next = mNextSequence.get();
+        for (long sequence = Math.max(0, next - mSize); sequence < next; sequence++) {
+            Record record = new Record();
+            if (readRecord(sequence, record)) {
+                records.add(record);
             }
-            msg.append(" traceId: ").append(log.traceId);
-            writer.println(msg);
+        }
+        out.writeInt(records.size());
+        for (Record record : records) {
+            out.writeShort(record.eventId);
+            out.writeByte(record.type);
+            out.writeFloat(record.floatExtras);
+            out.writeInt(record.intExtras);
+            out.writeInt(record.traceId);
+            out.writeLong(record.time);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads the record with the given sequence number into {@param out}.
+     * @return false if the record is no longer available or is being overwritten
+     */
+    private boolean readRecord(long sequence, Record out) {
+        int slot = (int) (sequence % mSize);
+        if (mSlotSequences.get(slot) != sequence + 1) {
+            return false;
+        }
+        out.eventId = mEventIds[slot];
+        out.type = mTypes[slot];
+        out.floatExtras = mFloatExtras[slot];
+        out.intExtras = mIntExtras[slot];
+        out.traceId = mTraceIds[slot];
+        out.time = mTimes[slot];
+        out.duplicateCount = 0;
+        // A plain re-read could be reordered before the field reads. The compare and set is a
+        // volatile write, which the field reads can not move past: if it succeeds, no writer
+        // claimed the slot before the fields were read.
+        return mSlotSequences.compareAndSet(slot, sequence + 1, sequence + 1);
+    }
+
+    private String getEventName(int eventId) {
+        synchronized (mEventNames) {
+            return eventId < mEventNames.size() ? mEventNames.get(eventId) : "event#" + eventId;
+        }
+    }
+
+    private ExtrasFormatter getFormatter(int eventId) {
+        synchronized (mEventNames) {
+            return eventId < mFormatters.size() ? mFormatters.get(eventId) : null;
         }
     }
 
@@ -124,27 +284,32 @@ public class EventLogArray {
         return mLogId;
     }
 
-    private boolean isEntrySame(EventEntry entry, int type, String event) {
-        return entry != null && entry.type == type && entry.event.equals(event);
+    /**
+     * Converts the integer extras of an event into a readable form when the log is dumped.
+     */
+    public interface ExtrasFormatter {
+        String format(int extras);
     }
 
-    /** A single event entry. */
-    private static class EventEntry {
+    /** A single decoded event record. */
+    private static class Record {
 
+        private int eventId;
         private int type;
-        private String event;
-        private float extras;
+        private float floatExtras;
+        private int intExtras;
+        private int traceId;
         private long time;
         private int duplicateCount;
-        private int traceId;
 
-        public void update(int type, String event, float extras, int traceId) {
-            this.type = type;
-            this.event = event;
-            this.extras = extras;
-            this.traceId = traceId;
-            time = System.currentTimeMillis();
-            duplicateCount = 0;
+        void copyFrom(Record other) {
+            eventId = other.eventId;
+            type = other.type;
+            floatExtras = other.floatExtras;
+            intExtras = other.intExtras;
+            traceId = other.traceId;
+            time = other.time;
+            duplicateCount = other.duplicateCount;
         }
     }
 }
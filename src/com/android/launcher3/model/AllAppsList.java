@@ -41,6 +41,7 @@ import com.android.launcher3.model.data.PromiseAppInfo;
 import com.android.launcher3.pm.PackageInstallInfo;
 import com.android.launcher3.util.FlagOp;
 import com.android.launcher3.util.ItemInfoMatcher;
+import com.android.launcher3.util.LabelComparator;
 import com.android.launcher3.util.PackageManagerHelper;
 import com.android.launcher3.util.SafeCloseable;
 
@@ -72,6 +73,7 @@ public class AllAppsList {
     private Consumer<AppInfo> mRemoveListener = NO_OP_CONSUMER;
 
     private AlphabeticIndexCompat mIndex;
+    private LabelComparator mLabelComparator;
 
     /**
      * @see Callbacks#FLAG_HAS_SHORTCUT_PERMISSION
@@ -87,6 +89,7 @@ public class AllAppsList {
         mIconCache = iconCache;
         mAppFilter = appFilter;
         mIndex = new AlphabeticIndexCompat(LocaleList.getDefault());
+        mLabelComparator = new LabelComparator();
     }
 
     /**
@@ -139,7 +142,7 @@ public class AllAppsList {
             return;
         }
         mIconCache.getTitleAndIcon(info, activityInfo, true /* useLowResIcon */);
-        info.sectionName = mIndex.computeSectionName(info.title);
+        updateSortKeys(info);
 
         data.add(info);
         mDataChanged = true;
@@ -152,7 +155,7 @@ public class AllAppsList {
         if (applicationInfo == null) {
             PromiseAppInfo info = new PromiseAppInfo(installInfo);
             mIconCache.getTitleAndIcon(info, info.usingLowResIcon());
-            info.sectionName = mIndex.computeSectionName(info.title);
+            updateSortKeys(info);
 
             data.add(info);
             mDataChanged = true;
@@ -192,6 +195,20 @@ public class AllAppsList {
         mDataChanged = false;
         // Reset the index as locales might have changed
         mIndex = new AlphabeticIndexCompat(LocaleList.getDefault());
+        mLabelComparator = new LabelComparator();
+    }
+
+    /**
+     * Updates the section name and the sort key of {@param info}, unless its title is the same
+     * as when they were computed.
+     */
+    private void updateSortKeys(AppInfo info) {
+        String title = info.title == null ? "" : info.title.toString();
+        if (info.sortKey != null && info.sortKey.getSourceString().equals(title)) {
+            return;
+        }
+        info.sectionName = mIndex.computeSectionName(title);
+        info.sortKey = mLabelComparator.getCollationKey(title);
     }
 
     /**
@@ -235,7 +252,7 @@ public class AllAppsList {
         for (AppInfo info : data) {
             if (info.user.equals(user) && packages.contains(info.componentName.getPackageName())) {
                 mIconCache.updateTitleAndIcon(info);
-                info.sectionName = mIndex.computeSectionName(info.title);
+                updateSortKeys(info);
                 mDataChanged = true;
             }
         }
@@ -269,7 +286,7 @@ public class AllAppsList {
                     add(new AppInfo(context, info, user), info);
                 } else {
                     mIconCache.getTitleAndIcon(applicationInfo, info, true /* useLowResIcon */);
-                    applicationInfo.sectionName = mIndex.computeSectionName(applicationInfo.title);
+                    updateSortKeys(applicationInfo);
 
                     mDataChanged = true;
                 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.text.format.DateUtils;
+
+import com.android.launcher3.LauncherAppState;
+import com.android.launcher3.LauncherModel;
+
+/**
+ * Runs {@link DbMaintenanceTask} about once a day, while the device is idle and charging.
+ */
+public class DbMaintenanceService extends JobService {
+
+    // Job ids are shared by the whole app, 1 is used for the wallpaper color extraction
+    public static final int DB_MAINTENANCE_JOB_ID = 2;
+
+    private static final long MAINTENANCE_INTERVAL_MS = DateUtils.DAY_IN_MILLIS;
+
+    private DbMaintenanceTask mTask;
+
+    /**
+     * Schedules the maintenance, unless it is already scheduled.
+     */
+    public static void schedule(Context context) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        if (scheduler.getPendingJob(DB_MAINTENANCE_JOB_ID) != null) {
+            // Scheduling again would restart the interval
+            return;
+        }
+        scheduler.schedule(new JobInfo.Builder(DB_MAINTENANCE_JOB_ID,
+                new ComponentName(context, DbMaintenanceService.class))
+                .setRequiresDeviceIdle(true)
+                .setRequiresCharging(true)
+                .setPeriodic(MAINTENANCE_INTERVAL_MS)
+                .build());
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        LauncherModel model = LauncherAppState.getInstance(this).getModel();
+        if (!model.isModelLoaded()) {
+            // The task only runs on a loaded model, try again in the next interval
+            return false;
+        }
+        mTask = new DbMaintenanceTask(() -> jobFinished(params, false));
+        model.enqueueModelUpdateTask(mTask);
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        if (mTask != null) {
+            mTask.cancel();
+            mTask = null;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.os.SystemClock;
+
+import com.android.launcher3.LauncherAppState;
+import com.android.launcher3.LauncherSettings;
+import com.android.launcher3.logging.FileLog;
+
+/**
+ * Batches the cleanups of the launcher databases which do not need to happen while the user is
+ * waiting: empty folders and ghost widgets in the favorites DB, obsolete widget previews, and
+ * an integrity check and compaction of the favorites, widget previews and icon cache DBs.
+ */
+public class DbMaintenanceTask extends BaseModelUpdateTask {
+
+    private static final String TAG = "DbMaintenanceTask";
+
+    private final Runnable mOnComplete;
+    private volatile boolean mCancelled;
+
+    /**
+     * @param onComplete called on the model thread once all the steps have run
+     */
+    public DbMaintenanceTask(Runnable onComplete) {
+        mOnComplete = onComplete;
+    }
+
+    /**
+     * Skips the remaining steps. The step in progress, if any, still completes.
+     */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    @Override
+    public void execute(LauncherAppState app, BgDataModel dataModel, AllAppsList apps) {
+        long startTime = SystemClock.uptimeMillis();
+        Context context = app.getContext();
+        ContentResolver resolver = context.getContentResolver();
+
+        int[] deletedFolderIds = LauncherSettings.Settings.call(resolver,
+                LauncherSettings.Settings.METHOD_DELETE_EMPTY_FOLDERS)
+                .getIntArray(LauncherSettings.Settings.EXTRA_VALUE);
+        boolean needsReload = false;
+        synchronized (dataModel) {
+            for (int folderId : deletedFolderIds) {
+                if (dataModel.folders.get(folderId) != null) {
+                    dataModel.workspaceItems.remove(dataModel.folders.get(folderId));
+                    dataModel.folders.remove(folderId);
+                    dataModel.itemsIdMap.remove(folderId);
+                    needsReload = true;
+                }
+            }
+        }
+        if (needsReload) {
+            // A bound folder was removed, rebind so that the workspace matches the DB
+            app.getModel().forceReload();
+        }
+
+        if (!mCancelled) {
+            LauncherSettings.Settings.call(resolver,
+                    LauncherSettings.Settings.METHOD_REMOVE_GHOST_WIDGETS);
+        }
+        if (!mCancelled) {
+            LauncherSettings.Settings.call(resolver,
+                    LauncherSettings.Settings.METHOD_RUN_DB_MAINTENANCE);
+        }
+        if (!mCancelled) {
+            app.getWidgetCache().sweepAllObsoletePreviews();
+            FileLog.d(TAG, app.getWidgetCache().runDbMaintenance());
+        }
+        if (!mCancelled) {
+            FileLog.d(TAG, app.getIconCache().runDbMaintenance());
+        }
+        if (mCancelled) {
+            FileLog.d(TAG, "Maintenance cancelled after "
+                    + (SystemClock.uptimeMillis() - startTime) + "ms");
+            return;
+        }
+        FileLog.d(TAG, "Maintenance completed in "
+                + (SystemClock.uptimeMillis() - startTime) + "ms, removed "
+                + deletedFolderIds.length + " empty folders");
+        mOnComplete.run();
+    }
+}
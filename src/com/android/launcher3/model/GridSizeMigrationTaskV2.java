@@ -30,11 +30,15 @@ import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.database.Cursor;
 import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.graphics.Point;
+import android.os.Process;
 import android.util.ArrayMap;
 import android.util.Log;
+import android.util.SparseArray;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.launcher3.InvariantDeviceProfile;
@@ -43,13 +47,19 @@ import com.android.launcher3.LauncherAppWidgetProviderInfo;
 import com.android.launcher3.LauncherSettings;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.graphics.LauncherPreviewRenderer;
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.model.data.FolderInfo;
 import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.model.data.LauncherAppWidgetInfo;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.pm.InstallSessionHelper;
 import com.android.launcher3.provider.LauncherDbUtils.SQLiteTransaction;
 import com.android.launcher3.util.GridOccupancy;
 import com.android.launcher3.util.IntArray;
 import com.android.launcher3.widget.WidgetManagerHelper;
 
+import java.io.File;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -74,14 +84,12 @@ public class GridSizeMigrationTaskV2 {
     private final DbReader mSrcReader;
     private final DbReader mDestReader;
 
-    private final List<DbEntry> mHotseatItems;
-    private final List<DbEntry> mWorkspaceItems;
+    private final List<DbEntry> mSrcHotseatItems;
+    private final List<DbEntry> mSrcWorkspaceItems;
+    private final List<DbEntry> mDestHotseatItems;
+    private final List<DbEntry> mDestWorkspaceItems;
 
-    private final List<DbEntry> mHotseatDiff;
-    private final List<DbEntry> mWorkspaceDiff;
-
-    private final int mDestHotseatSize;
-    private final int mTrgX, mTrgY;
+    private final MigrationPlanner mPlanner;
 
     @VisibleForTesting
     protected GridSizeMigrationTaskV2(Context context, SQLiteDatabase db, DbReader srcReader,
@@ -91,15 +99,12 @@ public class GridSizeMigrationTaskV2 {
         mSrcReader = srcReader;
         mDestReader = destReader;
 
-        mHotseatItems = destReader.loadHotseatEntries();
-        mWorkspaceItems = destReader.loadAllWorkspaceEntries();
-
-        mHotseatDiff = calcDiff(mSrcReader.loadHotseatEntries(), mHotseatItems);
-        mWorkspaceDiff = calcDiff(mSrcReader.loadAllWorkspaceEntries(), mWorkspaceItems);
-        mDestHotseatSize = destHotseatSize;
+        mDestHotseatItems = destReader.loadHotseatEntries();
+        mDestWorkspaceItems = destReader.loadAllWorkspaceEntries();
+        mSrcHotseatItems = srcReader.loadHotseatEntries();
+        mSrcWorkspaceItems = srcReader.loadAllWorkspaceEntries();
 
-        mTrgX = targetSize.x;
-        mTrgY = targetSize.y;
+        mPlanner = new MigrationPlanner(destHotseatSize, targetSize);
     }
 
     /**
@@ -208,43 +213,198 @@ public class GridSizeMigrationTaskV2 {
         }
     }
 
-    @VisibleForTesting
-    protected boolean migrate() {
-        if (mHotseatDiff.isEmpty() && mWorkspaceDiff.isEmpty()) {
-            return false;
+    /**
+     * Plans the migration of the loaded desktop and hotseat {@param items} to the grid of
+     * {@param idp} in memory, so that a preview of the new grid does not need to copy and
+     * migrate the database. As in {@link #migrateGridIfNeeded(Context, InvariantDeviceProfile)},
+     * the items are merged into the layout already saved for the new grid, which is only read.
+     *
+     * @param apps used to show the saved apps which are not among the loaded items.
+     * @return copies of the items to show on the new grid, at their planned position.
+     */
+    public static ArrayList<ItemInfo> planInMemory(Context context, InvariantDeviceProfile idp,
+            List<? extends ItemInfo> items, List<AppInfo> apps) {
+        ArrayList<DbEntry> srcHotseatEntries = new ArrayList<>();
+        ArrayList<DbEntry> srcWorkspaceEntries = new ArrayList<>();
+        WidgetManagerHelper widgetManagerHelper = new WidgetManagerHelper(context);
+        for (ItemInfo item : items) {
+            DbEntry entry = DbEntry.fromItem(item, widgetManagerHelper);
+            if (entry == null) {
+                continue;
+            }
+            if (item.container == LauncherSettings.Favorites.CONTAINER_HOTSEAT) {
+                srcHotseatEntries.add(entry);
+            } else if (item.container == LauncherSettings.Favorites.CONTAINER_DESKTOP) {
+                srcWorkspaceEntries.add(entry);
+            }
         }
 
-        // Migrate hotseat
-        HotseatPlacementSolution hotseatSolution = new HotseatPlacementSolution(mDb, mSrcReader,
-                mDestReader, mContext, mDestHotseatSize, mHotseatItems, mHotseatDiff);
-        hotseatSolution.find();
+        List<DbEntry> destHotseatEntries = new ArrayList<>();
+        List<DbEntry> destWorkspaceEntries = new ArrayList<>();
+        File dbFile = context.getDatabasePath(idp.dbFile);
+        if (dbFile.exists()) {
+            try (SQLiteDatabase db = SQLiteDatabase.openDatabase(
+                    dbFile.getPath(), null, SQLiteDatabase.OPEN_READONLY)) {
+                DbReader destReader = new DbReader(db, LauncherSettings.Favorites.TABLE_NAME,
+                        context, getValidPackages(context), idp.numHotseatIcons,
+                        true /* readOnly */);
+                destHotseatEntries = destReader.loadHotseatEntries();
+                destWorkspaceEntries = destReader.loadAllWorkspaceEntries();
+            } catch (SQLException e) {
+                Log.e(TAG, "Error reading the layout of " + idp.dbFile, e);
+            }
+        }
 
-        // Sort the items by the reading order.
-        Collections.sort(mWorkspaceDiff);
+        ArrayList<ItemInfo> result = new ArrayList<>();
+        addPreviewItems(destHotseatEntries, LauncherSettings.Favorites.CONTAINER_HOTSEAT,
+                srcHotseatEntries, apps, result);
+        addPreviewItems(destWorkspaceEntries, LauncherSettings.Favorites.CONTAINER_DESKTOP,
+                srcWorkspaceEntries, apps, result);
 
-        // Migrate workspace.
-        for (int screenId = 0; screenId <= mDestReader.mLastScreenId; screenId++) {
-            if (DEBUG) {
-                Log.d(TAG, "Migrating " + screenId);
+        MigrationPlanner planner = new MigrationPlanner(idp.numHotseatIcons,
+                new Point(idp.numColumns, idp.numRows));
+        for (DbEntry entry : planner.plan(srcHotseatEntries, srcWorkspaceEntries,
+                destHotseatEntries, destWorkspaceEntries)) {
+            result.add(entry.copyItem(entry.mItem, entry.container));
+        }
+        return result;
+    }
+
+    /**
+     * Adds to {@param result} the items shown for the saved {@param destEntries}, using the
+     * loaded item with the same content, or the app for an app which is not loaded.
+     */
+    private static void addPreviewItems(List<DbEntry> destEntries, int container,
+            List<DbEntry> srcEntries, List<AppInfo> apps, ArrayList<ItemInfo> result) {
+        Map<String, ItemInfo> itemsByIntent = new HashMap<>();
+        Map<Map<String, Integer>, ItemInfo> foldersByIntents = new HashMap<>();
+        Map<String, ItemInfo> widgetsByProvider = new HashMap<>();
+        for (DbEntry entry : srcEntries) {
+            if (entry.itemType == LauncherSettings.Favorites.ITEM_TYPE_FOLDER) {
+                foldersByIntents.put(getFolderIntents(entry), entry.mItem);
+            } else if (entry.itemType == LauncherSettings.Favorites.ITEM_TYPE_APPWIDGET) {
+                widgetsByProvider.put(entry.mProvider, entry.mItem);
+            } else {
+                itemsByIntent.put(entry.mIntent, entry.mItem);
             }
-            GridPlacementSolution workspaceSolution = new GridPlacementSolution(mDb, mSrcReader,
-                    mDestReader, mContext, screenId, mTrgX, mTrgY, mWorkspaceDiff);
-            workspaceSolution.find();
-            if (mWorkspaceDiff.isEmpty()) {
-                break;
+        }
+
+        for (DbEntry entry : destEntries) {
+            ItemInfo item;
+            if (entry.itemType == LauncherSettings.Favorites.ITEM_TYPE_FOLDER) {
+                item = foldersByIntents.get(getFolderIntents(entry));
+            } else if (entry.itemType == LauncherSettings.Favorites.ITEM_TYPE_APPWIDGET) {
+                item = widgetsByProvider.get(entry.mProvider);
+            } else {
+                item = itemsByIntent.get(entry.mIntent);
+                if (item == null && entry.itemType
+                        == LauncherSettings.Favorites.ITEM_TYPE_APPLICATION) {
+                    item = findApp(entry.mIntent, apps);
+                }
+            }
+            if (item == null) {
+                // The cells stay occupied for the planner, but there is nothing loaded to show
+                Log.d(TAG, "No loaded item to preview saved item " + entry.id);
+                continue;
             }
+            result.add(entry.copyItem(item, container));
         }
+    }
 
-        int screenId = mDestReader.mLastScreenId + 1;
-        while (!mWorkspaceDiff.isEmpty()) {
-            GridPlacementSolution workspaceSolution = new GridPlacementSolution(mDb, mSrcReader,
-                    mDestReader, mContext, screenId, mTrgX, mTrgY, mWorkspaceDiff);
-            workspaceSolution.find();
-            screenId++;
+    @Nullable
+    private static WorkspaceItemInfo findApp(String intentStr, List<AppInfo> apps) {
+        ComponentName cn;
+        try {
+            cn = Intent.parseUri(intentStr, 0).getComponent();
+        } catch (URISyntaxException e) {
+            return null;
+        }
+        if (cn == null) {
+            return null;
+        }
+        for (AppInfo app : apps) {
+            if (cn.equals(app.componentName) && Process.myUserHandle().equals(app.user)) {
+                return new WorkspaceItemInfo(app);
+            }
+        }
+        return null;
+    }
+
+    @VisibleForTesting
+    protected boolean migrate() {
+        ArrayList<DbEntry> entriesToAdd = mPlanner.plan(mSrcHotseatItems, mSrcWorkspaceItems,
+                mDestHotseatItems, mDestWorkspaceItems);
+        if (entriesToAdd.isEmpty()) {
+            return false;
         }
+        applyPlan(entriesToAdd);
         return true;
     }
 
+    /**
+     * Copies the planned entries, and the items in the planned folders, from the source table
+     * into the destination table in a single transaction.
+     */
+    private void applyPlan(List<DbEntry> entries) {
+        IntArray ids = new IntArray();
+        for (DbEntry entry : entries) {
+            ids.add(entry.id);
+            if (entry.itemType == LauncherSettings.Favorites.ITEM_TYPE_FOLDER) {
+                for (Set<Integer> itemIds : entry.mFolderItems.values()) {
+                    for (int itemId : itemIds) {
+                        ids.add(itemId);
+                    }
+                }
+            }
+        }
+
+        // Read all the rows at once instead of querying for every entry
+        SparseArray<ContentValues> rows = new SparseArray<>(ids.size());
+        try (Cursor c = mDb.query(mSrcReader.mTableName, null,
+                Utilities.createDbSelectionQuery(LauncherSettings.Favorites._ID, ids),
+                null, null, null, null)) {
+            int indexId = c.getColumnIndexOrThrow(LauncherSettings.Favorites._ID);
+            while (c.moveToNext()) {
+                ContentValues values = new ContentValues();
+                DatabaseUtils.cursorRowToContentValues(c, values);
+                rows.put(c.getInt(indexId), values);
+            }
+        }
+
+        try (SQLiteTransaction t = new SQLiteTransaction(mDb)) {
+            for (DbEntry entry : entries) {
+                ContentValues values = rows.get(entry.id);
+                if (values == null) {
+                    continue;
+                }
+                entry.updateContentValues(values);
+                int folderId = insertWithNewId(values);
+
+                if (entry.itemType == LauncherSettings.Favorites.ITEM_TYPE_FOLDER) {
+                    for (Set<Integer> itemIds : entry.mFolderItems.values()) {
+                        for (int itemId : itemIds) {
+                            ContentValues itemValues = rows.get(itemId);
+                            if (itemValues != null) {
+                                itemValues.put(LauncherSettings.Favorites.CONTAINER, folderId);
+                                insertWithNewId(itemValues);
+                            }
+                        }
+                    }
+                }
+            }
+            t.commit();
+        }
+    }
+
+    private int insertWithNewId(ContentValues values) {
+        int newId = LauncherSettings.Settings.call(mContext.getContentResolver(),
+                LauncherSettings.Settings.METHOD_NEW_ITEM_ID).getInt(
+                LauncherSettings.Settings.EXTRA_VALUE);
+        values.put(LauncherSettings.Favorites._ID, newId);
+        mDb.insert(mDestReader.mTableName, null, values);
+        return newId;
+    }
+
     /** Return what's in the src but not in the dest */
     private static List<DbEntry> calcDiff(List<DbEntry> src, List<DbEntry> dest) {
         Set<String> destIntentSet = new HashSet<>();
@@ -279,53 +439,6 @@ public class GridSizeMigrationTaskV2 {
         return folder;
     }
 
-    private static void insertEntryInDb(SQLiteDatabase db, Context context, DbEntry entry,
-            String srcTableName, String destTableName) {
-        int id = copyEntryAndUpdate(db, context, entry, srcTableName, destTableName);
-
-        if (entry.itemType == LauncherSettings.Favorites.ITEM_TYPE_FOLDER) {
-            for (Set<Integer> itemIds : entry.mFolderItems.values()) {
-                for (int itemId : itemIds) {
-                    copyEntryAndUpdate(db, context, itemId, id, srcTableName, destTableName);
-                }
-            }
-        }
-    }
-
-    private static int copyEntryAndUpdate(SQLiteDatabase db, Context context,
-            DbEntry entry, String srcTableName, String destTableName) {
-        return copyEntryAndUpdate(db, context, entry, -1, -1, srcTableName, destTableName);
-    }
-
-    private static int copyEntryAndUpdate(SQLiteDatabase db, Context context,
-            int id, int folderId, String srcTableName, String destTableName) {
-        return copyEntryAndUpdate(db, context, null, id, folderId, srcTableName, destTableName);
-    }
-
-    private static int copyEntryAndUpdate(SQLiteDatabase db, Context context,
-            DbEntry entry, int id, int folderId, String srcTableName, String destTableName) {
-        int newId = -1;
-        Cursor c = db.query(srcTableName, null,
-                LauncherSettings.Favorites._ID + " = '" + (entry != null ? entry.id : id) + "'",
-                null, null, null, null);
-        while (c.moveToNext()) {
-            ContentValues values = new ContentValues();
-            DatabaseUtils.cursorRowToContentValues(c, values);
-            if (entry != null) {
-                entry.updateContentValues(values);
-            } else {
-                values.put(LauncherSettings.Favorites.CONTAINER, folderId);
-            }
-            newId = LauncherSettings.Settings.call(context.getContentResolver(),
-                    LauncherSettings.Settings.METHOD_NEW_ITEM_ID).getInt(
-                    LauncherSettings.Settings.EXTRA_VALUE);
-            values.put(LauncherSettings.Favorites._ID, newId);
-            db.insert(destTableName, null, values);
-        }
-        c.close();
-        return newId;
-    }
-
     private static void removeEntryFromDb(SQLiteDatabase db, String tableName, IntArray entryIds) {
         db.delete(tableName,
                 Utilities.createDbSelectionQuery(LauncherSettings.Favorites._ID, entryIds), null);
@@ -348,40 +461,94 @@ public class GridSizeMigrationTaskV2 {
         return validPackages;
     }
 
+    /**
+     * Computes where the items missing from the destination grid should go, only using the
+     * entries in memory. As it does not touch the database, the same plan can be computed for a
+     * preview and then applied in a single transaction.
+     */
+    public static class MigrationPlanner {
+
+        private final int mDestHotseatSize;
+        private final int mTrgX;
+        private final int mTrgY;
+
+        public MigrationPlanner(int destHotseatSize, Point targetSize) {
+            mDestHotseatSize = destHotseatSize;
+            mTrgX = targetSize.x;
+            mTrgY = targetSize.y;
+        }
+
+        /**
+         * Returns the source entries which should be added to the destination, updated with their
+         * new position. Entries which cannot fit on the destination grid are left out.
+         */
+        public ArrayList<DbEntry> plan(List<DbEntry> srcHotseatItems,
+                List<DbEntry> srcWorkspaceItems, List<DbEntry> destHotseatItems,
+                List<DbEntry> destWorkspaceItems) {
+            ArrayList<DbEntry> placedEntries = new ArrayList<>();
+            List<DbEntry> hotseatDiff = calcDiff(srcHotseatItems, destHotseatItems);
+            List<DbEntry> workspaceDiff = calcDiff(srcWorkspaceItems, destWorkspaceItems);
+            if (hotseatDiff.isEmpty() && workspaceDiff.isEmpty()) {
+                return placedEntries;
+            }
+
+            // Migrate hotseat
+            new HotseatPlacementSolution(mDestHotseatSize, destHotseatItems, hotseatDiff,
+                    placedEntries).find();
+
+            // Sort the items by the reading order.
+            Collections.sort(workspaceDiff);
+
+            Map<Integer, List<DbEntry>> destEntriesByScreenId = new ArrayMap<>();
+            for (DbEntry entry : destWorkspaceItems) {
+                List<DbEntry> screenEntries = destEntriesByScreenId.get(entry.screenId);
+                if (screenEntries == null) {
+                    screenEntries = new ArrayList<>();
+                    destEntriesByScreenId.put(entry.screenId, screenEntries);
+                }
+                screenEntries.add(entry);
+            }
+
+            // Migrate workspace, filling the existing screens first and then adding new ones.
+            for (int screenId = 0; !workspaceDiff.isEmpty(); screenId++) {
+                if (DEBUG) {
+                    Log.d(TAG, "Migrating " + screenId);
+                }
+                new GridPlacementSolution(screenId, mTrgX, mTrgY,
+                        destEntriesByScreenId.get(screenId), workspaceDiff, placedEntries).find();
+            }
+            return placedEntries;
+        }
+    }
+
     protected static class GridPlacementSolution {
 
-        private final SQLiteDatabase mDb;
-        private final DbReader mSrcReader;
-        private final DbReader mDestReader;
-        private final Context mContext;
         private final GridOccupancy mOccupied;
         private final int mScreenId;
         private final int mTrgX;
         private final int mTrgY;
         private final List<DbEntry> mItemsToPlace;
+        private final List<DbEntry> mPlacedEntries;
 
         private int mNextStartX;
         private int mNextStartY;
 
-        GridPlacementSolution(SQLiteDatabase db, DbReader srcReader, DbReader destReader,
-                Context context, int screenId, int trgX, int trgY, List<DbEntry> itemsToPlace) {
-            mDb = db;
-            mSrcReader = srcReader;
-            mDestReader = destReader;
-            mContext = context;
+        GridPlacementSolution(int screenId, int trgX, int trgY,
+                @Nullable List<DbEntry> existingEntries, List<DbEntry> itemsToPlace,
+                List<DbEntry> placedEntries) {
             mOccupied = new GridOccupancy(trgX, trgY);
             mScreenId = screenId;
             mTrgX = trgX;
             mTrgY = trgY;
             mNextStartX = 0;
             mNextStartY = mTrgY - 1;
-            List<DbEntry> existedEntries = mDestReader.mWorkspaceEntriesByScreenId.get(screenId);
-            if (existedEntries != null) {
-                for (DbEntry entry : existedEntries) {
+            if (existingEntries != null) {
+                for (DbEntry entry : existingEntries) {
                     mOccupied.markCells(entry, true);
                 }
             }
             mItemsToPlace = itemsToPlace;
+            mPlacedEntries = placedEntries;
         }
 
         public void find() {
@@ -393,8 +560,7 @@ public class GridSizeMigrationTaskV2 {
                     continue;
                 }
                 if (findPlacement(entry)) {
-                    insertEntryInDb(mDb, mContext, entry, mSrcReader.mTableName,
-                            mDestReader.mTableName);
+                    mPlacedEntries.add(entry);
                     iterator.remove();
                 }
             }
@@ -433,25 +599,18 @@ public class GridSizeMigrationTaskV2 {
 
     protected static class HotseatPlacementSolution {
 
-        private final SQLiteDatabase mDb;
-        private final DbReader mSrcReader;
-        private final DbReader mDestReader;
-        private final Context mContext;
         private final HotseatOccupancy mOccupied;
         private final List<DbEntry> mItemsToPlace;
+        private final List<DbEntry> mPlacedEntries;
 
-        HotseatPlacementSolution(SQLiteDatabase db, DbReader srcReader, DbReader destReader,
-                Context context, int hotseatSize, List<DbEntry> placedHotseatItems,
-                List<DbEntry> itemsToPlace) {
-            mDb = db;
-            mSrcReader = srcReader;
-            mDestReader = destReader;
-            mContext = context;
+        HotseatPlacementSolution(int hotseatSize, List<DbEntry> placedHotseatItems,
+                List<DbEntry> itemsToPlace, List<DbEntry> placedEntries) {
             mOccupied = new HotseatOccupancy(hotseatSize);
             for (DbEntry entry : placedHotseatItems) {
                 mOccupied.markCells(entry, true);
             }
             mItemsToPlace = itemsToPlace;
+            mPlacedEntries = placedEntries;
         }
 
         public void find() {
@@ -463,8 +622,7 @@ public class GridSizeMigrationTaskV2 {
                     // to something other than -1.
                     entry.cellX = i;
                     entry.cellY = 0;
-                    insertEntryInDb(mDb, mContext, entry, mSrcReader.mTableName,
-                            mDestReader.mTableName);
+                    mPlacedEntries.add(entry);
                     mOccupied.markCells(entry, true);
                 }
             }
@@ -491,20 +649,31 @@ public class GridSizeMigrationTaskV2 {
         private final Context mContext;
         private final HashSet<String> mValidPackages;
         private final int mHotseatSize;
-        private int mLastScreenId = -1;
+        // Whether invalid entries are only skipped instead of being deleted
+        private final boolean mReadOnly;
 
         private final ArrayList<DbEntry> mHotseatEntries = new ArrayList<>();
         private final ArrayList<DbEntry> mWorkspaceEntries = new ArrayList<>();
-        private final Map<Integer, ArrayList<DbEntry>> mWorkspaceEntriesByScreenId =
-                new ArrayMap<>();
 
         DbReader(SQLiteDatabase db, String tableName, Context context,
                 HashSet<String> validPackages, int hotseatSize) {
+            this(db, tableName, context, validPackages, hotseatSize, false /* readOnly */);
+        }
+
+        DbReader(SQLiteDatabase db, String tableName, Context context,
+                HashSet<String> validPackages, int hotseatSize, boolean readOnly) {
             mDb = db;
             mTableName = tableName;
             mContext = context;
             mValidPackages = validPackages;
             mHotseatSize = hotseatSize;
+            mReadOnly = readOnly;
+        }
+
+        private void removeEntries(IntArray entryIds) {
+            if (!mReadOnly) {
+                removeEntryFromDb(mDb, mTableName, entryIds);
+            }
         }
 
         protected ArrayList<DbEntry> loadHotseatEntries() {
@@ -563,7 +732,7 @@ public class GridSizeMigrationTaskV2 {
                 }
                 mHotseatEntries.add(entry);
             }
-            removeEntryFromDb(mDb, mTableName, entriesToRemove);
+            removeEntries(entriesToRemove);
             c.close();
             return mHotseatEntries;
         }
@@ -607,7 +776,6 @@ public class GridSizeMigrationTaskV2 {
                 entry.id = c.getInt(indexId);
                 entry.itemType = c.getInt(indexItemType);
                 entry.screenId = c.getInt(indexScreen);
-                mLastScreenId = Math.max(mLastScreenId, entry.screenId);
                 entry.cellX = c.getInt(indexCellX);
                 entry.cellY = c.getInt(indexCellY);
                 entry.spanX = c.getInt(indexSpanX);
@@ -628,21 +796,7 @@ public class GridSizeMigrationTaskV2 {
                             ComponentName cn = ComponentName.unflattenFromString(entry.mProvider);
                             verifyPackage(cn.getPackageName());
 
-                            int widgetId = c.getInt(indexAppWidgetId);
-                            LauncherAppWidgetProviderInfo pInfo =
-                                    widgetManagerHelper.getLauncherAppWidgetInfo(widgetId);
-                            Point spans = null;
-                            if (pInfo != null) {
-                                spans = pInfo.getMinSpans();
-                            }
-                            if (spans != null) {
-                                entry.minSpanX = spans.x > 0 ? spans.x : entry.spanX;
-                                entry.minSpanY = spans.y > 0 ? spans.y : entry.spanY;
-                            } else {
-                                // Assume that the widget be resized down to 2x2
-                                entry.minSpanX = entry.minSpanY = 2;
-                            }
-
+                            entry.initMinSpans(widgetManagerHelper, c.getInt(indexAppWidgetId));
                             break;
                         }
                         case LauncherSettings.Favorites.ITEM_TYPE_FOLDER: {
@@ -663,12 +817,8 @@ public class GridSizeMigrationTaskV2 {
                     continue;
                 }
                 mWorkspaceEntries.add(entry);
-                if (!mWorkspaceEntriesByScreenId.containsKey(entry.screenId)) {
-                    mWorkspaceEntriesByScreenId.put(entry.screenId, new ArrayList<>());
-                }
-                mWorkspaceEntriesByScreenId.get(entry.screenId).add(entry);
             }
-            removeEntryFromDb(mDb, mTableName, entriesToRemove);
+            removeEntries(entriesToRemove);
             c.close();
             return mWorkspaceEntries;
         }
@@ -690,7 +840,7 @@ public class GridSizeMigrationTaskV2 {
                     }
                     entry.mFolderItems.get(intent).add(id);
                 } catch (Exception e) {
-                    removeEntryFromDb(mDb, mTableName, IntArray.wrap(c.getInt(0)));
+                    removeEntries(IntArray.wrap(c.getInt(0)));
                 }
             }
             c.close();
@@ -723,11 +873,115 @@ public class GridSizeMigrationTaskV2 {
         }
     }
 
-    protected static class DbEntry extends ItemInfo implements Comparable<DbEntry> {
+    public static class DbEntry extends ItemInfo implements Comparable<DbEntry> {
 
         private String mIntent;
         private String mProvider;
         private Map<String, Set<Integer>> mFolderItems = new HashMap<>();
+        // The loaded item this entry was created from, if any
+        private ItemInfo mItem;
+
+        /**
+         * Creates an entry for an item already loaded in the model, or returns null if the
+         * database migration would not keep the item.
+         */
+        @Nullable
+        private static DbEntry fromItem(ItemInfo item, WidgetManagerHelper widgetManagerHelper) {
+            DbEntry entry = new DbEntry();
+            entry.mItem = item;
+            entry.id = item.id;
+            entry.itemType = item.itemType;
+            entry.container = item.container;
+            entry.screenId = item.screenId;
+            entry.cellX = item.cellX;
+            entry.cellY = item.cellY;
+            entry.spanX = item.spanX;
+            entry.spanY = item.spanY;
+
+            switch (item.itemType) {
+                case LauncherSettings.Favorites.ITEM_TYPE_SHORTCUT:
+                case LauncherSettings.Favorites.ITEM_TYPE_DEEP_SHORTCUT:
+                case LauncherSettings.Favorites.ITEM_TYPE_APPLICATION: {
+                    Intent intent = item.getIntent();
+                    if (intent == null) {
+                        return null;
+                    }
+                    entry.mIntent = intent.toUri(0);
+                    break;
+                }
+                case LauncherSettings.Favorites.ITEM_TYPE_APPWIDGET: {
+                    LauncherAppWidgetInfo widget = (LauncherAppWidgetInfo) item;
+                    if (widget.providerName == null) {
+                        return null;
+                    }
+                    entry.mProvider = widget.providerName.flattenToString();
+                    entry.initMinSpans(widgetManagerHelper, widget.appWidgetId);
+                    break;
+                }
+                case LauncherSettings.Favorites.ITEM_TYPE_FOLDER: {
+                    for (WorkspaceItemInfo info : ((FolderInfo) item).contents) {
+                        Intent intent = info.getIntent();
+                        if (intent == null) {
+                            continue;
+                        }
+                        String intentStr = intent.toUri(0);
+                        if (!entry.mFolderItems.containsKey(intentStr)) {
+                            entry.mFolderItems.put(intentStr, new HashSet<>());
+                        }
+                        entry.mFolderItems.get(intentStr).add(info.id);
+                    }
+                    if (entry.mFolderItems.isEmpty()) {
+                        return null;
+                    }
+                    break;
+                }
+                default:
+                    return null;
+            }
+            return entry;
+        }
+
+        /** Returns a copy of {@param item} at the position of this entry. */
+        private ItemInfo copyItem(ItemInfo item, int container) {
+            ItemInfo copy;
+            if (item instanceof FolderInfo) {
+                FolderInfo folder = new FolderInfo();
+                folder.copyFrom(item);
+                folder.title = item.title;
+                folder.options = ((FolderInfo) item).options;
+                folder.contents.addAll(((FolderInfo) item).contents);
+                copy = folder;
+            } else if (item instanceof LauncherAppWidgetInfo) {
+                LauncherAppWidgetInfo widget = (LauncherAppWidgetInfo) item;
+                copy = new LauncherAppWidgetInfo(widget.appWidgetId, widget.providerName);
+                copy.copyFrom(widget);
+            } else {
+                copy = new WorkspaceItemInfo((WorkspaceItemInfo) item);
+            }
+            copy.container = container;
+            copy.screenId = screenId;
+            copy.cellX = cellX;
+            copy.cellY = cellY;
+            copy.spanX = spanX;
+            copy.spanY = spanY;
+            return copy;
+        }
+
+        private void initMinSpans(WidgetManagerHelper widgetManagerHelper, int widgetId) {
+            LauncherAppWidgetProviderInfo pInfo =
+                    widgetManagerHelper.getLauncherAppWidgetInfo(widgetId);
+            Point spans = null;
+            if (pInfo != null) {
+                spans = pInfo.getMinSpans();
+            }
+            if (spans != null) {
+                minSpanX = spans.x > 0 ? spans.x : spanX;
+                minSpanY = spans.y > 0 ? spans.y : spanY;
+            } else {
+                // Assume that the widget be resized down to 2x2
+                minSpanX = minSpanY = 2;
+            }
+        }
 
         /** Comparator according to the reading order */
         @Override
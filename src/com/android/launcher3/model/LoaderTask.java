@@ -84,6 +84,7 @@ import com.android.launcher3.shortcuts.ShortcutRequest;
 import com.android.launcher3.shortcuts.ShortcutRequest.QueryResult;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.IOUtils;
+import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.LooperIdleLock;
 import com.android.launcher3.util.MultiHashMap;
 import com.android.launcher3.util.PackageManagerHelper;
@@ -781,20 +782,24 @@ public class LoaderTask implements Runnable {
             if (contentUri == LauncherSettings.Favorites.CONTENT_URI) {
                 // Remove dead items
                 if (c.commitDeleted()) {
-                    // Remove any empty folder
-                    int[] deletedFolderIds = LauncherSettings.Settings
-                            .call(contentResolver,
-                                    LauncherSettings.Settings.METHOD_DELETE_EMPTY_FOLDERS)
-                            .getIntArray(LauncherSettings.Settings.EXTRA_VALUE);
-                    for (int folderId : deletedFolderIds) {
+                    // Remove the folders which lost all their items. Empty folders left in the
+                    // DB and ghost widgets are removed by DbMaintenanceTask when the device is
+                    // idle, so that the loader does not scan the whole table for them.
+                    IntArray emptyFolderIds = new IntArray();
+                    for (FolderInfo folder : mBgDataModel.folders) {
+                        if (folder.contents.isEmpty()) {
+                            emptyFolderIds.add(folder.id);
+                        }
+                    }
+                    if (!emptyFolderIds.isEmpty()) {
+                        contentResolver.delete(contentUri, Utilities.createDbSelectionQuery(
+                                LauncherSettings.Favorites._ID, emptyFolderIds), null);
+                    }
+                    for (int folderId : emptyFolderIds.toArray()) {
                         mBgDataModel.workspaceItems.remove(mBgDataModel.folders.get(folderId));
                         mBgDataModel.folders.remove(folderId);
                         mBgDataModel.itemsIdMap.remove(folderId);
                     }
-
-                    // Remove any ghost widgets
-                    LauncherSettings.Settings.call(contentResolver,
-                            LauncherSettings.Settings.METHOD_REMOVE_GHOST_WIDGETS);
                 }
 
                 // Unpin shortcuts that don't exist on the workspace.
@@ -35,6 +35,7 @@ import com.android.launcher3.Utilities;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.PackageManagerHelper;
 
+import java.text.CollationKey;
 import java.util.Comparator;
 
 /**
@@ -58,6 +59,9 @@ public class AppInfo extends ItemInfoWithIcon {
     // Section name used for indexing.
     public String sectionName = "";
 
+    // Collation key of the title used for sorting, computed along with the section name.
+    public CollationKey sortKey;
+
     public AppInfo() {
         itemType = LauncherSettings.Favorites.ITEM_TYPE_APPLICATION;
     }
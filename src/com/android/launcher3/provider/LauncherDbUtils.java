@@ -20,9 +20,11 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.os.Binder;
 import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.android.launcher3.LauncherAppState;
@@ -30,6 +32,7 @@ import com.android.launcher3.LauncherSettings.Favorites;
 import com.android.launcher3.pm.UserCache;
 import com.android.launcher3.util.IntArray;
 
+import java.io.File;
 import java.util.Locale;
 
 /**
@@ -135,6 +138,53 @@ public class LauncherDbUtils {
         }
     }
 
+    /**
+     * Checks the integrity of the database at {@param dbName} and rebuilds it if it has unused
+     * pages. Does nothing if the database does not exist.
+     *
+     * @return a summary of the maintenance, for logging
+     */
+    public static String runMaintenance(Context context, String dbName) {
+        File file = context.getDatabasePath(dbName);
+        if (!file.exists()) {
+            return dbName + ": not found";
+        }
+        try (SQLiteDatabase db = SQLiteDatabase.openDatabase(
+                file.getPath(), null, SQLiteDatabase.OPEN_READWRITE)) {
+            return runMaintenance(db);
+        } catch (SQLException e) {
+            Log.e(TAG, "Error opening " + dbName, e);
+            return dbName + ": error " + e.getMessage();
+        }
+    }
+
+    /**
+     * Checks the integrity of {@param db} and rebuilds it if it has unused pages.
+     * Must not be called inside a transaction.
+     *
+     * @return a summary of the maintenance, for logging
+     */
+    public static String runMaintenance(SQLiteDatabase db) {
+        long startTime = SystemClock.uptimeMillis();
+        File file = new File(db.getPath());
+        long sizeBefore = file.length();
+        StringBuilder summary = new StringBuilder(file.getName());
+        try {
+            summary.append(": integrity=").append(db.isDatabaseIntegrityOk() ? "ok" : "corrupt");
+            long freePages = DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null);
+            summary.append(" freePages=").append(freePages);
+            if (freePages > 0) {
+                db.execSQL("VACUUM");
+            }
+        } catch (SQLException e) {
+            Log.e(TAG, "Error during maintenance of " + file.getName(), e);
+            summary.append(" error=").append(e.getMessage());
+        }
+        return summary.append(" size=").append(sizeBefore / 1024).append("KB->")
+                .append(file.length() / 1024).append("KB in ")
+                .append(SystemClock.uptimeMillis() - startTime).append("ms").toString();
+    }
+
     /**
      * Utility class to simplify managing sqlite transactions
      */
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.provider;
+
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of compiled insert and update statements, keyed by the table and the set of columns
+ * being written.
+ *
+ * {@link SQLiteDatabase#update} inlines the row id in the where clause, so the statement for every
+ * item is compiled again. Statements here take the row id as an argument instead, so that moving
+ * items around only binds new values into an already compiled statement.
+ */
+public class SQLiteStatementCache {
+
+    private static final String TAG = "SQLiteStatementCache";
+    private static final int MAX_SIZE = 16;
+
+    private final LinkedHashMap<String, SQLiteStatement> mStatements =
+            new LinkedHashMap<String, SQLiteStatement>(MAX_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SQLiteStatement> eldest) {
+                    if (size() > MAX_SIZE) {
+                        eldest.getValue().close();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    private SQLiteDatabase mDb;
+    private int mHits;
+    private int mMisses;
+
+    /**
+     * Same as {@link SQLiteDatabase#insert} with no null column hack.
+     *
+     * @return the row id of the new row, or -1 if an error occurred
+     */
+    public synchronized long insert(SQLiteDatabase db, String table, ContentValues values) {
+        String[] columns = getSortedColumns(values);
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append('(');
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(i > 0 ? "," : "").append(columns[i]);
+        }
+        sql.append(") VALUES (");
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(i > 0 ? ",?" : "?");
+        }
+        sql.append(')');
+
+        SQLiteStatement statement = getStatement(db, sql.toString());
+        try {
+            bindValues(statement, columns, values);
+            return statement.executeInsert();
+        } catch (SQLException e) {
+            Log.e(TAG, "Error inserting " + values, e);
+            return -1;
+        } finally {
+            statement.clearBindings();
+        }
+    }
+
+    /**
+     * Updates the row with the given {@param id}.
+     *
+     * @return the number of rows updated
+     */
+    public synchronized int update(SQLiteDatabase db, String table, ContentValues values,
+            long id) {
+        String[] columns = getSortedColumns(values);
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(i > 0 ? "," : "").append(columns[i]).append("=?");
+        }
+        sql.append(" WHERE _id=?");
+
+        SQLiteStatement statement = getStatement(db, sql.toString());
+        try {
+            bindValues(statement, columns, values);
+            statement.bindLong(columns.length + 1, id);
+            return statement.executeUpdateDelete();
+        } finally {
+            statement.clearBindings();
+        }
+    }
+
+    /**
+     * Closes all the compiled statements. Should be called before closing the database.
+     */
+    public synchronized void clear() {
+        for (SQLiteStatement statement : mStatements.values()) {
+            statement.close();
+        }
+        mStatements.clear();
+        mDb = null;
+    }
+
+    private SQLiteStatement getStatement(SQLiteDatabase db, String sql) {
+        if (db != mDb) {
+            clear();
+            mDb = db;
+        }
+        SQLiteStatement statement = mStatements.get(sql);
+        if (statement == null) {
+            mMisses++;
+            statement = db.compileStatement(sql);
+            mStatements.put(sql, statement);
+        } else {
+            mHits++;
+        }
+        return statement;
+    }
+
+    private static String[] getSortedColumns(ContentValues values) {
+        String[] columns = values.keySet().toArray(new String[values.size()]);
+        Arrays.sort(columns);
+        return columns;
+    }
+
+    private static void bindValues(SQLiteStatement statement, String[] columns,
+            ContentValues values) {
+        for (int i = 0; i < columns.length; i++) {
+            DatabaseUtils.bindObjectToProgram(statement, i + 1, values.get(columns[i]));
+        }
+    }
+
+    public synchronized void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "SQLiteStatementCache: size=" + mStatements.size()
+                + " hits=" + mHits + " misses=" + mMisses);
+    }
+}
@@ -59,8 +59,10 @@ public abstract class BaseSwipeDetector {
 
     private int mActivePointerId = INVALID_POINTER_ID;
     private VelocityTracker mVelocityTracker;
-    private PointF mLastDisplacement = new PointF();
-    private PointF mDisplacement = new PointF();
+    private final PointF mLastDisplacement = new PointF();
+    private final PointF mDisplacement = new PointF();
+    // Reused for every drag end, listeners should not hold on to it beyond the callback.
+    private final PointF mVelocity = new PointF();
     protected PointF mSubtractDisplacement = new PointF();
     @VisibleForTesting ScrollState mState = ScrollState.IDLE;
     private boolean mIsSettingState;
@@ -272,7 +274,8 @@ public abstract class BaseSwipeDetector {
 
     private void reportDragEnd() {
         mVelocityTracker.computeCurrentVelocity(1000, mMaxVelocity);
-        PointF velocity = new PointF(mVelocityTracker.getXVelocity() / 1000,
+        PointF velocity = mVelocity;
+        velocity.set(mVelocityTracker.getXVelocity() / 1000,
                 mVelocityTracker.getYVelocity() / 1000);
         if (mIsRtl) {
             velocity.x = -velocity.x;
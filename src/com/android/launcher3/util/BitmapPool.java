@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.Nullable;
+
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of mutable {@link Config#ARGB_8888} bitmaps, bucketed by dimensions.
+ *
+ * Bitmaps can be handed off and obtained from any thread without locking. When no bitmap of the
+ * requested size is available, a larger one is reconfigured to the requested size, which also
+ * makes pooled bitmaps suitable for {@link android.graphics.BitmapFactory.Options#inBitmap}.
+ * The total size of the pooled bitmaps is bounded by a byte budget, bitmaps exceeding it are
+ * dropped and left to the GC.
+ */
+@AnyThread
+public class BitmapPool {
+
+    private final long mMaxBytes;
+
+    private final ConcurrentHashMap<Long, ConcurrentLinkedQueue<Bitmap>> mBuckets =
+            new ConcurrentHashMap<>();
+    private final AtomicLong mPooledBytes = new AtomicLong();
+
+    // Stats
+    private final AtomicInteger mExactHits = new AtomicInteger();
+    private final AtomicInteger mReconfiguredHits = new AtomicInteger();
+    private final AtomicInteger mMisses = new AtomicInteger();
+    private final AtomicInteger mDropped = new AtomicInteger();
+
+    public BitmapPool(long maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Returns a bitmap of the given size, reusing a pooled bitmap if possible. The content of the
+     * returned bitmap is undefined.
+     */
+    public Bitmap get(int width, int height) {
+        Bitmap bitmap = getReusable(width, height);
+        return bitmap != null ? bitmap : Bitmap.createBitmap(width, height, Config.ARGB_8888);
+    }
+
+    /**
+     * Returns a pooled bitmap of the given size, or null if none of the pooled bitmaps are large
+     * enough. The content of the returned bitmap is undefined.
+     */
+    @Nullable
+    public Bitmap getReusable(int width, int height) {
+        Bitmap bitmap = poll(getKey(width, height));
+        if (bitmap != null) {
+            mExactHits.incrementAndGet();
+            return bitmap;
+        }
+
+        // Find the smallest bucket whose bitmaps can hold the requested size.
+        long requiredBytes = (long) width * height * 4;
+        long bestKey = 0;
+        long bestBytes = Long.MAX_VALUE;
+        for (Map.Entry<Long, ConcurrentLinkedQueue<Bitmap>> entry : mBuckets.entrySet()) {
+            long key = entry.getKey();
+            long bytes = (key >>> 32) * (key & 0xFFFFFFFFL) * 4;
+            if (bytes >= requiredBytes && bytes < bestBytes && !entry.getValue().isEmpty()) {
+                bestKey = key;
+                bestBytes = bytes;
+            }
+        }
+        if (bestBytes != Long.MAX_VALUE) {
+            bitmap = poll(bestKey);
+            if (bitmap != null && bitmap.getAllocationByteCount() >= requiredBytes) {
+                bitmap.reconfigure(width, height, Config.ARGB_8888);
+                mReconfiguredHits.incrementAndGet();
+                return bitmap;
+            }
+            // Keep the bitmap for a later request of its own size
+            put(bitmap);
+        }
+        mMisses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Returns the bitmap to the pool. The bitmap must no longer be used by the caller.
+     */
+    public void put(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()
+                || bitmap.getConfig() != Config.ARGB_8888) {
+            return;
+        }
+        int bytes = bitmap.getAllocationByteCount();
+        if (mPooledBytes.addAndGet(bytes) > mMaxBytes) {
+            mPooledBytes.addAndGet(-bytes);
+            mDropped.incrementAndGet();
+            return;
+        }
+        mBuckets.computeIfAbsent(getKey(bitmap.getWidth(), bitmap.getHeight()),
+                k -> new ConcurrentLinkedQueue<>()).add(bitmap);
+    }
+
+    /**
+     * Drops all the pooled bitmaps
+     */
+    public void clear() {
+        for (ConcurrentLinkedQueue<Bitmap> bucket : mBuckets.values()) {
+            Bitmap bitmap;
+            while ((bitmap = bucket.poll()) != null) {
+                mPooledBytes.addAndGet(-bitmap.getAllocationByteCount());
+            }
+        }
+    }
+
+    @Nullable
+    private Bitmap poll(long key) {
+        ConcurrentLinkedQueue<Bitmap> bucket = mBuckets.get(key);
+        Bitmap bitmap = bucket == null ? null : bucket.poll();
+        if (bitmap != null) {
+            mPooledBytes.addAndGet(-bitmap.getAllocationByteCount());
+        }
+        return bitmap;
+    }
+
+    private static long getKey(int width, int height) {
+        return ((long) width << 32) | (height & 0xFFFFFFFFL);
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        int exactHits = mExactHits.get();
+        int reconfiguredHits = mReconfiguredHits.get();
+        int requests = exactHits + reconfiguredHits + mMisses.get();
+        int hitRate = requests == 0 ? 0 : (exactHits + reconfiguredHits) * 100 / requests;
+        writer.println(prefix + "BitmapPool: pooledBytes=" + mPooledBytes.get()
+                + " maxBytes=" + mMaxBytes + " buckets=" + mBuckets.size());
+        writer.println(prefix + "  requests=" + requests
+                + " exactHits=" + exactHits
+                + " reconfiguredHits=" + reconfiguredHits
+                + " hitRate=" + hitRate + "%"
+                + " dropped=" + mDropped.get());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import android.view.Choreographer;
+import android.view.Choreographer.FrameCallback;
+
+import androidx.annotation.UiThread;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the duration of the frames of the UI thread between {@link #start} and {@link #stop},
+ * from the vsync times reported by the {@link Choreographer}. A frame which takes more than one
+ * and a half refresh periods made the UI thread miss at least one vsync, and counts as janky.
+ */
+@UiThread
+public class FrameTimeRecorder implements FrameCallback {
+
+    private final long mFrameIntervalNanos;
+
+    private boolean mRunning;
+    private long mLastFrameTimeNanos;
+
+    private int mFrames;
+    private int mJankyFrames;
+    private long mTotalNanos;
+    private long mMaxFrameNanos;
+
+    public FrameTimeRecorder(int singleFrameMs) {
+        mFrameIntervalNanos = TimeUnit.MILLISECONDS.toNanos(singleFrameMs);
+    }
+
+    public void start() {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        mLastFrameTimeNanos = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    public void stop() {
+        if (!mRunning) {
+            return;
+        }
+        mRunning = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        if (mLastFrameTimeNanos != 0) {
+            long duration = frameTimeNanos - mLastFrameTimeNanos;
+            mFrames++;
+            mTotalNanos += duration;
+            mMaxFrameNanos = Math.max(mMaxFrameNanos, duration);
+            if (duration > mFrameIntervalNanos * 3 / 2) {
+                mJankyFrames++;
+            }
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @Override
+    public String toString() {
+        return "frames=" + mFrames + " jankyFrames=" + mJankyFrames
+                + " avgFrameUs=" + (mFrames == 0 ? 0 : mTotalNanos / mFrames / 1000)
+                + " maxFrameUs=" + mMaxFrameNanos / 1000
+                + " totalMs=" + mTotalNanos / 1_000_000;
+    }
+}
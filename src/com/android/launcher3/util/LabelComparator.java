@@ -15,6 +15,7 @@
  */
 package com.android.launcher3.util;
 
+import java.text.CollationKey;
 import java.text.Collator;
 import java.util.Comparator;
 
@@ -28,6 +29,32 @@ public class LabelComparator implements Comparator<String> {
 
     @Override
     public int compare(String titleA, String titleB) {
+        int result = compareFirstCharacter(titleA, titleB);
+        if (result != 0) {
+            return result;
+        }
+
+        // Order by the title in the current locale
+        return mCollator.compare(titleA, titleB);
+    }
+
+    /**
+     * Returns the key of {@param title} in the current locale. Comparing two keys is much
+     * cheaper than comparing the titles, so the key can be computed once when the title changes.
+     */
+    public CollationKey getCollationKey(String title) {
+        return mCollator.getCollationKey(title);
+    }
+
+    /**
+     * Same as {@link #compare(String, String)} with the keys of the two titles.
+     */
+    public int compare(CollationKey keyA, CollationKey keyB) {
+        int result = compareFirstCharacter(keyA.getSourceString(), keyB.getSourceString());
+        return result != 0 ? result : keyA.compareTo(keyB);
+    }
+
+    private static int compareFirstCharacter(String titleA, String titleB) {
         // Ensure that we de-prioritize any titles that don't start with a
         // linguistic letter or digit
         boolean aStartsWithLetter = (titleA.length() > 0) &&
@@ -39,8 +66,6 @@ public class LabelComparator implements Comparator<String> {
         } else if (!aStartsWithLetter && bStartsWithLetter) {
             return 1;
         }
-
-        // Order by the title in the current locale
-        return mCollator.compare(titleA, titleB);
+        return 0;
     }
 }
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.text.PrecomputedText;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Cache of icon labels whose text layout was measured on the model thread.
+ *
+ * Measuring the glyphs of a label is the expensive part of laying out a BubbleTextView. Labels
+ * are precomputed per icon display (workspace, all apps, folder), using the text metrics of the
+ * first view attached for that display, and views with the same metrics at bind reuse them.
+ * Line breaking and ellipsizing to the view width still happen in the view, but only position
+ * the already measured glyphs.
+ */
+@TargetApi(Build.VERSION_CODES.P)
+public class LabelLayoutCache {
+
+    public static final MainThreadInitializedObject<LabelLayoutCache> INSTANCE =
+            new MainThreadInitializedObject<>(c -> new LabelLayoutCache());
+
+    // Number of icon displays, see BubbleTextView#DISPLAY_WORKSPACE and the following values
+    private static final int DISPLAY_COUNT = 3;
+
+    private final Object mLock = new Object();
+    // Guarded by mLock
+    private final Slot[] mSlots = new Slot[DISPLAY_COUNT];
+
+    // Stats
+    private int mHits;
+    private int mMisses;
+
+    /**
+     * Returns true if no text metrics were set for {@param display} yet.
+     */
+    @UiThread
+    public boolean needsParams(int display) {
+        if (display < 0 || display >= DISPLAY_COUNT) {
+            return false;
+        }
+        synchronized (mLock) {
+            Slot slot = mSlots[display];
+            return slot == null || slot.params == null;
+        }
+    }
+
+    /**
+     * Sets the text metrics used to precompute the labels of {@param display}, unless they were
+     * already set by another view. Views with different metrics, like the ones of the grid
+     * preview, do not replace the labels computed for the first view.
+     */
+    @UiThread
+    public void initParams(int display, PrecomputedText.Params params) {
+        if (display < 0 || display >= DISPLAY_COUNT) {
+            return;
+        }
+        List<String> pendingTitles;
+        synchronized (mLock) {
+            Slot slot = mSlots[display];
+            if (slot != null && slot.params != null) {
+                return;
+            }
+            pendingTitles = slot == null ? null : slot.pendingTitles;
+            mSlots[display] = new Slot(params);
+        }
+        if (pendingTitles != null) {
+            precomputeLabels(display, pendingTitles);
+        }
+    }
+
+    /**
+     * Returns the precomputed label for {@param title}, or null if it is not available for
+     * {@param params}, which should be the current text metrics of the view.
+     */
+    @UiThread
+    @Nullable
+    public PrecomputedText getLabel(int display, PrecomputedText.Params params,
+            CharSequence title) {
+        if (display < 0 || display >= DISPLAY_COUNT || title == null) {
+            return null;
+        }
+        PrecomputedText label = null;
+        synchronized (mLock) {
+            Slot slot = mSlots[display];
+            if (slot != null && slot.params != null
+                    && (slot.params == params || slot.params.equals(params))) {
+                label = slot.labels.get(title.toString());
+            }
+        }
+        if (label == null) {
+            mMisses++;
+        } else {
+            mHits++;
+        }
+        return label;
+    }
+
+    /**
+     * Precomputes the labels of {@param titles} for {@param display} on the model thread,
+     * replacing the labels previously computed for that display. If no view of that display
+     * was created yet, the labels are computed once its text metrics are known.
+     */
+    @UiThread
+    public void precomputeLabels(int display, List<? extends CharSequence> titles) {
+        if (display < 0 || display >= DISPLAY_COUNT) {
+            return;
+        }
+        ArrayList<String> titleStrings = new ArrayList<>(titles.size());
+        for (CharSequence title : titles) {
+            if (title != null) {
+                titleStrings.add(title.toString());
+            }
+        }
+
+        PrecomputedText.Params params;
+        HashMap<String, PrecomputedText> oldLabels;
+        synchronized (mLock) {
+            Slot slot = mSlots[display];
+            if (slot == null || slot.params == null) {
+                Slot pending = new Slot(null);
+                pending.pendingTitles = titleStrings;
+                mSlots[display] = pending;
+                return;
+            }
+            params = slot.params;
+            oldLabels = slot.labels;
+        }
+
+        MODEL_EXECUTOR.execute(() -> {
+            HashMap<String, PrecomputedText> labels = new HashMap<>(titleStrings.size());
+            for (String title : titleStrings) {
+                PrecomputedText label = oldLabels.get(title);
+                if (label == null) {
+                    label = labels.get(title);
+                }
+                labels.put(title, label != null ? label : PrecomputedText.create(title, params));
+            }
+            synchronized (mLock) {
+                Slot slot = mSlots[display];
+                if (slot != null && slot.params == params) {
+                    slot.labels = labels;
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops all the labels and text metrics, so that they are set again by the next views.
+     */
+    @UiThread
+    public void clear() {
+        synchronized (mLock) {
+            Arrays.fill(mSlots, null);
+        }
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        int size = 0;
+        synchronized (mLock) {
+            for (Slot slot : mSlots) {
+                if (slot != null) {
+                    size += slot.labels.size();
+                }
+            }
+        }
+        writer.println(prefix + "LabelLayoutCache: size=" + size
+                + " hits=" + mHits + " misses=" + mMisses);
+    }
+
+    private static class Slot {
+
+        final PrecomputedText.Params params;
+        HashMap<String, PrecomputedText> labels = new HashMap<>();
+        // Titles to compute once the params are known
+        List<String> pendingTitles;
+
+        Slot(PrecomputedText.Params params) {
+            this.params = params;
+        }
+    }
+}
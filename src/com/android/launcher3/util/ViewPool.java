@@ -17,6 +17,8 @@ package com.android.launcher3.util;
 
 import android.content.Context;
 import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -27,26 +29,55 @@ import androidx.annotation.UiThread;
 
 import com.android.launcher3.util.ViewPool.Reusable;
 
+import java.io.PrintWriter;
+import java.util.Arrays;
+
 /**
  * Utility class to maintain a pool of reusable views.
  * During initialization, views are inflated on the background thread.
+ *
+ * The pool sizes itself from the number of views recently requested at once (see
+ * {@link #onDemand(int)}), and can be refilled up to that size when the main thread is idle so
+ * that views don't need to be inflated when they are needed.
  */
 public class ViewPool<T extends View & Reusable> {
 
+    // Number of recent demands used to compute the target size of the pool
+    private static final int DEMAND_HISTORY_SIZE = 4;
+
     private final Object[] mPool;
 
     private final LayoutInflater mInflater;
     private final ViewGroup mParent;
     private final int mLayoutId;
+    private final int mInitialSize;
 
     private int mCurrentSize = 0;
 
+    private final int[] mRecentDemands = new int[DEMAND_HISTORY_SIZE];
+    private int mNextDemandIndex = 0;
+    private int mTargetSize;
+
+    @Nullable
+    private ViewPreparer<T> mIdlePreparer;
+    private final MessageQueue.IdleHandler mIdleFiller = this::onIdle;
+    private boolean mIdleFillerRegistered;
+    private int mFillSize;
+
+    // Stats
+    private int mViewsRequested;
+    private int mViewsInflatedOnDemand;
+    private int mViewsInflatedOnIdle;
+    private int mViewsTrimmed;
+
     public ViewPool(Context context, @Nullable ViewGroup parent,
             int layoutId, int maxSize, int initialSize) {
         mLayoutId = layoutId;
         mParent = parent;
         mInflater = LayoutInflater.from(context);
         mPool = new Object[maxSize];
+        mInitialSize = Math.min(initialSize, maxSize);
+        mTargetSize = mInitialSize;
 
         if (initialSize > 0) {
             initPool(initialSize);
@@ -94,13 +125,101 @@ public class ViewPool<T extends View & Reusable> {
     @UiThread
     public T getView() {
         Preconditions.assertUIThread();
+        mViewsRequested++;
         if (mCurrentSize > 0) {
             mCurrentSize--;
-            return (T) mPool[mCurrentSize];
+            T view = (T) mPool[mCurrentSize];
+            mPool[mCurrentSize] = null;
+            return view;
         }
+        mViewsInflatedOnDemand++;
         return inflateNewView(mInflater);
     }
 
+    /**
+     * Records that {@param count} views were needed at the same time, and updates the size the
+     * pool tries to maintain to the largest of the recent demands.
+     */
+    @UiThread
+    public void onDemand(int count) {
+        mRecentDemands[mNextDemandIndex] = count;
+        mNextDemandIndex = (mNextDemandIndex + 1) % DEMAND_HISTORY_SIZE;
+
+        int targetSize = mInitialSize;
+        for (int demand : mRecentDemands) {
+            targetSize = Math.max(targetSize, demand);
+        }
+        mTargetSize = Math.min(targetSize, mPool.length);
+    }
+
+    /**
+     * Inflates views, one per idle pass of the main thread, until the pool reaches its target
+     * size. Each new view is passed to {@param preparer} before being added to the pool, so that
+     * it can be pre-measured.
+     * Views that are in use count towards the target, as they are returned to the pool when
+     * they are recycled.
+     *
+     * @param inUseCount the number of views currently obtained from the pool and not recycled
+     */
+    @UiThread
+    public void fillOnIdle(int inUseCount, @Nullable ViewPreparer<T> preparer) {
+        Preconditions.assertUIThread();
+        mIdlePreparer = preparer;
+        if (mCurrentSize + inUseCount >= mTargetSize) {
+            return;
+        }
+        // Only fill up to the views which are not in use
+        mFillSize = mTargetSize - inUseCount;
+        if (!mIdleFillerRegistered) {
+            mIdleFillerRegistered = true;
+            Looper.myQueue().addIdleHandler(mIdleFiller);
+        }
+    }
+
+    private boolean onIdle() {
+        if (mCurrentSize >= Math.min(mFillSize, mPool.length)) {
+            mIdleFillerRegistered = false;
+            return false;
+        }
+        T view = inflateNewView(mInflater);
+        if (mIdlePreparer != null) {
+            mIdlePreparer.prepare(view);
+        }
+        mViewsInflatedOnIdle++;
+        addToPool(view);
+        return true;
+    }
+
+    /**
+     * Releases pooled views until at most {@param size} are left, and forgets the recent demands
+     * so that the pool does not grow back until views are needed again.
+     */
+    @UiThread
+    public void trimToSize(int size) {
+        Preconditions.assertUIThread();
+        if (mIdleFillerRegistered) {
+            mIdleFillerRegistered = false;
+            Looper.myQueue().removeIdleHandler(mIdleFiller);
+        }
+        Arrays.fill(mRecentDemands, 0);
+        mTargetSize = Math.min(mInitialSize, size);
+        while (mCurrentSize > size) {
+            mCurrentSize--;
+            mPool[mCurrentSize] = null;
+            mViewsTrimmed++;
+        }
+    }
+
+    public void dump(String prefix, PrintWriter pw) {
+        pw.println(prefix + "ViewPool:");
+        pw.println(prefix + "  size=" + mCurrentSize + " targetSize=" + mTargetSize
+                + " maxSize=" + mPool.length);
+        pw.println(prefix + "  viewsRequested=" + mViewsRequested
+                + " inflatedOnDemand=" + mViewsInflatedOnDemand
+                + " inflatedOnIdle=" + mViewsInflatedOnIdle
+                + " trimmed=" + mViewsTrimmed);
+    }
+
     @AnyThread
     private T inflateNewView(LayoutInflater inflater) {
         return (T) inflater.inflate(mLayoutId, mParent, false);
@@ -116,4 +235,12 @@ public class ViewPool<T extends View & Reusable> {
          */
         void onRecycle();
     }
+
+    /**
+     * Callback to prepare views inflated ahead of time, before they are added to the pool
+     */
+    public interface ViewPreparer<T> {
+
+        void prepare(T view);
+    }
 }
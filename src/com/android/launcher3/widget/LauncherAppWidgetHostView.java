@@ -19,9 +19,12 @@ package com.android.launcher3.widget;
 import android.appwidget.AppWidgetProviderInfo;
 import android.content.Context;
 import android.content.res.Configuration;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
 import android.os.Handler;
 import android.os.SystemClock;
 import android.util.SparseBooleanArray;
+import android.view.ContextThemeWrapper;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
@@ -34,13 +37,14 @@ import android.widget.RemoteViews;
 
 import com.android.launcher3.CheckLongPressHelper;
 import com.android.launcher3.Launcher;
+import com.android.launcher3.LauncherAppWidgetHost;
 import com.android.launcher3.LauncherAppWidgetProviderInfo;
 import com.android.launcher3.R;
 import com.android.launcher3.Utilities;
+import com.android.launcher3.Workspace;
 import com.android.launcher3.dragndrop.DragLayer;
 import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.model.data.LauncherAppWidgetInfo;
-import com.android.launcher3.util.Executors;
 import com.android.launcher3.util.Themes;
 import com.android.launcher3.views.BaseDragLayer.TouchCompleteListener;
 
@@ -57,6 +61,9 @@ public class LauncherAppWidgetHostView extends NavigableAppWidgetHostView
     // Maintains a list of widget ids which are supposed to be auto advanced.
     private static final SparseBooleanArray sAutoAdvanceWidgetIds = new SparseBooleanArray();
 
+    private static final WidgetInflationExecutor INFLATION_EXECUTOR =
+            new WidgetInflationExecutor();
+
     protected final LayoutInflater mInflater;
 
     private final CheckLongPressHelper mLongPressHelper;
@@ -70,6 +77,10 @@ public class LauncherAppWidgetHostView extends NavigableAppWidgetHostView
     private boolean mIsAutoAdvanceRegistered;
     private Runnable mAutoAdvanceRunnable;
 
+    // Distance from the current workspace page, read when picking the next widget to inflate
+    private volatile int mInflationPriority;
+    // Shown until the views inflated in the background are added
+    private Drawable mPlaceholder;
 
 
     public LauncherAppWidgetHostView(Context context) {
@@ -81,7 +92,7 @@ public class LauncherAppWidgetHostView extends NavigableAppWidgetHostView
         setBackgroundResource(R.drawable.widget_internal_focus_bg);
 
         if (Utilities.ATLEAST_OREO) {
-            setExecutor(Executors.THREAD_POOL_EXECUTOR);
+            setExecutor(r -> INFLATION_EXECUTOR.execute(r, this));
         }
         if (Utilities.ATLEAST_Q && Themes.getAttrBoolean(mLauncher, R.attr.isWorkspaceDarkText)) {
             setOnLightBackground(true);
@@ -105,8 +116,21 @@ public class LauncherAppWidgetHostView extends NavigableAppWidgetHostView
 
     @Override
     public void updateAppWidget(RemoteViews remoteViews) {
+        LauncherAppWidgetHost host = mLauncher.getAppWidgetHost();
+        if (host != null && host.deferUpdate(this, remoteViews)) {
+            return;
+        }
         super.updateAppWidget(remoteViews);
 
+        if (Utilities.ATLEAST_OREO && remoteViews != null && getChildCount() == 0) {
+            // The views are being inflated on the background executor
+            if (mPlaceholder == null) {
+                mPlaceholder = new ContextThemeWrapper(getContext(), R.style.WidgetContainerTheme)
+                        .getDrawable(R.drawable.pending_widget_bg);
+            }
+            invalidate();
+        }
+
         // The provider info or the views might have changed.
         checkIfAutoAdvance();
 
@@ -117,6 +141,32 @@ public class LauncherAppWidgetHostView extends NavigableAppWidgetHostView
         mReinflateOnConfigChange = !isSameOrientation();
     }
 
+    public int getInflationPriority() {
+        return mInflationPriority;
+    }
+
+    public void setInflationPriority(int priority) {
+        mInflationPriority = priority;
+    }
+
+    @Override
+    public void onViewAdded(View child) {
+        super.onViewAdded(child);
+        if (mPlaceholder != null) {
+            mPlaceholder = null;
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (mPlaceholder != null) {
+            mPlaceholder.setBounds(0, 0, getWidth(), getHeight());
+            mPlaceholder.draw(canvas);
+        }
+        super.dispatchDraw(canvas);
+    }
+
     private boolean isSameOrientation() {
         return mLauncher.getResources().getConfiguration().orientation ==
                 mLauncher.getOrientation();
@@ -162,6 +212,14 @@ public class LauncherAppWidgetHostView extends NavigableAppWidgetHostView
 
         mIsAttachedToWindow = true;
         checkIfAutoAdvance();
+
+        Workspace workspace = mLauncher.getWorkspace();
+        if (getTag() instanceof ItemInfo && workspace != null) {
+            int page = workspace.getPageIndexForScreenId(((ItemInfo) getTag()).screenId);
+            if (page >= 0) {
+                mInflationPriority = Math.abs(page - workspace.getNextPage());
+            }
+        }
     }
 
     @Override
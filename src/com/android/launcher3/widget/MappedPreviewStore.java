@@ -0,0 +1,511 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.util.BitmapPool;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * Storage for widget previews as uncompressed pixel blocks in an append-only data file, which is
+ * memory-mapped for reading. Compared to PNG blobs in SQLite, a cache hit is a copy of the pixels
+ * from the page cache into the bitmap, without any cursor or decoding.
+ *
+ * Every record has a header describing the preview, so that the in-memory index can be rebuilt
+ * by scanning the headers when the store is opened. Removals are appended as tombstone records,
+ * and the file is compacted once it contains more obsolete data than live data.
+ */
+public class MappedPreviewStore {
+
+    private static final String TAG = "MappedPreviewStore";
+
+    private static final int RECORD_MAGIC = 0x50525657; // "PRVW"
+    private static final int TYPE_PREVIEW = 1;
+    private static final int TYPE_REMOVE_PACKAGE = 2;
+    private static final int TYPE_CLEAR = 3;
+
+    private static final int MIN_COMPACTION_BYTES = 4 * 1024 * 1024;
+
+    private final File mFile;
+    private final long mMaxFileSize;
+
+    // Guarded by this
+    private final HashMap<String, Entry> mIndex = new HashMap<>();
+    private RandomAccessFile mDataFile;
+    private MappedByteBuffer mMappedBuffer;
+    private long mFileSize;
+    private long mLiveBytes;
+
+    // Stats, guarded by this
+    private int mReads;
+    private int mWrites;
+    private int mCompactions;
+
+    public MappedPreviewStore(File file, long maxFileSize) {
+        mFile = file;
+        mMaxFileSize = maxFileSize;
+    }
+
+    /**
+     * Reads the preview for the given key into a bitmap from {@param pool}, or returns null if
+     * the preview is not in the store or was stored for a different package version.
+     */
+    @WorkerThread
+    @Nullable
+    public Bitmap read(String component, long userSerial, String size, long version,
+            long lastUpdated, BitmapPool pool) {
+        Entry entry;
+        ByteBuffer pixels;
+        synchronized (this) {
+            if (!ensureOpen()) {
+                return null;
+            }
+            entry = mIndex.get(getKey(component, userSerial, size));
+            if (entry == null || entry.version != version || entry.lastUpdated != lastUpdated
+                    || !ensureMapped(entry.dataOffset + entry.dataLength)) {
+                return null;
+            }
+            // Absolute position and limit on a duplicate, so that concurrent reads don't interfere
+            pixels = mMappedBuffer.duplicate();
+            mReads++;
+        }
+        pixels.limit((int) (entry.dataOffset + entry.dataLength));
+        pixels.position((int) entry.dataOffset);
+
+        Bitmap bitmap = pool.get(entry.width, entry.height);
+        try {
+            bitmap.copyPixelsFromBuffer(pixels);
+            return bitmap;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Unable to read preview for " + component, e);
+            pool.put(bitmap);
+            return null;
+        }
+    }
+
+    /**
+     * Appends the preview for the given key, replacing any previous preview for that key.
+     */
+    @WorkerThread
+    public synchronized void write(String component, String packageName, long userSerial,
+            String size, long version, long lastUpdated, Bitmap preview) {
+        if (!ensureOpen() || preview.getConfig() != Config.ARGB_8888) {
+            return;
+        }
+        Entry entry = new Entry(component, packageName, userSerial, size, version, lastUpdated,
+                preview.getWidth(), preview.getHeight());
+        entry.dataLength = preview.getByteCount();
+        if (mFileSize + entry.dataLength > mMaxFileSize) {
+            compact();
+            // Compaction resets the store if the new file can not be opened
+            if (!ensureOpen() || mFileSize + entry.dataLength > mMaxFileSize) {
+                return;
+            }
+        }
+        try {
+            byte[] header = entry.writeHeader(TYPE_PREVIEW);
+            long offset = mFileSize;
+            mDataFile.seek(offset);
+            mDataFile.write(header);
+            entry.dataOffset = offset + header.length;
+
+            ByteBuffer pixels = ByteBuffer.allocate(entry.dataLength);
+            preview.copyPixelsToBuffer(pixels);
+            mDataFile.write(pixels.array(), 0, entry.dataLength);
+            mFileSize = entry.dataOffset + entry.dataLength;
+
+            Entry old = mIndex.put(entry.key, entry);
+            if (old != null) {
+                mLiveBytes -= old.dataLength;
+            }
+            mLiveBytes += entry.dataLength;
+            mWrites++;
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to write preview for " + component, e);
+            // Drop anything partially written, it is ignored when the file is scanned again.
+            reset();
+        }
+    }
+
+    /**
+     * Removes all the previews of the package for the given user.
+     */
+    @WorkerThread
+    public synchronized void removePackage(String packageName, long userSerial) {
+        if (!ensureOpen()) {
+            return;
+        }
+        if (removeFromIndex(packageName, userSerial)) {
+            Entry tombstone = new Entry("", packageName, userSerial, "", 0, 0, 0, 0);
+            appendRecord(tombstone, TYPE_REMOVE_PACKAGE);
+            maybeCompact();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the entries in the store.
+     */
+    @WorkerThread
+    public synchronized ArrayList<Entry> getEntries() {
+        ensureOpen();
+        return new ArrayList<>(mIndex.values());
+    }
+
+    /**
+     * Removes all the previews from the store.
+     */
+    @WorkerThread
+    public synchronized void clear() {
+        if (!ensureOpen()) {
+            return;
+        }
+        mIndex.clear();
+        mLiveBytes = 0;
+        appendRecord(new Entry("", "", 0, "", 0, 0, 0, 0), TYPE_CLEAR);
+        maybeCompact();
+    }
+
+    private boolean removeFromIndex(String packageName, long userSerial) {
+        boolean removed = false;
+        Iterator<Entry> it = mIndex.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.userSerial == userSerial && entry.packageName.equals(packageName)) {
+                mLiveBytes -= entry.dataLength;
+                it.remove();
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    private void appendRecord(Entry entry, int type) {
+        try {
+            byte[] header = entry.writeHeader(type);
+            mDataFile.seek(mFileSize);
+            mDataFile.write(header);
+            mFileSize += header.length;
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to update preview store", e);
+            reset();
+        }
+    }
+
+    private void maybeCompact() {
+        if (mDataFile != null && mFileSize > MIN_COMPACTION_BYTES && mFileSize - mLiveBytes > mLiveBytes) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the live previews to a new file, dropping all obsolete data.
+     */
+    private void compact() {
+        File tmp = new File(mFile.getPath() + ".tmp");
+        HashMap<String, Entry> newIndex = new HashMap<>();
+        long newSize = 0;
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            out.setLength(0);
+            byte[] buffer = new byte[64 * 1024];
+            for (Entry entry : mIndex.values()) {
+                Entry copy = entry.copy();
+                byte[] header = copy.writeHeader(TYPE_PREVIEW);
+                out.write(header);
+                copy.dataOffset = newSize + header.length;
+
+                mDataFile.seek(entry.dataOffset);
+                int remaining = entry.dataLength;
+                while (remaining > 0) {
+                    int count = Math.min(remaining, buffer.length);
+                    mDataFile.readFully(buffer, 0, count);
+                    out.write(buffer, 0, count);
+                    remaining -= count;
+                }
+                newSize = copy.dataOffset + copy.dataLength;
+                newIndex.put(copy.key, copy);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to compact preview store", e);
+            tmp.delete();
+            return;
+        }
+
+        closeFile();
+        if (!tmp.renameTo(mFile)) {
+            Log.e(TAG, "Unable to replace preview store");
+            tmp.delete();
+            mFile.delete();
+            newIndex.clear();
+            newSize = 0;
+        }
+        mIndex.clear();
+        mIndex.putAll(newIndex);
+        mLiveBytes = newSize;
+        mCompactions++;
+        try {
+            mDataFile = new RandomAccessFile(mFile, "rw");
+            mFileSize = newSize;
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to open preview store", e);
+            reset();
+        }
+    }
+
+    private boolean ensureOpen() {
+        if (mDataFile != null) {
+            return true;
+        }
+        try {
+            mFile.getParentFile().mkdirs();
+            mFileSize = loadIndex();
+            mDataFile = new RandomAccessFile(mFile, "rw");
+            // Drop any partially written record at the end of the file
+            mDataFile.setLength(mFileSize);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to open preview store", e);
+            mIndex.clear();
+            mLiveBytes = 0;
+            return false;
+        }
+    }
+
+    /**
+     * Rebuilds the index from the record headers.
+     * @return the size of the valid part of the file
+     */
+    private long loadIndex() throws IOException {
+        mIndex.clear();
+        mLiveBytes = 0;
+        if (!mFile.exists()) {
+            return 0;
+        }
+        long fileLength = mFile.length();
+        long offset = 0;
+        try (CountingInputStream counter = new CountingInputStream(
+                new BufferedInputStream(new FileInputStream(mFile)));
+             DataInputStream in = new DataInputStream(counter)) {
+            while (offset < fileLength) {
+                if (in.readInt() != RECORD_MAGIC) {
+                    break;
+                }
+                int type = in.readInt();
+                Entry entry = Entry.readHeader(in);
+                long dataOffset = counter.count;
+                if (type == TYPE_PREVIEW) {
+                    if (dataOffset + entry.dataLength > fileLength) {
+                        break;
+                    }
+                    entry.dataOffset = dataOffset;
+                    if (in.skipBytes(entry.dataLength) != entry.dataLength) {
+                        break;
+                    }
+                    Entry old = mIndex.put(entry.key, entry);
+                    if (old != null) {
+                        mLiveBytes -= old.dataLength;
+                    }
+                    mLiveBytes += entry.dataLength;
+                } else if (type == TYPE_REMOVE_PACKAGE) {
+                    removeFromIndex(entry.packageName, entry.userSerial);
+                } else if (type == TYPE_CLEAR) {
+                    mIndex.clear();
+                    mLiveBytes = 0;
+                } else {
+                    break;
+                }
+                offset = counter.count;
+            }
+        } catch (EOFException e) {
+            // Partially written record, ignore it
+        }
+        return offset;
+    }
+
+    private boolean ensureMapped(long size) {
+        if (mMappedBuffer != null && mMappedBuffer.capacity() >= size) {
+            return true;
+        }
+        try {
+            mMappedBuffer = mDataFile.getChannel()
+                    .map(FileChannel.MapMode.READ_ONLY, 0, mFileSize);
+            return mMappedBuffer.capacity() >= size;
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to map preview store", e);
+            return false;
+        }
+    }
+
+    private void reset() {
+        closeFile();
+        mFile.delete();
+        mIndex.clear();
+        mLiveBytes = 0;
+        mFileSize = 0;
+    }
+
+    private void closeFile() {
+        mMappedBuffer = null;
+        if (mDataFile != null) {
+            try {
+                mDataFile.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+            mDataFile = null;
+        }
+    }
+
+    private static String getKey(String component, long userSerial, String size) {
+        return component + '#' + userSerial + '#' + size;
+    }
+
+    public synchronized void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "MappedPreviewStore: file=" + mFile
+                + " entries=" + mIndex.size());
+        writer.println(prefix + "  fileSize=" + mFileSize + " liveBytes=" + mLiveBytes
+                + " reads=" + mReads + " writes=" + mWrites + " compactions=" + mCompactions);
+    }
+
+    /**
+     * A preview in the store
+     */
+    public static class Entry {
+
+        public final String component;
+        public final String packageName;
+        public final long userSerial;
+        public final String size;
+        public final long version;
+        public final long lastUpdated;
+        final int width;
+        final int height;
+        final String key;
+
+        long dataOffset;
+        int dataLength;
+
+        Entry(String component, String packageName, long userSerial, String size,
+                long version, long lastUpdated, int width, int height) {
+            this.component = component;
+            this.packageName = packageName;
+            this.userSerial = userSerial;
+            this.size = size;
+            this.version = version;
+            this.lastUpdated = lastUpdated;
+            this.width = width;
+            this.height = height;
+            key = getKey(component, userSerial, size);
+        }
+
+        Entry copy() {
+            Entry copy = new Entry(component, packageName, userSerial, size, version,
+                    lastUpdated, width, height);
+            copy.dataLength = dataLength;
+            return copy;
+        }
+
+        byte[] writeHeader(int type) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(RECORD_MAGIC);
+            out.writeInt(type);
+            out.writeUTF(component);
+            out.writeUTF(packageName);
+            out.writeLong(userSerial);
+            out.writeUTF(size);
+            out.writeLong(version);
+            out.writeLong(lastUpdated);
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeInt(dataLength);
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        static Entry readHeader(DataInputStream in) throws IOException {
+            String component = in.readUTF();
+            String packageName = in.readUTF();
+            long userSerial = in.readLong();
+            String size = in.readUTF();
+            long version = in.readLong();
+            long lastUpdated = in.readLong();
+            int width = in.readInt();
+            int height = in.readInt();
+            Entry entry = new Entry(component, packageName, userSerial, size, version,
+                    lastUpdated, width, height);
+            entry.dataLength = in.readInt();
+            return entry;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result >= 0) {
+                count++;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int result = super.read(b, off, len);
+            if (result > 0) {
+                count += result;
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long result = super.skip(n);
+            count += result;
+            return result;
+        }
+    }
+}
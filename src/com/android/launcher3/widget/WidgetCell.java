@@ -72,6 +72,7 @@ public class WidgetCell extends LinearLayout implements OnLayoutChangeListener {
     private WidgetPreviewLoader mWidgetPreviewLoader;
 
     protected CancellationSignal mActiveRequest;
+    private int mRowIndex = WidgetPreviewScheduler.NO_ROW;
     private boolean mAnimatePreview = true;
 
     private boolean mApplyBitmapDeferred = false;
@@ -151,6 +152,17 @@ public class WidgetCell extends LinearLayout implements OnLayoutChangeListener {
         }
     }
 
+    /**
+     * Sets the row of the widgets list showing this cell, used to prioritize its preview.
+     */
+    public void setRowIndex(int rowIndex) {
+        mRowIndex = rowIndex;
+    }
+
+    public int getRowIndex() {
+        return mRowIndex;
+    }
+
     public WidgetImageView getWidgetView() {
         return mWidgetImage;
     }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import static com.android.launcher3.util.Executors.THREAD_POOL_EXECUTOR;
+
+import java.util.ArrayList;
+
+/**
+ * Runs the background part of the RemoteViews inflation of workspace widgets.
+ *
+ * The work runs on {@link com.android.launcher3.util.Executors#THREAD_POOL_EXECUTOR}, but each
+ * pool thread picks the pending inflation whose widget is closest to the current workspace page,
+ * so that a heavy page bind does not delay the widgets the user is looking at.
+ */
+public class WidgetInflationExecutor {
+
+    private final Object mLock = new Object();
+    // Guarded by mLock
+    private final ArrayList<Task> mPending = new ArrayList<>();
+
+    /**
+     * Schedules {@param runnable}, which inflates the views of {@param view}.
+     */
+    public void execute(Runnable runnable, LauncherAppWidgetHostView view) {
+        synchronized (mLock) {
+            mPending.add(new Task(runnable, view));
+        }
+        THREAD_POOL_EXECUTOR.execute(this::runNext);
+    }
+
+    private void runNext() {
+        Task task;
+        synchronized (mLock) {
+            if (mPending.isEmpty()) {
+                return;
+            }
+            // Tasks are kept in submission order, so ties are picked first-in first-out
+            int best = 0;
+            int bestPriority = mPending.get(0).view.getInflationPriority();
+            for (int i = 1; i < mPending.size(); i++) {
+                int priority = mPending.get(i).view.getInflationPriority();
+                if (priority < bestPriority) {
+                    best = i;
+                    bestPriority = priority;
+                }
+            }
+            task = mPending.remove(best);
+        }
+        task.runnable.run();
+    }
+
+    private static class Task {
+
+        final Runnable runnable;
+        final LauncherAppWidgetHostView view;
+
+        Task(Runnable runnable, LauncherAppWidgetHostView view) {
+            this.runnable = runnable;
+            this.view = view;
+        }
+    }
+}
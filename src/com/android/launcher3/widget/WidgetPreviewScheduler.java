@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import android.os.Process;
+import android.os.SystemClock;
+
+import androidx.annotation.UiThread;
+import androidx.annotation.WorkerThread;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs widget preview loads on {@link #WORKER_COUNT} dedicated threads at background priority,
+ * so that they neither compete with the shared thread pool nor change the priority of its
+ * threads.
+ *
+ * Pending loads are ordered by the distance of their row from the visible rows, so that visible
+ * previews are loaded first, followed by the ones ahead in the scroll direction. Distances are
+ * computed on the main thread when a load is scheduled and whenever the visible rows change.
+ */
+public class WidgetPreviewScheduler {
+
+    /**
+     * Row index of a job whose view is not part of the widgets list, always loaded first.
+     */
+    public static final int NO_ROW = -1;
+
+    private static final int WORKER_COUNT = 2;
+    private static final int KEEP_ALIVE_SECONDS = 5;
+
+    private final ThreadPoolExecutor mExecutor = createExecutor();
+
+    private final Object mLock = new Object();
+    // Guarded by mLock
+    private final ArrayList<Job> mPending = new ArrayList<>();
+    private int mRunningWorkers;
+    private boolean mPaused;
+
+    // Visible rows, only accessed on the main thread
+    private int mFirstVisibleRow = 0;
+    private int mLastVisibleRow = Integer.MAX_VALUE;
+    private int mScrollDirection = 1;
+
+    // Stats, only accessed on the main thread
+    private int mScheduled;
+    private int mCancelledBeforeStart;
+    private int mVisiblePreviews;
+    private long mTotalVisiblePreviewMillis;
+    private long mMaxVisiblePreviewMillis;
+
+    /**
+     * Schedules a preview load for {@param job}.
+     */
+    @UiThread
+    public void schedule(Job job) {
+        job.mScheduleTime = SystemClock.uptimeMillis();
+        int priority = getPriority(job.mRowIndex);
+        mScheduled++;
+        synchronized (mLock) {
+            job.mPriority = priority;
+            mPending.add(job);
+            if (mPaused || mRunningWorkers >= WORKER_COUNT) {
+                return;
+            }
+            mRunningWorkers++;
+        }
+        mExecutor.execute(this::runPendingJobs);
+    }
+
+    /**
+     * Cancels the job, and removes it from the queue if it hasn't started yet.
+     */
+    @UiThread
+    public void cancel(Job job) {
+        job.mCancelled = true;
+        synchronized (mLock) {
+            if (mPending.remove(job)) {
+                mCancelledBeforeStart++;
+            }
+        }
+    }
+
+    /**
+     * Stops starting jobs and waits for the running ones to complete. Jobs scheduled meanwhile
+     * stay pending until {@link #resume()}.
+     */
+    @WorkerThread
+    public void pause() {
+        synchronized (mLock) {
+            mPaused = true;
+            while (mRunningWorkers > 0) {
+                try {
+                    mLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts running the pending jobs again after {@link #pause()}.
+     */
+    public void resume() {
+        int workers;
+        synchronized (mLock) {
+            mPaused = false;
+            workers = Math.min(WORKER_COUNT, mPending.size()) - mRunningWorkers;
+            if (workers <= 0) {
+                return;
+            }
+            mRunningWorkers += workers;
+        }
+        for (int i = 0; i < workers; i++) {
+            mExecutor.execute(this::runPendingJobs);
+        }
+    }
+
+    /**
+     * Updates the visible rows and the scroll direction, and re-orders the pending jobs
+     * accordingly.
+     *
+     * @param scrollDirection positive when scrolling towards the bottom, negative otherwise
+     */
+    @UiThread
+    public void setVisibleRows(int firstVisibleRow, int lastVisibleRow, int scrollDirection) {
+        if (scrollDirection == 0) {
+            scrollDirection = mScrollDirection;
+        }
+        if (firstVisibleRow == mFirstVisibleRow && lastVisibleRow == mLastVisibleRow
+                && scrollDirection == mScrollDirection) {
+            return;
+        }
+        mFirstVisibleRow = firstVisibleRow;
+        mLastVisibleRow = lastVisibleRow;
+        mScrollDirection = scrollDirection;
+        synchronized (mLock) {
+            for (int i = mPending.size() - 1; i >= 0; i--) {
+                Job job = mPending.get(i);
+                job.mPriority = getPriority(job.mRowIndex);
+            }
+        }
+    }
+
+    /**
+     * Called when the preview of {@param job} is applied to its view.
+     */
+    @UiThread
+    public void onPreviewApplied(Job job) {
+        if (getPriority(job.mRowIndex) == 0) {
+            long latency = SystemClock.uptimeMillis() - job.mScheduleTime;
+            mVisiblePreviews++;
+            mTotalVisiblePreviewMillis += latency;
+            mMaxVisiblePreviewMillis = Math.max(mMaxVisiblePreviewMillis, latency);
+        }
+    }
+
+    /**
+     * Returns 0 if the row is visible, otherwise its distance in rows from the visible rows.
+     * Rows behind the scroll direction are penalized by the number of visible rows.
+     */
+    private int getPriority(int row) {
+        if (row == NO_ROW || (row >= mFirstVisibleRow && row <= mLastVisibleRow)) {
+            return 0;
+        }
+        boolean below = row > mLastVisibleRow;
+        int distance = below ? row - mLastVisibleRow : mFirstVisibleRow - row;
+        boolean ahead = below == (mScrollDirection > 0);
+        return ahead ? distance : distance + (mLastVisibleRow - mFirstVisibleRow + 1);
+    }
+
+    /**
+     * Runs the pending jobs by priority until there are none left or the scheduler is paused.
+     */
+    @WorkerThread
+    private void runPendingJobs() {
+        while (true) {
+            Job job;
+            synchronized (mLock) {
+                if (mPaused || mPending.isEmpty()) {
+                    mRunningWorkers--;
+                    mLock.notifyAll();
+                    return;
+                }
+                int best = 0;
+                for (int i = 1; i < mPending.size(); i++) {
+                    if (mPending.get(i).mPriority < mPending.get(best).mPriority) {
+                        best = i;
+                    }
+                }
+                job = mPending.remove(best);
+            }
+            if (!job.mCancelled) {
+                job.run();
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(WORKER_COUNT, WORKER_COUNT,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }, "WidgetPreviewWorker"));
+        // Release the threads while the widgets list is not used
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @UiThread
+    public void dump(String prefix, PrintWriter writer) {
+        int pending;
+        synchronized (mLock) {
+            pending = mPending.size();
+        }
+        writer.println(prefix + "WidgetPreviewScheduler: pending=" + pending
+                + " scheduled=" + mScheduled
+                + " cancelledBeforeStart=" + mCancelledBeforeStart);
+        writer.println(prefix + "  visiblePreviews=" + mVisiblePreviews
+                + " avgTimeToPreviewMs=" + (mVisiblePreviews == 0
+                        ? 0 : mTotalVisiblePreviewMillis / mVisiblePreviews)
+                + " maxTimeToPreviewMs=" + mMaxVisiblePreviewMillis);
+    }
+
+    /**
+     * A preview load for a view in the given row of the widgets list
+     */
+    public abstract static class Job implements Runnable {
+
+        private final int mRowIndex;
+        private volatile boolean mCancelled;
+
+        // Guarded by the scheduler lock
+        private int mPriority;
+        // Only accessed on the main thread
+        private long mScheduleTime;
+
+        public Job(int rowIndex) {
+            mRowIndex = rowIndex;
+        }
+
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+    }
+}
@@ -25,7 +25,11 @@ import com.android.launcher3.model.data.PackageItemInfo;
 import com.android.launcher3.widget.WidgetsListAdapter.WidgetListRowEntryComparator;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Set;
 
 /**
  * Do diff on widget's tray list items and call the {@link RecyclerView.Adapter}
@@ -43,6 +47,11 @@ public class WidgetsDiffReporter {
         mListener = listener;
     }
 
+    /**
+     * Updates {@param currentEntries} to match {@param newEntries} and notifies the adapter of
+     * the changes. {@param currentEntries} is expected to be sorted using {@param comparator},
+     * while {@param newEntries} can be in any order.
+     */
     public void process(ArrayList<WidgetListRowEntry> currentEntries,
             ArrayList<WidgetListRowEntry> newEntries, WidgetListRowEntryComparator comparator) {
         if (DEBUG) {
@@ -56,12 +65,17 @@ public class WidgetsDiffReporter {
             // when the animation completes (which still gives empty). And we get the final result
             // when the bind actually completes.
             if (currentEntries.size() != newEntries.size()) {
+                Collections.sort(newEntries, comparator);
                 currentEntries.clear();
                 currentEntries.addAll(newEntries);
                 mListener.notifyDataSetChanged();
             }
             return;
         }
+        if (processChangedRows(currentEntries, newEntries, comparator)) {
+            return;
+        }
+        Collections.sort(newEntries, comparator);
         ArrayList<WidgetListRowEntry> orgEntries =
                 (ArrayList<WidgetListRowEntry>) currentEntries.clone();
         Iterator<WidgetListRowEntry> orgIter = orgEntries.iterator();
@@ -118,6 +132,73 @@ public class WidgetsDiffReporter {
         } while(orgRowEntry != null || newRowEntry != null);
     }
 
+    /**
+     * Applies only the rows which are not present in both lists. This relies on
+     * {@link com.android.launcher3.model.WidgetsModel} reusing the rows of packages which did not
+     * change, so that a single package update does not need to compare every row by label.
+     *
+     * @return false if too many rows changed, in which case nothing is applied
+     */
+    private boolean processChangedRows(ArrayList<WidgetListRowEntry> currentEntries,
+            ArrayList<WidgetListRowEntry> newEntries, WidgetListRowEntryComparator comparator) {
+        Set<WidgetListRowEntry> addedRows = Collections.newSetFromMap(new IdentityHashMap<>());
+        addedRows.addAll(newEntries);
+        ArrayList<WidgetListRowEntry> removedRows = new ArrayList<>();
+        for (WidgetListRowEntry row : currentEntries) {
+            if (!addedRows.remove(row)) {
+                removedRows.add(row);
+            }
+        }
+        if (removedRows.size() + addedRows.size() > currentEntries.size()) {
+            return false;
+        }
+        if (DEBUG) {
+            Log.d(TAG, "processChangedRows removed#=" + removedRows.size()
+                    + " added#=" + addedRows.size());
+        }
+
+        HashMap<String, WidgetListRowEntry> addedByPackage = new HashMap<>();
+        for (WidgetListRowEntry row : addedRows) {
+            addedByPackage.put(row.pkgItem.packageName, row);
+        }
+        for (WidgetListRowEntry row : removedRows) {
+            int index = currentEntries.indexOf(row);
+            WidgetListRowEntry newRow = addedByPackage.remove(row.pkgItem.packageName);
+            if (newRow != null && isInOrder(currentEntries, index, newRow, comparator)) {
+                // Same package at the same position, the row was updated by the model
+                currentEntries.set(index, newRow);
+                mListener.notifyItemChanged(index);
+            } else {
+                currentEntries.remove(index);
+                mListener.notifyItemRemoved(index);
+                if (newRow != null) {
+                    // The label changed, insert it again at the right position
+                    addedByPackage.put(newRow.pkgItem.packageName, newRow);
+                }
+            }
+        }
+        for (WidgetListRowEntry row : addedByPackage.values()) {
+            int index = Collections.binarySearch(currentEntries, row, comparator);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            currentEntries.add(index, row);
+            mListener.notifyItemInserted(index);
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if {@param row} can replace the entry at {@param index} without breaking the
+     * sort order.
+     */
+    private boolean isInOrder(ArrayList<WidgetListRowEntry> entries, int index,
+            WidgetListRowEntry row, WidgetListRowEntryComparator comparator) {
+        return (index == 0 || comparator.compare(entries.get(index - 1), row) <= 0)
+                && (index == entries.size() - 1
+                        || comparator.compare(row, entries.get(index + 1)) <= 0);
+    }
+
     /**
      * Compare package name using the same comparator as in {@link WidgetsListAdapter}.
      * Also handle null row pointers.
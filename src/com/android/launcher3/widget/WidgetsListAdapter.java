@@ -30,7 +30,6 @@ import com.android.launcher3.model.WidgetItem;
 import com.android.launcher3.util.LabelComparator;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
@@ -96,9 +95,7 @@ public class WidgetsListAdapter extends Adapter<WidgetsRowViewHolder> {
      * Update the widget list.
      */
     public void setWidgets(ArrayList<WidgetListRowEntry> tempEntries) {
-        WidgetListRowEntryComparator rowComparator = new WidgetListRowEntryComparator();
-        Collections.sort(tempEntries, rowComparator);
-        mDiffReporter.process(mEntries, tempEntries, rowComparator);
+        mDiffReporter.process(mEntries, tempEntries, new WidgetListRowEntryComparator());
     }
 
     @Override
@@ -156,6 +153,7 @@ public class WidgetsListAdapter extends Adapter<WidgetsRowViewHolder> {
         for (int i=0; i < infoList.size(); i++) {
             WidgetCell widget = (WidgetCell) row.getChildAt(2*i);
             widget.applyFromCellItem(infoList.get(i), mWidgetPreviewLoader);
+            widget.setRowIndex(pos);
             widget.setApplyBitmapDeferred(mApplyBitmapDeferred);
             widget.ensurePreview();
             widget.setVisibility(View.VISIBLE);
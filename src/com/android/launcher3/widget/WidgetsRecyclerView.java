@@ -24,6 +24,7 @@ import android.view.MotionEvent;
 import android.view.View;
 
 import com.android.launcher3.BaseRecyclerView;
+import com.android.launcher3.LauncherAppState;
 import com.android.launcher3.R;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.testing.TestProtocol;
@@ -44,6 +45,8 @@ public class WidgetsRecyclerView extends BaseRecyclerView implements OnItemTouch
     private final Point mFastScrollerOffset = new Point();
     private boolean mTouchDownOnScroller;
 
+    private final WidgetPreviewScheduler mPreviewScheduler;
+
     public WidgetsRecyclerView(Context context) {
         this(context, null);
     }
@@ -56,6 +59,7 @@ public class WidgetsRecyclerView extends BaseRecyclerView implements OnItemTouch
         // API 21 and below only support 3 parameter ctor.
         super(context, attrs, defStyleAttr);
         mScrollbarTop = getResources().getDimensionPixelSize(R.dimen.dynamic_grid_edge_margin);
+        mPreviewScheduler = LauncherAppState.getInstance(context).getWidgetCache().getScheduler();
         addOnItemTouchListener(this);
     }
 
@@ -64,7 +68,39 @@ public class WidgetsRecyclerView extends BaseRecyclerView implements OnItemTouch
         super.onFinishInflate();
         // create a layout manager with Launcher's context so that scroll position
         // can be preserved during screen rotation.
-        setLayoutManager(new LinearLayoutManager(getContext()));
+        setLayoutManager(new LinearLayoutManager(getContext()) {
+            @Override
+            protected int getExtraLayoutSpace(State state) {
+                // Bind the rows one screen ahead in the scroll direction, so that their
+                // previews are loaded before they are visible.
+                return getScrollState() == SCROLL_STATE_IDLE ? 0 : getHeight();
+            }
+        });
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        updatePreviewViewport(0);
+    }
+
+    @Override
+    public void onScrolled(int dx, int dy) {
+        super.onScrolled(dx, dy);
+        updatePreviewViewport(dy);
+    }
+
+    private void updatePreviewViewport(int dy) {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) getLayoutManager();
+        if (layoutManager == null) {
+            return;
+        }
+        int first = layoutManager.findFirstVisibleItemPosition();
+        if (first == NO_POSITION) {
+            return;
+        }
+        mPreviewScheduler.setVisibleRows(first, layoutManager.findLastVisibleItemPosition(),
+                Integer.signum(dy));
     }
 
     @Override
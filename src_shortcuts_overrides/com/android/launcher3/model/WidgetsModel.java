@@ -58,6 +58,12 @@ public class WidgetsModel {
     /* Map of widgets and shortcuts that are tracked per package. */
     private final MultiHashMap<PackageItemInfo, WidgetItem> mWidgetsList = new MultiHashMap<>();
 
+    /**
+     * Rows handed out by {@link #getWidgetsList}, reused until their package changes. Keeping
+     * unchanged rows identical lets the UI diff only the packages which were updated.
+     */
+    private final HashMap<PackageItemInfo, WidgetListRowEntry> mRows = new HashMap<>();
+
     private AppFilter mAppFilter;
 
     /**
@@ -66,18 +72,30 @@ public class WidgetsModel {
      * is not sorted. This list is sorted at the UI when using
      * {@link com.android.launcher3.widget.WidgetsDiffReporter}
      *
+     * Rows of packages which did not change since the previous call are returned as the same
+     * instances.
+     *
      * @see com.android.launcher3.widget.WidgetsListAdapter#setWidgets(ArrayList)
      */
     public synchronized ArrayList<WidgetListRowEntry> getWidgetsList(Context context) {
-        ArrayList<WidgetListRowEntry> result = new ArrayList<>();
-        AlphabeticIndexCompat indexer = new AlphabeticIndexCompat(context);
+        ArrayList<WidgetListRowEntry> result = new ArrayList<>(mWidgetsList.size());
+        AlphabeticIndexCompat indexer = null;
+        WidgetItemComparator widgetComparator = null;
 
-        WidgetItemComparator widgetComparator = new WidgetItemComparator();
         for (Map.Entry<PackageItemInfo, ArrayList<WidgetItem>> entry : mWidgetsList.entrySet()) {
-            WidgetListRowEntry row = new WidgetListRowEntry(entry.getKey(), entry.getValue());
-            row.titleSectionName = (row.pkgItem.title == null) ? "" :
-                    indexer.computeSectionName(row.pkgItem.title);
-            Collections.sort(row.widgets, widgetComparator);
+            WidgetListRowEntry row = mRows.get(entry.getKey());
+            if (row == null) {
+                if (indexer == null) {
+                    indexer = new AlphabeticIndexCompat(context);
+                    widgetComparator = new WidgetItemComparator();
+                }
+                // Copy the items, as the model list keeps changing on the worker thread
+                row = new WidgetListRowEntry(entry.getKey(), new ArrayList<>(entry.getValue()));
+                row.titleSectionName = (row.pkgItem.title == null) ? "" :
+                        indexer.computeSectionName(row.pkgItem.title);
+                Collections.sort(row.widgets, widgetComparator);
+                mRows.put(row.pkgItem, row);
+            }
             result.add(row);
         }
         return result;
@@ -144,6 +162,7 @@ public class WidgetsModel {
         // clear the lists.
         if (packageUser == null) {
             mWidgetsList.clear();
+            mRows.clear();
         } else {
             // Only clear the widgets for the given package/user.
             PackageItemInfo packageItem = null;
@@ -157,6 +176,7 @@ public class WidgetsModel {
                 // We want to preserve the user that was on the packageItem previously,
                 // so add it to tmpPackageItemInfos here to avoid creating a new entry.
                 tmpPackageItemInfos.put(packageItem.packageName, packageItem);
+                mRows.remove(packageItem);
 
                 Iterator<WidgetItem> widgetItemIterator = mWidgetsList.get(packageItem).iterator();
                 while (widgetItemIterator.hasNext()) {
@@ -221,13 +241,15 @@ public class WidgetsModel {
         IconCache iconCache = app.getIconCache();
         for (PackageItemInfo p : tmpPackageItemInfos.values()) {
             iconCache.getTitleAndIconForApp(p, true /* userLowResIcon */);
+            mRows.remove(p);
         }
     }
 
-    public void onPackageIconsUpdated(Set<String> packageNames, UserHandle user,
+    public synchronized void onPackageIconsUpdated(Set<String> packageNames, UserHandle user,
             LauncherAppState app) {
         for (Entry<PackageItemInfo, ArrayList<WidgetItem>> entry : mWidgetsList.entrySet()) {
             if (packageNames.contains(entry.getKey().packageName)) {
+                mRows.remove(entry.getKey());
                 ArrayList<WidgetItem> items = entry.getValue();
                 int count = items.size();
                 for (int i = 0; i < count; i++) {
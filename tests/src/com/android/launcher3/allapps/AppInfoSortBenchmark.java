@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.util.LabelComparator;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares sorting the all apps list by comparing the titles with sorting it by comparing
+ * precomputed collation keys. Results are written to logcat.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class AppInfoSortBenchmark {
+
+    private static final String TAG = "AppInfoSortBenchmark";
+
+    private static final int APP_COUNT = 300;
+    private static final int ITERATIONS = 20;
+
+    @Test
+    public void compareTitleAndKeySort() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        AppInfoComparator comparator = new AppInfoComparator(context);
+        LabelComparator labelComparator = new LabelComparator();
+
+        List<AppInfo> withTitles = createApps();
+        List<AppInfo> withKeys = createApps();
+        long keyNanos = SystemClock.elapsedRealtimeNanos();
+        for (AppInfo info : withKeys) {
+            info.sortKey = labelComparator.getCollationKey(info.title.toString());
+        }
+        keyNanos = SystemClock.elapsedRealtimeNanos() - keyNanos;
+
+        long titleSortNanos = 0;
+        long keySortNanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            Collections.shuffle(withTitles, new Random(i));
+            long start = SystemClock.elapsedRealtimeNanos();
+            Collections.sort(withTitles, comparator);
+            titleSortNanos += SystemClock.elapsedRealtimeNanos() - start;
+
+            Collections.shuffle(withKeys, new Random(i));
+            start = SystemClock.elapsedRealtimeNanos();
+            Collections.sort(withKeys, comparator);
+            keySortNanos += SystemClock.elapsedRealtimeNanos() - start;
+        }
+
+        for (int i = 0; i < APP_COUNT; i++) {
+            assertEquals(withTitles.get(i).componentName, withKeys.get(i).componentName);
+        }
+        Log.d(TAG, "Sorting " + APP_COUNT + " apps: titles avg "
+                + titleSortNanos / ITERATIONS / 1000 + "us, keys avg "
+                + keySortNanos / ITERATIONS / 1000 + "us, computing keys "
+                + keyNanos / 1000 + "us");
+    }
+
+    private static List<AppInfo> createApps() {
+        Random random = new Random(0);
+        List<AppInfo> apps = new ArrayList<>();
+        for (int i = 0; i < APP_COUNT; i++) {
+            StringBuilder title = new StringBuilder();
+            int length = 4 + random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                char c = (char) ((j == 0 ? 'A' : 'a') + random.nextInt(26));
+                title.append(c);
+            }
+            apps.add(new AppInfo(new ComponentName("com.example", "com.example.App" + i),
+                    title, Process.myUserHandle(), null));
+        }
+        return apps;
+    }
+}
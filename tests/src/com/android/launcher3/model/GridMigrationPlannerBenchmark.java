@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static org.junit.Assert.assertEquals;
+
+import android.graphics.Point;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.model.GridSizeMigrationTaskV2.DbEntry;
+import com.android.launcher3.model.GridSizeMigrationTaskV2.MigrationPlanner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Measures the time to plan the migration of a 20 screen 5x5 layout to a 4x4 grid, without any
+ * database access. Results are written to logcat.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class GridMigrationPlannerBenchmark {
+
+    private static final String TAG = "GridMigrationPlannerBenchmark";
+
+    private static final int SCREENS = 20;
+    private static final int SRC_SIZE = 5;
+    private static final int HOTSEAT_SIZE = 5;
+    private static final int ITERATIONS = 20;
+
+    @Test
+    public void planTwentyScreens() {
+        MigrationPlanner planner = new MigrationPlanner(HOTSEAT_SIZE - 1, new Point(4, 4));
+
+        long totalNanos = 0;
+        int placed = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            // The planner updates the entries in place, so start from a fresh layout every time
+            List<DbEntry> hotseat = createHotseat();
+            List<DbEntry> workspace = createWorkspace();
+            long start = SystemClock.elapsedRealtimeNanos();
+            placed = planner.plan(hotseat, workspace, Collections.emptyList(),
+                    Collections.emptyList()).size();
+            totalNanos += SystemClock.elapsedRealtimeNanos() - start;
+        }
+
+        // All the workspace items fit on new screens, only one hotseat item is dropped
+        assertEquals(SCREENS * SRC_SIZE * SRC_SIZE + HOTSEAT_SIZE - 1, placed);
+        Log.d(TAG, "Planned " + placed + " items, avg "
+                + totalNanos / ITERATIONS / 1000 + "us");
+    }
+
+    private static List<DbEntry> createHotseat() {
+        List<DbEntry> entries = new ArrayList<>();
+        for (int i = 0; i < HOTSEAT_SIZE; i++) {
+            entries.add(createEntry(Favorites.CONTAINER_HOTSEAT, i, i, 0));
+        }
+        return entries;
+    }
+
+    private static List<DbEntry> createWorkspace() {
+        List<DbEntry> entries = new ArrayList<>();
+        for (int screen = 0; screen < SCREENS; screen++) {
+            for (int y = 0; y < SRC_SIZE; y++) {
+                for (int x = 0; x < SRC_SIZE; x++) {
+                    entries.add(createEntry(Favorites.CONTAINER_DESKTOP, screen, x, y));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static DbEntry createEntry(int container, int screenId, int x, int y) {
+        DbEntry entry = new DbEntry();
+        entry.itemType = Favorites.ITEM_TYPE_APPLICATION;
+        entry.container = container;
+        entry.screenId = screenId;
+        entry.cellX = x;
+        entry.cellY = y;
+        return entry;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.provider;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.launcher3.LauncherProvider.DatabaseHelper;
+import com.android.launcher3.LauncherSettings.Favorites;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures the latency of single item updates to the favorites table while another thread keeps
+ * reading the whole table, as the loader does. Results are written to logcat.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class LauncherDbWriteBenchmark {
+
+    private static final String TAG = "LauncherDbWriteBenchmark";
+    private static final String DB_FILE = "write_benchmark.db";
+
+    private static final int ITEM_COUNT = 200;
+    private static final int UPDATES = 500;
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        mContext.deleteDatabase(DB_FILE);
+    }
+
+    @After
+    public void tearDown() {
+        mContext.deleteDatabase(DB_FILE);
+    }
+
+    @Test
+    public void compareWriteLatencyDuringLoad() throws Exception {
+        long rollbackUncached = run(false /* wal */, false /* cached */);
+        long rollbackCached = run(false /* wal */, true /* cached */);
+        long walUncached = run(true /* wal */, false /* cached */);
+        long walCached = run(true /* wal */, true /* cached */);
+
+        Log.d(TAG, "Avg update latency with concurrent loads (us):"
+                + " rollback=" + rollbackUncached
+                + " rollback+cache=" + rollbackCached
+                + " wal=" + walUncached
+                + " wal+cache=" + walCached);
+    }
+
+    /**
+     * Returns the average time of an update in micro seconds.
+     */
+    private long run(boolean wal, boolean cached) throws Exception {
+        mContext.deleteDatabase(DB_FILE);
+        DatabaseHelper helper = new DatabaseHelper(mContext, DB_FILE, true /* forMigration */) {
+            @Override
+            public void onOpen(SQLiteDatabase db) { }
+        };
+        helper.setWriteAheadLoggingEnabled(wal);
+        SQLiteDatabase db = helper.getWritableDatabase();
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            ContentValues values = new ContentValues();
+            values.put(Favorites._ID, i);
+            values.put(Favorites.TITLE, "title " + i);
+            values.put(Favorites.CONTAINER, Favorites.CONTAINER_DESKTOP);
+            values.put(Favorites.SCREEN, i / 20);
+            db.insert(Favorites.TABLE_NAME, null, values);
+        }
+
+        AtomicBoolean done = new AtomicBoolean();
+        Thread loader = new Thread(() -> {
+            while (!done.get()) {
+                try (Cursor c = helper.getReadableDatabase().query(Favorites.TABLE_NAME,
+                        null, null, null, null, null, null)) {
+                    while (c.moveToNext()) {
+                        c.getString(c.getColumnIndex(Favorites.TITLE));
+                    }
+                }
+            }
+        });
+        loader.start();
+
+        SQLiteStatementCache cache = new SQLiteStatementCache();
+        long totalNanos = 0;
+        for (int i = 0; i < UPDATES; i++) {
+            int id = i % ITEM_COUNT;
+            ContentValues values = new ContentValues();
+            values.put(Favorites.CELLX, i % 5);
+            values.put(Favorites.CELLY, i % 6);
+            values.put(Favorites.SCREEN, i % 10);
+
+            long start = SystemClock.elapsedRealtimeNanos();
+            int count = cached
+                    ? cache.update(db, Favorites.TABLE_NAME, values, id)
+                    : db.update(Favorites.TABLE_NAME, values, "_id=" + id, null);
+            totalNanos += SystemClock.elapsedRealtimeNanos() - start;
+            assertEquals(1, count);
+        }
+
+        done.set(true);
+        loader.join();
+        cache.clear();
+        helper.close();
+        return totalNanos / UPDATES / 1000;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static android.view.View.MeasureSpec.EXACTLY;
+import static android.view.View.MeasureSpec.UNSPECIFIED;
+import static android.view.View.MeasureSpec.makeMeasureSpec;
+
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.text.PrecomputedText;
+import android.text.TextUtils.TruncateAt;
+import android.util.Log;
+import android.util.TypedValue;
+import android.widget.TextView;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.launcher3.Utilities;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the main thread cost of setting and laying out an icon label, with the label given as
+ * a plain string and as a precomputed text, as done by {@link LabelLayoutCache}. Results are
+ * written to logcat.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class LabelLayoutBenchmark {
+
+    private static final String TAG = "LabelLayoutBenchmark";
+
+    private static final int LABEL_COUNT = 300;
+    private static final int LABEL_WIDTH_PX = 200;
+    private static final int TEXT_SIZE_PX = 36;
+
+    @Test
+    public void compareLabelBindCost() {
+        assumeTrue(Utilities.ATLEAST_P);
+        Context context = InstrumentationRegistry.getTargetContext();
+        List<String> titles = createTitles();
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            TextView view = createLabelView(context);
+            long plainNanos = bindAll(view, new ArrayList<>(titles));
+
+            view = createLabelView(context);
+            long precomputeNanos = SystemClock.elapsedRealtimeNanos();
+            List<CharSequence> labels = new ArrayList<>();
+            for (String title : titles) {
+                labels.add(PrecomputedText.create(title, view.getTextMetricsParams()));
+            }
+            precomputeNanos = SystemClock.elapsedRealtimeNanos() - precomputeNanos;
+            long precomputedNanos = bindAll(view, labels);
+
+            Log.d(TAG, "Label bind avg: plain " + plainNanos / LABEL_COUNT / 1000
+                    + "us, precomputed " + precomputedNanos / LABEL_COUNT / 1000
+                    + "us, precomputing off the main thread "
+                    + precomputeNanos / LABEL_COUNT / 1000 + "us");
+        });
+    }
+
+    private static long bindAll(TextView view, List<CharSequence> labels) {
+        int widthSpec = makeMeasureSpec(LABEL_WIDTH_PX, EXACTLY);
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (CharSequence label : labels) {
+            view.setText(label);
+            view.measure(widthSpec, UNSPECIFIED);
+            view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        }
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+
+    private static TextView createLabelView(Context context) {
+        TextView view = new TextView(context);
+        view.setTextSize(TypedValue.COMPLEX_UNIT_PX, TEXT_SIZE_PX);
+        view.setLines(1);
+        view.setEllipsize(TruncateAt.END);
+        return view;
+    }
+
+    private static List<String> createTitles() {
+        Random random = new Random(0);
+        List<String> titles = new ArrayList<>();
+        for (int i = 0; i < LABEL_COUNT; i++) {
+            StringBuilder title = new StringBuilder();
+            int length = 4 + random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                title.append(j > 0 && random.nextInt(6) == 0
+                        ? ' ' : (char) ('a' + random.nextInt(26)));
+            }
+            titles.add(title.toString());
+        }
+        return titles;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.launcher3.icons.GraphicsUtils;
+import com.android.launcher3.util.BitmapPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+/**
+ * Compares the time to load a widget preview from {@link MappedPreviewStore} with decoding the
+ * PNG blob stored in the SQLite preview DB. Results are written to logcat.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class WidgetPreviewDecodeBenchmark {
+
+    private static final String TAG = "WidgetPreviewDecodeBenchmark";
+
+    private static final int WIDTH = 600;
+    private static final int HEIGHT = 400;
+    private static final int ITERATIONS = 50;
+
+    private static final String COMPONENT = "com.example/.Widget";
+    private static final String SIZE = WIDTH + "x" + HEIGHT;
+
+    private File mStoreFile;
+    private Bitmap mPreview;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        mStoreFile = new File(context.getCacheDir(), "preview_benchmark.dat");
+        mStoreFile.delete();
+
+        // A preview with both flat areas and detail, like a typical widget screenshot
+        mPreview = Bitmap.createBitmap(WIDTH, HEIGHT, Config.ARGB_8888);
+        Canvas c = new Canvas(mPreview);
+        c.drawColor(Color.WHITE);
+        Paint p = new Paint(Paint.ANTI_ALIAS_FLAG);
+        for (int i = 0; i < 40; i++) {
+            p.setColor(Color.HSVToColor(new float[] {i * 9, 0.6f, 0.9f}));
+            c.drawCircle((i * 37) % WIDTH, (i * 53) % HEIGHT, 20 + i, p);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mStoreFile.delete();
+    }
+
+    @Test
+    public void comparePngAndMappedDecode() {
+        byte[] blob = GraphicsUtils.flattenBitmap(mPreview);
+        BitmapPool pool = new BitmapPool(Long.MAX_VALUE);
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inMutable = true;
+
+        long pngNanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            opts.inBitmap = pool.getReusable(WIDTH, HEIGHT);
+            long start = SystemClock.elapsedRealtimeNanos();
+            Bitmap bitmap = BitmapFactory.decodeByteArray(blob, 0, blob.length, opts);
+            pngNanos += SystemClock.elapsedRealtimeNanos() - start;
+            assertNotNull(bitmap);
+            pool.put(bitmap);
+        }
+
+        MappedPreviewStore store = new MappedPreviewStore(mStoreFile, Long.MAX_VALUE);
+        store.write(COMPONENT, "com.example", 0, SIZE, 1, 1, mPreview);
+        long mappedNanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            Bitmap bitmap = store.read(COMPONENT, 0, SIZE, 1, 1, pool);
+            mappedNanos += SystemClock.elapsedRealtimeNanos() - start;
+            assertNotNull(bitmap);
+            assertEquals(mPreview.getPixel(WIDTH / 2, HEIGHT / 2),
+                    bitmap.getPixel(WIDTH / 2, HEIGHT / 2));
+            pool.put(bitmap);
+        }
+
+        Log.d(TAG, "PNG blob: " + blob.length + " bytes, avg decode "
+                + pngNanos / ITERATIONS / 1000 + "us");
+        Log.d(TAG, "Mapped store: " + mStoreFile.length() + " bytes, avg read "
+                + mappedNanos / ITERATIONS / 1000 + "us");
+    }
+}